@@ -0,0 +1,308 @@
+package com.twikey;
+
+import com.twikey.callback.DocumentCallback;
+import com.twikey.modal.DocumentRequests;
+import com.twikey.modal.DocumentResponse;
+import com.twikey.modal.JsonReader;
+import com.twikey.modal.ResponseUtils;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static com.twikey.TwikeyClient.*;
+import static java.time.temporal.ChronoUnit.SECONDS;
+
+public class AsyncDocumentGateway {
+
+    private final TwikeyClient twikeyClient;
+
+    protected AsyncDocumentGateway(TwikeyClient twikeyClient) {
+        this.twikeyClient = twikeyClient;
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#create(DocumentRequests.InviteRequest)}
+     *
+     * @param invite Class converted to map containing the invite parameters
+     * @return future with the url to redirect the customer to or to send in an email
+     */
+    public CompletableFuture<DocumentResponse.MandateCreationResponse> create(DocumentRequests.InviteRequest invite) {
+        Map<String, String> requestMap = invite.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/invite"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                AsyncDocumentGateway::toMandateCreationResponse);
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#sign(DocumentRequests.SignRequest)}
+     *
+     * @param invite Class converted to map containing the sign parameters
+     * @return future with the url to redirect the customer to or to send in an email
+     */
+    public CompletableFuture<DocumentResponse.MandateCreationResponse> sign(DocumentRequests.SignRequest invite) {
+        Map<String, String> requestMap = invite.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/sign"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                AsyncDocumentGateway::toMandateCreationResponse);
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#action(DocumentRequests.MandateActionRequest)}
+     *
+     * @param action The mandate action request
+     * @return future completing when the action was accepted
+     */
+    public CompletableFuture<Void> action(DocumentRequests.MandateActionRequest action) {
+        Map<String, String> requestMap = action.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/%s/action".formatted(String.valueOf(requestMap.get("mndtId")))))
+                        .timeout(Duration.of(10, SECONDS))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 204) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    twikeyClient.invalidate(EndpointFamily.MANDATE, requestMap.get("mndtId"));
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#query(DocumentRequests.MandateQuery)}
+     *
+     * @param action The query parameters
+     * @return future with the matching mandates, empty when none were found
+     */
+    public CompletableFuture<List<DocumentResponse.Document>> query(DocumentRequests.MandateQuery action) {
+        Map<String, String> requestMap = action.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/query?" + getPostDataString(requestMap)))
+                        .headers("Content-Type", HTTP_FORM_ENCODED)
+                        .headers("User-Agent", twikeyClient.getUserAgent())
+                        .headers("Authorization", sessionToken)
+                        .GET()
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        return DocumentResponse.Document.fromQuery(new JSONObject(new JSONTokener(response.body().nextValueStream())));
+                    } else {
+                        String apiError = apiError(response);
+                        if ("err_not_found".equals(apiError)) {
+                            return List.of();
+                        }
+                        throw new TwikeyClient.UserException(apiError);
+                    }
+                });
+    }
+
+    public CompletableFuture<Void> cancel(String mandateNumber, String reason) {
+        return this.cancel(mandateNumber, reason, false);
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#cancel(String, String, boolean)}
+     *
+     * @param mandateNumber The unique identifier of the mandate to cancel (mndtId).
+     * @param reason        The reason for cancelling the mandate.
+     * @param notify        When set to true, the customer will be notified by email.
+     * @return future completing when the mandate was cancelled
+     */
+    public CompletableFuture<Void> cancel(String mandateNumber, String reason, boolean notify) {
+        return twikeyClient.sendAsync(sessionToken -> {
+                    URI myurl = twikeyClient.getUrl(String.format("/mandate?mndtId=%s&rsn=%s&notify=%s",
+                            URLEncoder.encode(mandateNumber, StandardCharsets.UTF_8),
+                            URLEncoder.encode(reason, StandardCharsets.UTF_8),
+                            notify));
+                    return HttpRequest.newBuilder(myurl)
+                            .header("Content-Type", HTTP_FORM_ENCODED)
+                            .header("User-Agent", twikeyClient.getUserAgent())
+                            .header("Authorization", sessionToken)
+                            .DELETE()
+                            .build();
+                },
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 200) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    twikeyClient.invalidate(EndpointFamily.MANDATE, mandateNumber);
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#fetch(DocumentRequests.MandateDetailRequest)}
+     *
+     * @param fetch An object representing information for identifying the mandate.
+     * @return future with the {@link DocumentResponse.Document}
+     */
+    public CompletableFuture<DocumentResponse.Document> fetch(DocumentRequests.MandateDetailRequest fetch) {
+        Map<String, String> requestMap = fetch.toRequest();
+        return twikeyClient.lookupAsync("/mandate/detail?" + getPostDataString(requestMap), document -> Arrays.asList(document.getMandateNumber()), uri -> twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(uri)
+                            .headers("Content-Type", HTTP_FORM_ENCODED)
+                            .headers("User-Agent", twikeyClient.getUserAgent())
+                            .headers("Authorization", sessionToken)
+                            .GET()
+                            .build(),
+                    JsonBodyHandler.INSTANCE,
+                    response -> {
+                        if (response.statusCode() == 200) {
+                            return twikeyClient.getJsonCodec().document(response.body().nextValueStream(), response.headers().firstValue("x-state").orElse(null));
+                        } else {
+                            throw new TwikeyClient.UserException(apiError(response));
+                        }
+                    }));
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#update(DocumentRequests.UpdateMandateRequest)}
+     *
+     * @param update An object representing the payload to send.
+     * @return future completing when the update was accepted
+     */
+    public CompletableFuture<Void> update(DocumentRequests.UpdateMandateRequest update) {
+        Map<String, String> requestMap = update.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/update"))
+                        .timeout(Duration.of(10, SECONDS))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 204) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    twikeyClient.invalidate(EndpointFamily.MANDATE, requestMap.get("mndtId"));
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#customerAccess(String)}
+     *
+     * @param mandateNumber The mandate to provide access to.
+     * @return future with the {@link DocumentResponse.CustomerAccessResponse}
+     */
+    public CompletableFuture<DocumentResponse.CustomerAccessResponse> customerAccess(String mandateNumber) {
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/customeraccess"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString("mndtId=%s".formatted(mandateNumber)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        JSONObject json = new JSONObject(new JSONTokener(response.body().nextValueStream()));
+                        return DocumentResponse.CustomerAccessResponse.fromJson(json);
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#retrievePdf(String)}
+     *
+     * @param mandateNumber A unique identifier for a mandate.
+     * @return future with the {@link DocumentResponse.PdfResponse}
+     */
+    public CompletableFuture<DocumentResponse.PdfResponse> retrievePdf(String mandateNumber) {
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/pdf?mndtId=" + mandateNumber))
+                        .header("Accept", "application/pdf")
+                        .headers("User-Agent", twikeyClient.getUserAgent())
+                        .headers("Authorization", sessionToken)
+                        .GET()
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray(),
+                response -> {
+                    if (response.statusCode() == 200) {
+                        String filename = ResponseUtils.extractFilenameFromContentDisposition(response.headers())
+                                .orElse(mandateNumber + ".pdf");
+                        return new DocumentResponse.PdfResponse(response.body(), filename);
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#uploadPdf(DocumentRequests.UploadPdfRequest)}
+     *
+     * @param pdfRequest An object representing the payload for the request containing the file.
+     * @return future completing when the pdf was accepted
+     */
+    public CompletableFuture<Void> uploadPdf(DocumentRequests.UploadPdfRequest pdfRequest) {
+        String postData = getPostDataString(Map.of("mndtId", pdfRequest.mndtId(), "bankSignature", String.valueOf(pdfRequest.bankSignature())));
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/pdf?%s".formatted(postData)))
+                        .headers("Content-Type", HTTP_APPLICATION_PDF)
+                        .headers("User-Agent", twikeyClient.getUserAgent())
+                        .headers("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofFile(Path.of(pdfRequest.pdfPath())))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 200) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link DocumentGateway#feed(DocumentCallback)}
+     *
+     * @param mandateCallback Callback for every change
+     * @return future completing when the feed was drained
+     */
+    public CompletableFuture<Void> feed(DocumentCallback mandateCallback) {
+        return twikeyClient.document().newFeed().drainAsync(event -> DocumentGateway.dispatch(event, mandateCallback));
+    }
+
+    /**
+     * Publisher variant of {@link DocumentGateway#feedStream()}, the next page is only fetched while the subscriber has outstanding demand
+     * so a slow subscriber isn't flooded. As the api considers a page delivered once it was fetched, entries of the
+     * current page that weren't requested when the subscription is cancelled aren't returned again.
+     *
+     * @return publisher completing once the feed is drained
+     */
+    public Flow.Publisher<DocumentResponse.Event> feedPublisher() {
+        return twikeyClient.document().newFeed().publisher();
+    }
+
+    private static DocumentResponse.MandateCreationResponse toMandateCreationResponse(HttpResponse<JsonReader> response) throws TwikeyClient.UserException {
+        if (response.statusCode() == 200) {
+            return DocumentResponse.MandateCreationResponse.fromJson(new JSONObject(new JSONTokener(response.body().nextValueStream())));
+        } else {
+            throw new TwikeyClient.UserException(apiError(response));
+        }
+    }
+}
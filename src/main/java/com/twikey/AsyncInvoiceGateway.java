@@ -0,0 +1,284 @@
+package com.twikey;
+
+import com.twikey.callback.InvoiceCallback;
+import com.twikey.callback.PaymentCallback;
+import com.twikey.modal.InvoiceRequests;
+import com.twikey.modal.InvoiceResponse;
+import com.twikey.modal.JsonReader;
+import com.twikey.modal.ResponseUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static com.twikey.TwikeyClient.*;
+
+public class AsyncInvoiceGateway {
+
+    private final TwikeyClient twikeyClient;
+
+    protected AsyncInvoiceGateway(TwikeyClient twikeyClient) {
+        this.twikeyClient = twikeyClient;
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#create(InvoiceRequests.CreateInvoiceRequest)}
+     *
+     * @param create A map containing all the information to create that invoice
+     * @return future with the created {@link InvoiceResponse.Invoice}
+     */
+    public CompletableFuture<InvoiceResponse.Invoice> create(InvoiceRequests.CreateInvoiceRequest create) {
+        String body = twikeyClient.getJsonCodec().write(create);
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/invoice"))
+                        .header("Content-Type", HTTP_APPLICATION_JSON)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                this::toInvoice);
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#update(InvoiceRequests.UpdateInvoiceRequest)}
+     *
+     * @param update A request model containing the payload with updated invoice fields.
+     * @return future with the updated {@link InvoiceResponse.Invoice}
+     */
+    public CompletableFuture<InvoiceResponse.Invoice> update(InvoiceRequests.UpdateInvoiceRequest update) {
+        JSONObject requestMap = update.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/%s".formatted(requestMap.get("id"))))
+                        .header("Content-Type", HTTP_APPLICATION_JSON)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .PUT(HttpRequest.BodyPublishers.ofString(String.valueOf(requestMap)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    InvoiceResponse.Invoice invoice = toInvoice(response);
+                    twikeyClient.invalidate(EndpointFamily.INVOICE, requestMap.optString("id", null), invoice.getId(), invoice.getNumber());
+                    return invoice;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#delete(String)}
+     *
+     * @param delete The unique identifier of the invoice to cancel.
+     * @return future completing when the invoice was removed
+     */
+    public CompletableFuture<Void> delete(String delete) {
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/%s".formatted(delete))).DELETE()
+                        .header("Content-Type", HTTP_APPLICATION_JSON)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 204) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    twikeyClient.invalidate(EndpointFamily.INVOICE, delete);
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#details(InvoiceRequests.InvoiceDetailRequest)}
+     *
+     * @param details the information required to identify the invoice.
+     * @return future with the {@link InvoiceResponse.Invoice}
+     */
+    public CompletableFuture<InvoiceResponse.Invoice> details(InvoiceRequests.InvoiceDetailRequest details) {
+        Map<String, String> params = details.toRequest();
+        return twikeyClient.lookupAsync("/invoice/%s?%s".formatted(params.get("invoice"), params.get("include")), invoice -> Arrays.asList(invoice.getId(), invoice.getNumber()), uri -> twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(uri)
+                            .header("Content-Type", HTTP_APPLICATION_JSON)
+                            .header("User-Agent", twikeyClient.getUserAgent())
+                            .header("Authorization", sessionToken)
+                            .GET()
+                            .build(),
+                    JsonBodyHandler.INSTANCE,
+                    this::toInvoice));
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#action(InvoiceRequests.InvoiceActionRequest)}
+     *
+     * @param action The action request containing the invoice ID and the type of action to perform.
+     * @return future completing when the action was accepted
+     */
+    public CompletableFuture<Void> action(InvoiceRequests.InvoiceActionRequest action) {
+        Map<String, String> params = action.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/%s/action".formatted(params.get("id"))))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 204) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    twikeyClient.invalidate(EndpointFamily.INVOICE, params.get("id"));
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#uploadUbl(InvoiceRequests.UblUploadRequest)}
+     *
+     * @param ubl An object representing the payload for the request containing the UBL file.
+     * @return future with the created {@link InvoiceResponse.Invoice}
+     */
+    public CompletableFuture<InvoiceResponse.Invoice> uploadUbl(InvoiceRequests.UblUploadRequest ubl) {
+        Map<String, String> headers = ubl.toHeaders();
+        return twikeyClient.sendAsync(sessionToken -> {
+                    HttpRequest.Builder builder = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/ubl"))
+                            .header("User-Agent", twikeyClient.getUserAgent())
+                            .header("Authorization", sessionToken)
+                            .POST(HttpRequest.BodyPublishers.ofFile(Path.of(ubl.getXmlPath())));
+                    for (Map.Entry<String, String> entry : headers.entrySet()) {
+                        builder.header(entry.getKey(), entry.getValue());
+                    }
+                    return builder.build();
+                },
+                JsonBodyHandler.INSTANCE,
+                this::toInvoice);
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#createBatch(InvoiceRequests.BulkInvoiceRequest)}
+     *
+     * @param batch A BulkInvoiceRequest object containing a list of invoice requests.
+     * @return future with the batchId of the created batch.
+     */
+    public CompletableFuture<String> createBatch(InvoiceRequests.BulkInvoiceRequest batch) {
+        JSONArray jsonArray = batch.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/bulk"))
+                        .header("Content-Type", HTTP_APPLICATION_JSON)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(String.valueOf(jsonArray)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        return new JSONObject(new JSONTokener(response.body().nextValueStream())).getString("batchId");
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#batchDetails(String)}
+     *
+     * @param batchId The unique batch ID returned when the bulk invoice upload was created.
+     * @return future with the {@link InvoiceResponse.BulkInvoiceDetail}
+     */
+    public CompletableFuture<InvoiceResponse.BulkInvoiceDetail> batchDetails(String batchId) {
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/bulk?batchId=%s".formatted(batchId)))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .GET()
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        JSONArray array = new JSONArray(new JSONTokener(response.body().nextValueStream()));
+                        return InvoiceResponse.BulkInvoiceDetail.fromJson(batchId, array);
+                    } else if (response.statusCode() == 409) {
+                        return InvoiceResponse.BulkInvoiceDetail.PENDING;
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#feed(InvoiceCallback, String...)}
+     *
+     * @param invoiceCallback Callback for every change
+     * @param sideloads       items to include in the sideloading
+     * @return future completing when the feed was drained
+     */
+    public CompletableFuture<Void> feed(InvoiceCallback invoiceCallback, String... sideloads) {
+        return twikeyClient.invoice().newFeed(sideloads).drainAsync(invoiceCallback::invoice);
+    }
+
+    /**
+     * Publisher variant of {@link InvoiceGateway#feedStream(String...)}, the next page is only fetched while the subscriber has outstanding demand
+     * so a slow subscriber isn't flooded. As the api considers a page delivered once it was fetched, entries of the
+     * current page that weren't requested when the subscription is cancelled aren't returned again.
+     *
+     * @param sideloads items to include in the sideloading
+     * @return publisher completing once the feed is drained
+     */
+    public Flow.Publisher<InvoiceResponse.Invoice> feedPublisher(String... sideloads) {
+        return twikeyClient.invoice().newFeed(sideloads).publisher();
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#payment(PaymentCallback)}
+     *
+     * @param paymentCallback Callback for every payment
+     * @return future completing when the feed was drained
+     */
+    public CompletableFuture<Void> payment(PaymentCallback paymentCallback) {
+        return twikeyClient.invoice().newPaymentFeed().drainAsync(paymentCallback::payment);
+    }
+
+    /**
+     * Publisher variant of {@link InvoiceGateway#paymentStream()}, the next page is only fetched while the subscriber has outstanding demand
+     * so a slow subscriber isn't flooded. As the api considers a page delivered once it was fetched, entries of the
+     * current page that weren't requested when the subscription is cancelled aren't returned again.
+     *
+     * @return publisher completing once the feed is drained
+     */
+    public Flow.Publisher<InvoiceResponse.Event> paymentPublisher() {
+        return twikeyClient.invoice().newPaymentFeed().publisher();
+    }
+
+    /**
+     * Non-blocking variant of {@link InvoiceGateway#pdf(InvoiceRequests.InvoicePdfRequest)}, the future completes
+     * as soon as the headers are received, the content is streamed while reading it.
+     *
+     * @param request An {@link InvoiceRequests.InvoicePdfRequest} containing the invoice UUID.
+     * @return future with the {@link InvoiceResponse.Pdf}
+     */
+    public CompletableFuture<InvoiceResponse.Pdf> pdf(InvoiceRequests.InvoicePdfRequest request) {
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/%s/pdf".formatted(request.id())))
+                        .header("Accept", "application/pdf")
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .GET()
+                        .build(),
+                HttpResponse.BodyHandlers.ofInputStream(),
+                response -> {
+                    if (response.statusCode() == 200) {
+                        String filename = ResponseUtils.extractFilenameFromContentDisposition(response.headers())
+                                .orElse(request.id() + ".pdf");
+                        return new InvoiceResponse.Pdf(response.body(), filename);
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    private InvoiceResponse.Invoice toInvoice(HttpResponse<JsonReader> response) throws TwikeyClient.UserException {
+        if (response.statusCode() == 200) {
+            return twikeyClient.getJsonCodec().invoice(response.body().nextValueStream());
+        } else {
+            throw new TwikeyClient.UserException(apiError(response));
+        }
+    }
+}
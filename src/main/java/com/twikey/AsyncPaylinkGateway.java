@@ -0,0 +1,78 @@
+package com.twikey;
+
+import com.twikey.callback.PaylinkCallback;
+import com.twikey.modal.JsonReader;
+import com.twikey.modal.PaylinkRequests;
+import com.twikey.modal.PaylinkResponse;
+
+import java.net.http.HttpRequest;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static com.twikey.TwikeyClient.HTTP_FORM_ENCODED;
+import static com.twikey.TwikeyClient.apiError;
+import static com.twikey.TwikeyClient.getPostDataString;
+
+public class AsyncPaylinkGateway {
+
+    private final TwikeyClient twikeyClient;
+
+    protected AsyncPaylinkGateway(TwikeyClient twikeyClient) {
+        this.twikeyClient = twikeyClient;
+    }
+
+    /**
+     * Non-blocking variant of {@link PaylinkGateway#create(PaylinkRequests.PaylinkRequest)}
+     *
+     * @param paylinkRequest the link to create
+     * @return future with the created {@link PaylinkResponse.Paylink}
+     */
+    public CompletableFuture<PaylinkResponse.Paylink> create(PaylinkRequests.PaylinkRequest paylinkRequest) {
+        return createPaylink(paylinkRequest).thenApply(json -> twikeyClient.getJsonCodec().paylink(json.nextValueStream()));
+    }
+
+    /**
+     * @return future with the body of the created link, shared with the deprecated map based variant
+     */
+    CompletableFuture<JsonReader> createPaylink(PaylinkRequests.PaylinkRequest paylinkRequest) {
+        Map<String, String> params = paylinkRequest.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/payment/link"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        return response.body();
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link PaylinkGateway#feed(PaylinkCallback, String...)}
+     *
+     * @param callback  Callback for every change
+     * @param sideloads items to include in the sideloading
+     * @return future completing when the feed was drained
+     */
+    public CompletableFuture<Void> feed(PaylinkCallback callback, String... sideloads) {
+        return twikeyClient.paylink().newCallbackFeed(sideloads).drainAsync(json -> PaylinkGateway.dispatch(json, callback));
+    }
+
+    /**
+     * Publisher variant of {@link PaylinkGateway#feedStream(String...)}, the next page is only fetched while the subscriber has outstanding demand
+     * so a slow subscriber isn't flooded. As the api considers a page delivered once it was fetched, entries of the
+     * current page that weren't requested when the subscription is cancelled aren't returned again.
+     *
+     * @param sideloads items to include in the sideloading
+     * @return publisher completing once the feed is drained
+     */
+    public Flow.Publisher<PaylinkResponse.Paylink> feedPublisher(String... sideloads) {
+        return twikeyClient.paylink().newFeed(sideloads).publisher();
+    }
+}
@@ -0,0 +1,223 @@
+package com.twikey;
+
+import com.twikey.callback.RefundCallback;
+import com.twikey.modal.JsonReader;
+import com.twikey.modal.RefundRequests;
+import com.twikey.modal.RefundResponse;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static com.twikey.TwikeyClient.HTTP_FORM_ENCODED;
+import static com.twikey.TwikeyClient.apiError;
+import static com.twikey.TwikeyClient.getPostDataString;
+
+public class AsyncRefundGateway {
+
+    private final TwikeyClient twikeyClient;
+
+    protected AsyncRefundGateway(TwikeyClient twikeyClient) {
+        this.twikeyClient = twikeyClient;
+    }
+
+    /**
+     * Non-blocking variant of {@link RefundGateway#create(RefundRequests.NewCreditTransferRequest)}
+     *
+     * @param refundRequest the credit transfer to create
+     * @return future with the created {@link RefundResponse.Refund}
+     */
+    public CompletableFuture<RefundResponse.Refund> create(RefundRequests.NewCreditTransferRequest refundRequest) {
+        Map<String, String> params = refundRequest.toRequestMap();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transfer"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                // a client reference allows the api to detect duplicates, so only then it's safe to retry
+                params.containsKey("ref"),
+                response -> {
+                    if (response.statusCode() == 200) {
+                        return twikeyClient.getJsonCodec().refund(response.body().select("Entries").nextValueStream());
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link RefundGateway#details(String)}
+     */
+    public CompletableFuture<RefundResponse.Refund> details(String id) {
+        return twikeyClient.lookupAsync("/transfer/detail?%s".formatted(id), refund -> Arrays.asList(refund.getId(), refund.getRef()), uri -> twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(uri)
+                            .header("Content-Type", HTTP_FORM_ENCODED)
+                            .header("User-Agent", twikeyClient.getUserAgent())
+                            .header("Authorization", sessionToken)
+                            .GET()
+                            .build(),
+                    JsonBodyHandler.INSTANCE,
+                    response -> {
+                        if (response.statusCode() == 200) {
+                            return twikeyClient.getJsonCodec().refund(response.body().nextValueStream());
+                        } else {
+                            throw new TwikeyClient.UserException(apiError(response));
+                        }
+                    }));
+    }
+
+    /**
+     * Non-blocking variant of {@link RefundGateway#remove(String)}
+     */
+    public CompletableFuture<Void> remove(String id) {
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transfer?%s".formatted(id)))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .DELETE()
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 204) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link RefundGateway#createBatch(RefundRequests.CompleteCreditTransferRequest)}
+     */
+    public CompletableFuture<RefundResponse.CreditTransferResponse> createBatch(RefundRequests.CompleteCreditTransferRequest createBatchRequest) {
+        Map<String, String> params = createBatchRequest.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transfer/complete"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                AsyncRefundGateway::toCreditTransfer);
+    }
+
+    /**
+     * Non-blocking variant of {@link RefundGateway#batchDetails(RefundRequests.CompleteCreditTransferDetailsRequest)}
+     */
+    public CompletableFuture<RefundResponse.CreditTransferResponse> batchDetails(RefundRequests.CompleteCreditTransferDetailsRequest batchRequest) {
+        Map<String, String> params = batchRequest.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transfer/complete?%s".formatted(getPostDataString(params))))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .GET()
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                AsyncRefundGateway::toCreditTransfer);
+    }
+
+    /**
+     * Non-blocking variant of {@link RefundGateway#createBeneficiaryAccount(RefundRequests.AddBeneficiaryRequest)}
+     *
+     * @param beneficiary the beneficiary to add
+     * @return future with the {@link RefundResponse.AddBeneficiaryResponse}
+     */
+    public CompletableFuture<RefundResponse.AddBeneficiaryResponse> createBeneficiaryAccount(RefundRequests.AddBeneficiaryRequest beneficiary) {
+        Map<String, String> params = beneficiary.toRequestMap();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transfers/beneficiaries"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        JSONObject json = new JSONObject(new JSONTokener(response.body().nextValueStream()));
+                        return RefundResponse.AddBeneficiaryResponse.fromJson(json);
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link RefundGateway#getBeneficiaries(Boolean)}
+     */
+    public CompletableFuture<List<RefundResponse.AddBeneficiaryResponse>> getBeneficiaries(Boolean withAddress) {
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transfer/beneficiaries?withAddress=%s".formatted(withAddress)))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .GET()
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        JSONObject json = new JSONObject(new JSONTokener(response.body().nextValueStream()));
+                        return RefundResponse.AddBeneficiaryResponse.fromQuery(json);
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link RefundGateway#disableBeneficiary(RefundRequests.DisableBeneficiaryRequest)}
+     */
+    public CompletableFuture<Void> disableBeneficiary(RefundRequests.DisableBeneficiaryRequest beneficiaryRequest) {
+        Map<String, String> params = beneficiaryRequest.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transfer/beneficiaries?%s".formatted(getPostDataString(params))))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .DELETE()
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 204) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link RefundGateway#feed(RefundCallback, String...)}
+     *
+     * @param callback  Callback for every refund
+     * @param sideloads items to include in the sideloading
+     * @return future completing when the feed was drained
+     */
+    public CompletableFuture<Void> feed(RefundCallback callback, String... sideloads) {
+        RefundGateway refunds = twikeyClient.refund();
+        return refunds.newCallbackFeed(sideloads).drainAsync(json -> refunds.dispatch(json, callback));
+    }
+
+    /**
+     * Publisher variant of {@link RefundGateway#feedStream(String...)}, the next page is only fetched while the subscriber has outstanding demand
+     * so a slow subscriber isn't flooded. As the api considers a page delivered once it was fetched, entries of the
+     * current page that weren't requested when the subscription is cancelled aren't returned again.
+     *
+     * @param sideloads items to include in the sideloading
+     * @return publisher completing once the feed is drained
+     */
+    public Flow.Publisher<RefundResponse.Refund> feedPublisher(String... sideloads) {
+        return twikeyClient.refund().newFeed(sideloads).publisher();
+    }
+
+    private static RefundResponse.CreditTransferResponse toCreditTransfer(HttpResponse<JsonReader> response) throws TwikeyClient.UserException {
+        if (response.statusCode() == 200) {
+            JSONObject json = new JSONObject(new JSONTokener(response.body().nextValueStream()));
+            return RefundResponse.CreditTransferResponse.fromJson(json.getJSONArray("CreditTransfers").getJSONObject(0));
+        } else {
+            throw new TwikeyClient.UserException(apiError(response));
+        }
+    }
+}
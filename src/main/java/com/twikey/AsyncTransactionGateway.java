@@ -0,0 +1,222 @@
+package com.twikey;
+
+import com.twikey.callback.TransactionCallback;
+import com.twikey.modal.TransactionRequests;
+import com.twikey.modal.TransactionResponse;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.net.http.HttpRequest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import static com.twikey.TwikeyClient.HTTP_FORM_ENCODED;
+import static com.twikey.TwikeyClient.apiError;
+import static com.twikey.TwikeyClient.getPostDataString;
+
+public class AsyncTransactionGateway {
+
+    private final TwikeyClient twikeyClient;
+
+    protected AsyncTransactionGateway(TwikeyClient twikeyClient) {
+        this.twikeyClient = twikeyClient;
+    }
+
+    /**
+     * Non-blocking variant of {@link TransactionGateway#create(TransactionRequests.NewTransactionRequest)}
+     *
+     * @param newTransactionRequest an object representing the payload to send
+     * @return future with the created {@link TransactionResponse.Transaction}
+     */
+    public CompletableFuture<TransactionResponse.Transaction> create(TransactionRequests.NewTransactionRequest newTransactionRequest) {
+        Map<String, String> tx = newTransactionRequest.toRequestMap();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transaction"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(tx)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                // a client reference allows the api to detect duplicates, so only then it's safe to retry
+                tx.containsKey("ref"),
+                response -> {
+                    if (response.statusCode() == 200) {
+                        return twikeyClient.getJsonCodec().transaction(response.body().select("Entries").nextValueStream());
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link TransactionGateway#status(TransactionRequests.StatusRequest)}
+     *
+     * @param newTransactionRequest an object representing information for identifying the transaction
+     * @return future with the {@link TransactionResponse.Transaction}
+     */
+    public CompletableFuture<TransactionResponse.Transaction> status(TransactionRequests.StatusRequest newTransactionRequest) {
+        String tx = getPostDataString(newTransactionRequest.toParams()) + newTransactionRequest.toInclude();
+        return twikeyClient.lookupAsync("/transaction/detail?%s".formatted(tx), transaction -> Arrays.asList(String.valueOf(transaction.getId()), transaction.getRef(), transaction.getMndtId()), uri -> twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(uri)
+                            .header("Content-Type", HTTP_FORM_ENCODED)
+                            .header("User-Agent", twikeyClient.getUserAgent())
+                            .header("Authorization", sessionToken)
+                            .build(),
+                    JsonBodyHandler.INSTANCE,
+                    response -> {
+                        if (response.statusCode() == 200) {
+                            return twikeyClient.getJsonCodec().transaction(response.body().select("Entries").nextValueStream());
+                        } else {
+                            throw new TwikeyClient.UserException(apiError(response));
+                        }
+                    }));
+    }
+
+    /**
+     * Non-blocking variant of {@link TransactionGateway#action(TransactionRequests.ActionRequest)}
+     *
+     * @param action the {@link TransactionRequests.ActionRequest} containing the transaction ID and action
+     * @return future completing when the action was accepted
+     */
+    public CompletableFuture<Void> action(TransactionRequests.ActionRequest action) {
+        Map<String, String> requestMap = action.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transaction/action"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 204) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    twikeyClient.invalidate(EndpointFamily.TRANSACTION, requestMap.get("id"));
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link TransactionGateway#update(TransactionRequests.UpdateTransactionRequest)}
+     *
+     * @param update the {@link TransactionRequests.UpdateTransactionRequest} containing the transaction details to update
+     * @return future completing when the update was accepted
+     */
+    public CompletableFuture<Void> update(TransactionRequests.UpdateTransactionRequest update) {
+        Map<String, String> requestMap = update.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transaction"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .PUT(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 204) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    twikeyClient.invalidate(EndpointFamily.TRANSACTION, requestMap.get("id"), requestMap.get("ref"));
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link TransactionGateway#refund(TransactionRequests.RefundRequest)}
+     *
+     * @param refundRequest the {@link TransactionRequests.RefundRequest} containing the refund payload.
+     * @return future with the {@link TransactionResponse.Refund}
+     */
+    public CompletableFuture<TransactionResponse.Refund> refund(TransactionRequests.RefundRequest refundRequest) {
+        Map<String, String> requestMap = refundRequest.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transaction/refund"))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        JSONObject json = new JSONObject(new JSONTokener(response.body().nextValueStream()));
+                        return TransactionResponse.Refund.fromJson(json.getJSONArray("Entries").getJSONObject(0));
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link TransactionGateway#delete(TransactionRequests.RemoveTransactionRequest)}
+     *
+     * @param delete the {@link TransactionRequests.RemoveTransactionRequest} containing information to identify the transaction.
+     * @return future completing when the transaction was removed
+     */
+    public CompletableFuture<Void> delete(TransactionRequests.RemoveTransactionRequest delete) {
+        Map<String, String> requestMap = delete.toRequest();
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transaction?%s".formatted(getPostDataString(requestMap))))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .DELETE()
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() != 204) {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                    twikeyClient.invalidate(EndpointFamily.TRANSACTION, requestMap.get("id"), requestMap.get("ref"));
+                    return null;
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link TransactionGateway#query(TransactionRequests.QueryRequest)}
+     *
+     * @param newTransactionRequest the {@link TransactionRequests.QueryRequest} representing the request payload
+     * @return future with the matching transactions
+     */
+    public CompletableFuture<List<TransactionResponse.Transaction>> query(TransactionRequests.QueryRequest newTransactionRequest) {
+        String tx = getPostDataString(newTransactionRequest.toRequest());
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl("/transaction/query?%s".formatted(tx)))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .GET()
+                        .build(),
+                JsonBodyHandler.INSTANCE,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        JSONObject json = new JSONObject(new JSONTokener(response.body().nextValueStream()));
+                        return TransactionResponse.Transaction.fromQuery(json);
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * Non-blocking variant of {@link TransactionGateway#feed(TransactionCallback, String...)}, the next page is
+     * only requested once the callback handled all entries of the previous one.
+     *
+     * @param callback  Callback for every change
+     * @param sideloads items to include in the sideloading
+     * @return future completing when the feed was drained
+     */
+    public CompletableFuture<Void> feed(TransactionCallback callback, String... sideloads) {
+        return twikeyClient.transaction().newFeed(sideloads).drainAsync(callback::transaction);
+    }
+
+    /**
+     * Publisher variant of {@link TransactionGateway#feedStream(String...)}, the next page is only fetched while the subscriber has outstanding demand
+     * so a slow subscriber isn't flooded. As the api considers a page delivered once it was fetched, entries of the
+     * current page that weren't requested when the subscription is cancelled aren't returned again.
+     *
+     * @param sideloads items to include in the sideloading
+     * @return publisher completing once the feed is drained
+     */
+    public Flow.Publisher<TransactionResponse.Transaction> feedPublisher(String... sideloads) {
+        return twikeyClient.transaction().newFeed(sideloads).publisher();
+    }
+}
@@ -0,0 +1,50 @@
+package com.twikey;
+
+/**
+ * Non-blocking view on a {@link TwikeyClient}, sharing its configuration and session.
+ *
+ * <pre>
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey);
+ * twikeyClient.async().transaction().create(request)
+ *      .thenAccept(tx -&gt; System.out.println(tx.getId()));
+ * </pre>
+ *
+ * Failures are reported through the returned future with the same exceptions as the blocking api
+ * ({@link java.io.IOException} or {@link TwikeyClient.UserException}) as cause.
+ */
+public class AsyncTwikeyClient {
+
+    private final AsyncDocumentGateway documentGateway;
+    private final AsyncInvoiceGateway invoiceGateway;
+    private final AsyncTransactionGateway transactionGateway;
+    private final AsyncPaylinkGateway paylinkGateway;
+    private final AsyncRefundGateway refundGateway;
+
+    protected AsyncTwikeyClient(TwikeyClient twikeyClient) {
+        this.documentGateway = new AsyncDocumentGateway(twikeyClient);
+        this.invoiceGateway = new AsyncInvoiceGateway(twikeyClient);
+        this.transactionGateway = new AsyncTransactionGateway(twikeyClient);
+        this.paylinkGateway = new AsyncPaylinkGateway(twikeyClient);
+        this.refundGateway = new AsyncRefundGateway(twikeyClient);
+    }
+
+    public AsyncDocumentGateway document() {
+        return documentGateway;
+    }
+
+    public AsyncInvoiceGateway invoice() {
+        return invoiceGateway;
+    }
+
+    public AsyncTransactionGateway transaction() {
+        return transactionGateway;
+    }
+
+    public AsyncPaylinkGateway paylink() {
+        return paylinkGateway;
+    }
+
+    public AsyncRefundGateway refund() {
+        return refundGateway;
+    }
+}
@@ -0,0 +1,279 @@
+package com.twikey;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Circuit breaker per {@link EndpointFamily}. While the api keeps failing (I/O errors or 5xx responses) for a family,
+ * the breaker opens and calls to that family fail fast with an {@link OpenException} instead of waiting on a
+ * degraded api. After the open duration a limited number of probe calls is let through (half-open), if those
+ * succeed the breaker closes again, otherwise it reopens.
+ *
+ * <pre>
+ * CircuitBreaker circuitBreaker = new CircuitBreaker()
+ *      .withFailureRateThreshold(0.5)          // open when half of the calls fail
+ *      .withWindow(20, 10)                     // of the last 20 calls, with at least 10 calls
+ *      .withOpenDuration(Duration.ofSeconds(30));
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey).withCircuitBreaker(circuitBreaker);
+ * </pre>
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final Map<EndpointFamily, Breaker> breakers = new EnumMap<>(EndpointFamily.class);
+
+    private double failureRateThreshold = 0.5;
+    private int windowSize = 20;
+    private int minimumCalls = 10;
+    private long openDuration = Duration.ofSeconds(30).toNanos();
+    private int halfOpenCalls = 1;
+
+    public CircuitBreaker() {
+        for (EndpointFamily family : EndpointFamily.values()) {
+            breakers.put(family, new Breaker());
+        }
+    }
+
+    /**
+     * @param failureRateThreshold fraction of failed calls in the window that opens the breaker (default 0.5)
+     */
+    public CircuitBreaker withFailureRateThreshold(double failureRateThreshold) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+            throw new IllegalArgumentException("Invalid failure rate " + failureRateThreshold);
+        }
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    /**
+     * @param windowSize   number of most recent calls considered (default 20)
+     * @param minimumCalls number of calls required before the breaker can open (default 10)
+     */
+    public CircuitBreaker withWindow(int windowSize, int minimumCalls) {
+        if (minimumCalls < 1 || windowSize < minimumCalls) {
+            throw new IllegalArgumentException("Invalid window %d with minimum %d".formatted(windowSize, minimumCalls));
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    /**
+     * @param openDuration time calls fail fast before probing the api again (default 30s)
+     */
+    public CircuitBreaker withOpenDuration(Duration openDuration) {
+        if (openDuration.isNegative()) {
+            throw new IllegalArgumentException("Invalid open duration " + openDuration);
+        }
+        this.openDuration = openDuration.toNanos();
+        return this;
+    }
+
+    /**
+     * @param halfOpenCalls number of probe calls let through after the open duration (default 1)
+     */
+    public CircuitBreaker withHalfOpenCalls(int halfOpenCalls) {
+        if (halfOpenCalls < 1) {
+            throw new IllegalArgumentException("At least 1 probe call is required");
+        }
+        this.halfOpenCalls = halfOpenCalls;
+        return this;
+    }
+
+    /**
+     * @return the current state of the breaker for the family
+     */
+    public State getState(EndpointFamily family) {
+        return breakers.get(family).getState();
+    }
+
+    /**
+     * @param family family of the endpoint being called
+     * @param call   sends the request
+     * @return future with the response or failing with an {@link OpenException} when the breaker is open
+     */
+    <T> CompletableFuture<HttpResponse<T>> run(EndpointFamily family, Supplier<CompletableFuture<HttpResponse<T>>> call) {
+        Breaker breaker = breakers.get(family);
+        long generation = breaker.tryAcquire();
+        if (generation < 0) {
+            return CompletableFuture.failedFuture(new OpenException(family));
+        }
+        CompletableFuture<HttpResponse<T>> response;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            breaker.onResult(generation, null, e);
+            throw e;
+        }
+        // the outcome is recorded before the caller sees the response
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        response.whenComplete((r, t) -> {
+            breaker.onResult(generation, r, t);
+            if (t != null) {
+                result.completeExceptionally(t);
+            } else {
+                result.complete(r);
+            }
+        });
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) {
+                response.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Thrown when calls to a family of endpoints are rejected as the api was failing
+     */
+    public static class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final EndpointFamily family;
+
+        public OpenException(EndpointFamily family) {
+            super("Circuit breaker open for " + family);
+            this.family = family;
+        }
+
+        public EndpointFamily getFamily() {
+            return family;
+        }
+    }
+
+    static boolean isFailure(HttpResponse<?> response, Throwable failure) {
+        if (failure != null) {
+            return failure instanceof IOException && !(failure instanceof OpenException);
+        }
+        return response.statusCode() >= 500;
+    }
+
+    private class Breaker {
+        private final ReentrantLock lock = new ReentrantLock();
+        private State state = State.CLOSED;
+        // bumped on every state change so results of calls admitted in an earlier state are ignored
+        private long generation;
+        private boolean[] outcomes;
+        private int index;
+        private int calls;
+        private int failures;
+        private long openedAt;
+        private int probesInFlight;
+        private int probesSucceeded;
+
+        State getState() {
+            lock.lock();
+            try {
+                return state;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return the generation the call was admitted in or -1 when rejected
+         */
+        long tryAcquire() {
+            lock.lock();
+            try {
+                if (state == State.OPEN && System.nanoTime() - openedAt >= openDuration) {
+                    transition(State.HALF_OPEN);
+                }
+                switch (state) {
+                    case CLOSED:
+                        return generation;
+                    case HALF_OPEN:
+                        if (probesInFlight < halfOpenCalls) {
+                            probesInFlight++;
+                            return generation;
+                        }
+                        return -1;
+                    default:
+                        return -1;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onResult(long admittedIn, HttpResponse<?> response, Throwable failure) {
+            if (failure instanceof CompletionException && failure.getCause() != null) {
+                failure = failure.getCause();
+            }
+            boolean failed = isFailure(response, failure);
+            // cancelled calls (or bugs) say nothing about the health of the api
+            boolean ignored = !failed && response == null;
+            lock.lock();
+            try {
+                if (admittedIn != generation) {
+                    return;
+                }
+                if (state == State.HALF_OPEN) {
+                    probesInFlight--;
+                    if (failed) {
+                        transition(State.OPEN);
+                    } else if (!ignored && ++probesSucceeded >= halfOpenCalls) {
+                        transition(State.CLOSED);
+                    }
+                } else if (state == State.CLOSED && !ignored) {
+                    record(failed);
+                    if (calls >= minimumCalls && failures >= failureRateThreshold * calls) {
+                        transition(State.OPEN);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void record(boolean failed) {
+            if (outcomes == null) {
+                outcomes = new boolean[windowSize];
+            }
+            if (calls == outcomes.length) {
+                if (outcomes[index]) {
+                    failures--;
+                }
+            } else {
+                calls++;
+            }
+            outcomes[index] = failed;
+            if (failed) {
+                failures++;
+            }
+            index = (index + 1) % outcomes.length;
+        }
+
+        private void transition(State next) {
+            state = next;
+            generation++;
+            switch (next) {
+                case OPEN:
+                    openedAt = System.nanoTime();
+                    break;
+                case HALF_OPEN:
+                    probesInFlight = 0;
+                    probesSucceeded = 0;
+                    break;
+                case CLOSED:
+                    outcomes = null;
+                    index = 0;
+                    calls = 0;
+                    failures = 0;
+                    break;
+            }
+        }
+    }
+}
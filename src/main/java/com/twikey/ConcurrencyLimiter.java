@@ -0,0 +1,243 @@
+package com.twikey;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive limit on the number of requests in flight, inspired by TCP-Vegas/AIMD. The limit grows by one per
+ * round-trip while the latency stays close to the lowest latency observed and is cut multiplicatively when
+ * latency rises or the api signals overload (timeouts, connection failures, 429 or 5xx). Requests beyond the
+ * limit are queued (in order of arrival) until a request completes.
+ *
+ * <pre>
+ * ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(); // between 1 and 200, starting at 20
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey).withConcurrencyLimiter(concurrencyLimiter);
+ * </pre>
+ */
+public class ConcurrencyLimiter {
+
+    private static final long MIN_RTT_WINDOW = TimeUnit.SECONDS.toNanos(30);
+    /**
+     * Marker for a slot that was handed out but never used, it doesn't influence the limit
+     */
+    private static final Throwable CANCELLED = new CancellationException();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<CompletableFuture<Permit>> waiting = new ArrayDeque<>();
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+    private long minRtt = Long.MAX_VALUE;
+    private long minRttSince = System.nanoTime();
+    private long lastDecrease = System.nanoTime();
+
+    /**
+     * Limit between 1 and 200 requests, starting at 20
+     */
+    public ConcurrencyLimiter() {
+        this(20, 1, 200);
+    }
+
+    /**
+     * @param initialLimit number of requests allowed in flight at start
+     * @param minLimit     lower bound of the limit
+     * @param maxLimit     upper bound of the limit
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, 2.0, 0.9);
+    }
+
+    /**
+     * @param initialLimit     number of requests allowed in flight at start
+     * @param minLimit         lower bound of the limit
+     * @param maxLimit         upper bound of the limit
+     * @param latencyTolerance how much slower than the lowest latency a request can be before backing off (eg. 2.0)
+     * @param backoffRatio     factor applied to the limit when backing off (eg. 0.9)
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance, double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid limits %d <= %d <= %d".formatted(minLimit, initialLimit, maxLimit));
+        }
+        if (latencyTolerance < 1 || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid tolerance %s or backoff %s".formatted(latencyTolerance, backoffRatio));
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+    }
+
+    /**
+     * Run the call once a slot is available, the outcome of the call adjusts the limit
+     *
+     * @param call sends the request
+     * @return future with the response, cancelling it frees the slot
+     */
+    <T> CompletableFuture<HttpResponse<T>> run(Supplier<CompletableFuture<HttpResponse<T>>> call) {
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        CompletableFuture<Permit> acquired = acquire();
+        if (!acquired.isDone()) {
+            // a request cancelled while queued gives up its place, unless the slot was just handed to it
+            result.whenComplete((r, t) -> {
+                if (result.isCancelled()) {
+                    dequeue(acquired);
+                }
+            });
+        }
+        acquired.thenAccept(permit -> {
+            if (result.isDone()) {
+                release(permit, 0, CANCELLED);
+                return;
+            }
+            CompletableFuture<HttpResponse<T>> response;
+            try {
+                response = call.get();
+            } catch (RuntimeException e) {
+                release(permit, -1, e);
+                result.completeExceptionally(e);
+                return;
+            }
+            response.whenComplete((r, t) -> {
+                release(permit, r == null ? -1 : r.statusCode(), t);
+                if (t != null) {
+                    result.completeExceptionally(t);
+                } else {
+                    result.complete(r);
+                }
+            });
+            result.whenComplete((r, t) -> {
+                if (result.isCancelled()) {
+                    response.cancel(true);
+                }
+            });
+        });
+        return result;
+    }
+
+    private CompletableFuture<Permit> acquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit && waiting.isEmpty()) {
+                inFlight++;
+                return CompletableFuture.completedFuture(new Permit(System.nanoTime()));
+            }
+            CompletableFuture<Permit> waiter = new CompletableFuture<>();
+            waiting.add(waiter);
+            return waiter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dequeue(CompletableFuture<Permit> waiter) {
+        lock.lock();
+        try {
+            waiting.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Report the outcome of a request and hand its slot to the next waiting request (if any)
+     *
+     * @param permit     the permit handed out by {@link #acquire()}
+     * @param statusCode the http status or -1 when no response was received
+     * @param failure    the exception of the request if any
+     */
+    private void release(Permit permit, int statusCode, Throwable failure) {
+        long now = System.nanoTime();
+        long rtt = now - permit.start;
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        // only a response tells something about the latency, a cancelled request (eg. the losing request of a hedge)
+        // tells nothing about the api at all
+        boolean dropped = !(failure instanceof CancellationException)
+                && (failure instanceof IOException || statusCode == 429 || statusCode >= 500);
+        Deque<CompletableFuture<Permit>> ready = new ArrayDeque<>();
+        lock.lock();
+        try {
+            inFlight--;
+            if (now - minRttSince > MIN_RTT_WINDOW) {
+                // forget the old minimum now and then so a permanent change in latency is picked up
+                minRtt = Long.MAX_VALUE;
+                minRttSince = now;
+            }
+            if (!dropped && failure == null) {
+                minRtt = Math.min(minRtt, rtt);
+            }
+            if (dropped || (failure == null && rtt > minRtt * latencyTolerance)) {
+                // only back off once per round-trip, requests started before the last decrease saw the old limit
+                if (permit.start - lastDecrease > 0) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecrease = now;
+                }
+            } else if (failure == null && inFlight + 1 >= (int) limit) {
+                // only grow when the limit was actually reached
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            while (inFlight < (int) limit && !waiting.isEmpty()) {
+                inFlight++;
+                ready.add(waiting.poll());
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (CompletableFuture<Permit> waiter : ready) {
+            waiter.complete(new Permit(System.nanoTime()));
+        }
+    }
+
+    /**
+     * @return number of requests currently allowed in flight
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests currently in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of requests waiting for a slot
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Permit(long start) {
+    }
+}
@@ -1,26 +1,15 @@
 package com.twikey;
 
+import com.twikey.callback.BatchCallback;
 import com.twikey.callback.DocumentCallback;
 import com.twikey.modal.DocumentRequests;
 import com.twikey.modal.DocumentResponse;
-import com.twikey.modal.ResponseUtils;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import org.json.JSONTokener;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URLEncoder;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Path;
-import java.time.Duration;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Stream;
 
 import static com.twikey.TwikeyClient.*;
-import static java.time.temporal.ChronoUnit.SECONDS;
 
 public class DocumentGateway {
 
@@ -55,25 +44,7 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException A Twikey generated user error occurred
      */
     public DocumentResponse.MandateCreationResponse create(DocumentRequests.InviteRequest invite) throws IOException, TwikeyClient.UserException {
-        Map<String, String> requestMap = invite.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invite"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
-                .build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-                /* {
-                  "mndtId": "COREREC01",
-                  "url": "http://twikey.to/myComp/ToYG",
-                  "key": "ToYG"
-                } */
-            return DocumentResponse.MandateCreationResponse.fromJson(response.body());
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().document().create(invite));
     }
 
     /**
@@ -95,25 +66,7 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException A Twikey generated user error occurred
      */
     public DocumentResponse.MandateCreationResponse sign(DocumentRequests.SignRequest invite) throws IOException, TwikeyClient.UserException {
-        Map<String, String> requestMap = invite.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/sign"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
-                .build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-                /* {
-                  "mndtId": "COREREC01",
-                  "url": "http://twikey.to/myComp/ToYG",
-                  "key": "ToYG"
-                } */
-            return DocumentResponse.MandateCreationResponse.fromJson(response.body());
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().document().sign(invite));
     }
 
     /**
@@ -134,18 +87,7 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException if the API returns an error or the request fails
      */
     public void action(DocumentRequests.MandateActionRequest action) throws IOException, TwikeyClient.UserException {
-        Map<String, String> requestMap = action.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/%s/action".formatted(String.valueOf(requestMap.get("mndtId")))))
-                .timeout(Duration.of(10, SECONDS))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 204) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().document().action(action));
     }
 
     /**
@@ -174,29 +116,11 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException if the API returns a user-related error
      */
     public List<DocumentResponse.Document> query(DocumentRequests.MandateQuery action) throws IOException, TwikeyClient.UserException {
-
-        Map<String, String> requestMap = action.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/query?" + getPostDataString(requestMap)))
-                .headers("Content-Type", HTTP_FORM_ENCODED)
-                .headers("User-Agent", twikeyClient.getUserAgent())
-                .headers("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        JSONObject json = new JSONObject(new JSONTokener(response.body()));
-        if (response.statusCode() == 200) {
-            return DocumentResponse.Document.fromQuery(json);
-        } else {
-            String apiError = apiError(response);
-            if ("err_not_found".equals(apiError)) {
-                return List.of();
-            }
-            throw new TwikeyClient.UserException(apiError);
-        }
+        return await(twikeyClient.async().document().query(action));
     }
 
     public void cancel(String mandateNumber, String reason) throws IOException, TwikeyClient.UserException {
-        this.cancel(mandateNumber, reason, false);
+        await(twikeyClient.async().document().cancel(mandateNumber, reason));
     }
 
     /**
@@ -216,20 +140,7 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException If the API returns an error.
      */
     public void cancel(String mandateNumber, String reason, boolean notify) throws IOException, TwikeyClient.UserException {
-        URI myurl = twikeyClient.getUrl(String.format("/mandate?mndtId=%s&rsn=%s&notify=%s",
-                URLEncoder.encode(mandateNumber, StandardCharsets.UTF_8),
-                URLEncoder.encode(reason, StandardCharsets.UTF_8),
-                notify));
-        HttpRequest request = HttpRequest.newBuilder(myurl)
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .DELETE()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().document().cancel(mandateNumber, reason, notify));
     }
 
     /**
@@ -246,24 +157,7 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException If the API returns an error.
      */
     public DocumentResponse.Document fetch(DocumentRequests.MandateDetailRequest fetch) throws IOException, TwikeyClient.UserException {
-        Map<String, String> requestMap = fetch.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/detail?" + getPostDataString(requestMap)))
-                .headers("Content-Type", HTTP_FORM_ENCODED)
-                .headers("User-Agent", twikeyClient.getUserAgent())
-                .headers("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            if (response.headers().firstValue("x-state").isPresent()) {
-                return DocumentResponse.Document.fromJson(json, response.headers().firstValue("x-state").get());
-            } else {
-                return DocumentResponse.Document.fromJson(json, null);
-            }
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().document().fetch(fetch));
     }
 
     /**
@@ -280,18 +174,7 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException If the API returns an error.
      */
     public void update(DocumentRequests.UpdateMandateRequest update) throws IOException, TwikeyClient.UserException {
-        Map<String, String> requestMap = update.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/update"))
-                .timeout(Duration.of(10, SECONDS))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 204) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().document().update(update));
     }
 
     /**
@@ -305,20 +188,7 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException If the API returns an error.
      */
     public DocumentResponse.CustomerAccessResponse customerAccess(String mandateNumber) throws IOException, TwikeyClient.UserException {
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/customeraccess"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString("mndtId=%s".formatted(mandateNumber)))
-                .build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return DocumentResponse.CustomerAccessResponse.fromJson(json);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().document().customerAccess(mandateNumber));
     }
 
     /**
@@ -332,21 +202,7 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException If the API returns an error.
      */
     public DocumentResponse.PdfResponse retrievePdf(String mandateNumber) throws IOException, TwikeyClient.UserException {
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/pdf?mndtId=" + mandateNumber))
-                .header("Accept", "application/pdf")
-                .headers("User-Agent", twikeyClient.getUserAgent())
-                .headers("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-        HttpResponse<byte[]> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
-        if (response.statusCode() == 200) {
-            String filename = ResponseUtils.extractFilenameFromContentDisposition(response.headers())
-                    .orElse(mandateNumber + ".pdf");
-
-            return new DocumentResponse.PdfResponse(response.body(), filename);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().document().retrievePdf(mandateNumber));
     }
 
     /**
@@ -363,17 +219,7 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException If the API returns an error.
      */
     public void uploadPdf(DocumentRequests.UploadPdfRequest pdfRequest) throws IOException, TwikeyClient.UserException {
-        String postData = getPostDataString(Map.of("mndtId", pdfRequest.mndtId(), "bankSignature", String.valueOf(pdfRequest.bankSignature())));
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/mandate/pdf?%s".formatted(postData)))
-                .headers("Content-Type", HTTP_APPLICATION_PDF)
-                .headers("User-Agent", twikeyClient.getUserAgent())
-                .headers("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofFile(Path.of(pdfRequest.pdfPath())))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 200) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().document().uploadPdf(pdfRequest));
     }
 
     /**
@@ -384,40 +230,46 @@ public class DocumentGateway {
      * @throws TwikeyClient.UserException When there was an issue while retrieving the mandates (eg. invalid apikey)
      */
     public void feed(DocumentCallback mandateCallback) throws IOException, TwikeyClient.UserException {
-        boolean isEmpty;
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/mandate"))
-                .headers("Content-Type", HTTP_FORM_ENCODED)
-                .headers("User-Agent", twikeyClient.getUserAgent())
-                .headers("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-        do {
-            HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-            int responseCode = response.statusCode();
+        newFeed().drain(event -> dispatch(event, mandateCallback));
+    }
 
-            if (responseCode == 200) {
-                JSONObject json = new JSONObject(new JSONTokener(response.body()));
+    /**
+     * Same as {@link #feed(DocumentCallback)} but handing all updates of a page to the callback at once
+     *
+     * @param callback Callback for every page of new, updated and cancelled mandates
+     * @throws IOException                When a network issue happened
+     * @throws TwikeyClient.UserException When there was an issue while retrieving the mandates (eg. invalid apikey)
+     */
+    public void feedBatch(BatchCallback<DocumentResponse.Event> callback) throws IOException, TwikeyClient.UserException {
+        newFeed().drainBatches(callback::batch);
+    }
 
-                JSONArray messagesArr = json.getJSONArray("Messages");
-                isEmpty = messagesArr.isEmpty();
-                if (!isEmpty) {
-                    for (int i = 0; i < messagesArr.length(); i++) {
-                        JSONObject obj = messagesArr.getJSONObject(i);
-                        if (obj.has("CxlRsn")) {
-                            mandateCallback.cancelledDocument(obj.getString("OrgnlMndtId"), obj.getJSONObject("CxlRsn").getString("Rsn"), obj.getJSONObject("CxlRsn").getJSONObject("Orgtr").getJSONObject("CtctDtls").getString("EmailAdr"), obj.getString("EvtTime"));
-                        } else if (obj.has("AmdmntRsn")) {
-                            DocumentResponse.Document document = DocumentResponse.Document.fromJson(obj, null);
-                            mandateCallback.updatedDocument(document, obj.getString("OrgnlMndtId"), obj.getJSONObject("AmdmntRsn").getString("Rsn"), obj.getJSONObject("AmdmntRsn").getJSONObject("Orgtr").getJSONObject("CtctDtls").getString("EmailAdr"), obj.getString("EvtTime"));
-                        } else {
-                            DocumentResponse.Document document = DocumentResponse.Document.fromJson(obj, null);
-                            mandateCallback.newDocument(document, obj.getString("EvtTime"));
-                        }
-                    }
-                }
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+    /**
+     * Lazy variant of {@link #feed(DocumentCallback)}, the next page is only fetched once the stream is consumed past
+     * the current one so it can be limited (eg. <code>feedStream().limit(500)</code>) without draining the feed.
+     * As the api considers a page delivered once it was fetched, entries of the last page that weren't consumed
+     * aren't returned again. Close the stream when it wasn't consumed completely.
+     *
+     * @return stream of new, updated and cancelled mandates
+     * @throws java.io.UncheckedIOException when a page couldn't be retrieved (wrapping a {@link TwikeyClient.UserException} when refused by the api)
+     */
+    public Stream<DocumentResponse.Event> feedStream() {
+        return newFeed().stream();
+    }
 
-        } while (!isEmpty);
+    Feed<DocumentResponse.Event> newFeed() {
+        return new Feed<>(twikeyClient, "/mandate", "Messages", null, entry -> {
+            DocumentResponse.Event event = DocumentResponse.Event.fromJson(entry.reader());
+            twikeyClient.invalidate(EndpointFamily.MANDATE, event.originalMandateNumber(), event.document() == null ? null : event.document().getMandateNumber());
+            return event;
+        }, DocumentResponse.Event::mandateNumber, event -> event.type() + ":" + event.mandateNumber() + ":" + event.eventTime());
+    }
+
+    static void dispatch(DocumentResponse.Event event, DocumentCallback mandateCallback) {
+        switch (event.type()) {
+            case NEW -> mandateCallback.newDocument(event.document(), event.eventTime());
+            case UPDATED -> mandateCallback.updatedDocument(event.document(), event.originalMandateNumber(), event.reason(), event.author(), event.eventTime());
+            case CANCELLED -> mandateCallback.cancelledDocument(event.originalMandateNumber(), event.reason(), event.author(), event.eventTime());
+        }
     }
 }
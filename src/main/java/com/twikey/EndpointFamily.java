@@ -0,0 +1,38 @@
+package com.twikey;
+
+/**
+ * Groups the api endpoints per resource, used to apply limits or protection per group of endpoints
+ * (eg. <code>/transaction</code>, <code>/transaction/detail</code> and <code>/transaction/query</code> are all {@link #TRANSACTION}).
+ */
+public enum EndpointFamily {
+    MANDATE,
+    TRANSACTION,
+    INVOICE,
+    TRANSFER,
+    PAYLINK,
+    OTHER;
+
+    /**
+     * @param path path of the request relative to the creditor endpoint, eg. <code>/transaction/detail</code>
+     * @return the family the path belongs to
+     */
+    public static EndpointFamily parse(String path) {
+        if (path == null) {
+            return OTHER;
+        }
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = start;
+        while (end < path.length() && path.charAt(end) != '/' && path.charAt(end) != '?') {
+            end++;
+        }
+        String resource = path.substring(start, end);
+        return switch (resource) {
+            case "mandate", "invite", "sign", "customeraccess" -> MANDATE;
+            case "transaction" -> TRANSACTION;
+            case "invoice" -> INVOICE;
+            case "transfer", "transfers" -> TRANSFER;
+            case "payment" -> PAYLINK;
+            default -> OTHER;
+        };
+    }
+}
@@ -0,0 +1,705 @@
+package com.twikey;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.twikey.TwikeyClient.HTTP_FORM_ENCODED;
+import static com.twikey.TwikeyClient.apiError;
+
+/**
+ * A feed of the api, every call returns the next page of updates until a page comes back empty. As the api
+ * considers a page delivered once it was returned, a page is never fetched twice.
+ *
+ * @param <T> type of the entries
+ */
+class Feed<T> {
+
+    private final TwikeyClient twikeyClient;
+    private final String path;
+    private final String array;
+    private final String[] sideloads;
+    private final Function<FeedEntry, T> mapper;
+    private final Function<? super T, ?> key;
+    private final Function<? super T, ?> identity;
+    private final String journal;
+
+    /**
+     * @param path      path of the feed (eg. <code>/transaction</code>)
+     * @param array     name of the array holding the entries in a page (eg. <code>Entries</code>)
+     * @param sideloads items to include in the entries
+     * @param mapper    turns an entry into its model
+     * @param key       resource the entry is about, entries with the same key are handled in order by a {@link FeedDispatcher}
+     * @param identity  resource and state of the entry, entries with an identity handled before are dropped by a {@link FeedDeduplicator}
+     */
+    Feed(TwikeyClient twikeyClient, String path, String array, String[] sideloads, Function<FeedEntry, T> mapper, Function<? super T, ?> key, Function<? super T, ?> identity) {
+        this.twikeyClient = twikeyClient;
+        this.path = path;
+        this.array = array;
+        this.sideloads = sideloads;
+        this.mapper = mapper;
+        this.key = key;
+        this.identity = identity;
+        this.journal = path.substring(1).replace('/', '-');
+    }
+
+    /**
+     * Hand all entries to the consumer, page after page until the feed is drained. When the consumer throws, the
+     * entry it failed on and all entries fetched after it are handed out first by the next drain of the feed.
+     * With a prefetch configured (see {@link TwikeyClient#withFeedPrefetch(int)}) the next pages are fetched while
+     * the consumer is handling the current one, with a {@link FeedDispatcher} the entries of a page are handled in
+     * parallel. With a {@link FeedJournal} every page is written to the journal before it's handed out and the
+     * entries that weren't handled are kept there instead. With a {@link FeedDeduplicator} entries that were handled
+     * before are dropped. Drains of the same feed run one after the other.
+     */
+    void drain(Consumer<? super T> consumer) throws IOException, TwikeyClient.UserException {
+        Turns turns = twikeyClient.turns(path);
+        TwikeyClient.await(turns.acquire());
+        try {
+            drainPages(handler(consumer));
+        } finally {
+            turns.release();
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #drain(Consumer)}, the pages are fetched one after the other without blocking a
+     * thread in between and handed to the consumer on the thread completing the fetch. The backlog, journal,
+     * dispatcher and deduplicator of the client apply just like they do for {@link #drain(Consumer)}, a prefetch
+     * is not used.
+     *
+     * @return future completing when the feed was drained, failing with the exception of the consumer, the
+     * {@link IOException} or the {@link TwikeyClient.UserException} that stopped the drain
+     */
+    CompletableFuture<Void> drainAsync(Consumer<? super T> consumer) {
+        Turns turns = twikeyClient.turns(path);
+        return turns.acquire()
+                .thenCompose(turn -> drainPagesAsync(handler(consumer)))
+                .whenComplete((r, t) -> turns.release());
+    }
+
+    private CompletableFuture<Void> drainPagesAsync(Predicate<Iterator<FeedEntry>> handler) {
+        try {
+            handler = backlog(handler);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        } catch (JournalException e) {
+            return CompletableFuture.failedFuture(e.getCause());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return nextAsync(handler);
+    }
+
+    private CompletableFuture<Void> nextAsync(Predicate<Iterator<FeedEntry>> handler) {
+        return fetchPageAsync().thenCompose(page -> {
+            try {
+                return handler.test(page.iterator()) ? nextAsync(handler) : CompletableFuture.completedFuture(null);
+            } catch (JournalException e) {
+                return CompletableFuture.failedFuture(e.getCause());
+            }
+        });
+    }
+
+    /**
+     * @return hands the entries of a page to the consumer, dropping the ones handled before when there's a deduplicator
+     */
+    private Predicate<Iterator<FeedEntry>> handler(Consumer<? super T> consumer) {
+        FeedDeduplicator deduplicator = twikeyClient.getFeedDeduplicator();
+        if (deduplicator == null) {
+            return page -> deliver(page, consumer);
+        }
+        return page -> deliver(page, item -> {
+            String handled = identify(item);
+            if (!deduplicator.isDuplicate(handled)) {
+                consumer.accept(item);
+                deduplicator.handled(handled);
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #drain(Consumer)} but handing all entries of a page to the consumer at once
+     */
+    void drainBatches(Consumer<? super List<T>> consumer) throws IOException, TwikeyClient.UserException {
+        Turns turns = twikeyClient.turns(path);
+        TwikeyClient.await(turns.acquire());
+        try {
+            drainPages(batchHandler(consumer));
+        } finally {
+            turns.release();
+        }
+    }
+
+    /**
+     * @return hands the entries of a page to the consumer at once, dropping the ones handled before when there's a deduplicator
+     */
+    private Predicate<Iterator<FeedEntry>> batchHandler(Consumer<? super List<T>> consumer) {
+        FeedDeduplicator deduplicator = twikeyClient.getFeedDeduplicator();
+        if (deduplicator == null) {
+            return page -> deliverBatch(page, consumer);
+        }
+        return page -> deliverBatch(page, batch -> {
+            List<T> unique = new ArrayList<>(batch.size());
+            Set<String> identities = new LinkedHashSet<>();
+            for (T item : batch) {
+                String handled = identify(item);
+                if (!deduplicator.isDuplicate(handled) && identities.add(handled)) {
+                    unique.add(item);
+                }
+            }
+            if (!unique.isEmpty()) {
+                consumer.accept(unique);
+                identities.forEach(deduplicator::handled);
+            }
+        });
+    }
+
+    /**
+     * @return identity of the entry across all feeds
+     */
+    private String identify(T item) {
+        return path + ':' + identity.apply(item);
+    }
+
+    /**
+     * @param handler hands the entries of a page out, returning whether there were any
+     */
+    private void drainPages(Predicate<Iterator<FeedEntry>> handler) throws IOException, TwikeyClient.UserException {
+        try {
+            handler = backlog(handler);
+            int prefetch = twikeyClient.getFeedPrefetch();
+            if (prefetch > 0) {
+                pipeline(handler, prefetch);
+            } else {
+                while (next(handler)) {
+                    // next page
+                }
+            }
+        } catch (JournalException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Hands out the entries kept by an earlier drain, first the ones in the journal and then the ones in memory
+     *
+     * @return handler for the pages fetched next, writing them to the journal when there is one
+     */
+    private Predicate<Iterator<FeedEntry>> backlog(Predicate<Iterator<FeedEntry>> handler) throws IOException {
+        FeedJournal feedJournal = twikeyClient.getFeedJournal();
+        if (feedJournal != null) {
+            FeedJournal.Pending pending = feedJournal.pending(journal);
+            if (!pending.entries().isEmpty()) {
+                handler.test(pending.entries().iterator());
+                feedJournal.commit(journal, pending.end());
+            }
+            handler = journaled(handler, feedJournal);
+        }
+        Deque<FeedEntry> undelivered = twikeyClient.undelivered(path);
+        if (!undelivered.isEmpty()) {
+            // entries failing again are added back by the handler
+            List<FeedEntry> backlog = new ArrayList<>();
+            for (FeedEntry entry = undelivered.pollFirst(); entry != null; entry = undelivered.pollFirst()) {
+                backlog.add(entry);
+            }
+            handler.test(backlog.iterator());
+        }
+        return handler;
+    }
+
+    /**
+     * Writes the page to the journal before handing it out and acknowledges it once all entries were handled, the
+     * entries of a page that failed are handed out again by the next drain of the feed
+     */
+    private Predicate<Iterator<FeedEntry>> journaled(Predicate<Iterator<FeedEntry>> handler, FeedJournal feedJournal) {
+        return page -> {
+            List<FeedEntry> entries = new ArrayList<>();
+            page.forEachRemaining(entries::add);
+            if (entries.isEmpty()) {
+                return false;
+            }
+            try {
+                long end = keep(entries);
+                handler.test(entries.iterator());
+                feedJournal.commit(journal, end);
+            } catch (IOException e) {
+                throw new JournalException(e);
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Keep entries that weren't handed out yet for the next drain, in memory when there's no journal or it can't
+     * be written
+     *
+     * @return position in the journal after the entries
+     */
+    private long keep(List<FeedEntry> entries) throws IOException {
+        FeedJournal feedJournal = twikeyClient.getFeedJournal();
+        if (feedJournal != null) {
+            try {
+                return feedJournal.append(journal, entries);
+            } catch (IOException e) {
+                twikeyClient.undelivered(path).addAll(entries);
+                throw e;
+            }
+        }
+        twikeyClient.undelivered(path).addAll(entries);
+        return -1;
+    }
+
+    /**
+     * @return receives the entries the consumer failed on, with a journal they're in there already
+     */
+    private Collection<FeedEntry> undelivered() {
+        return twikeyClient.getFeedJournal() != null ? new ArrayList<>() : twikeyClient.undelivered(path);
+    }
+
+    /**
+     * Fetch the next page and hand its entries out while they're being read
+     *
+     * @return false if the page was empty, meaning the feed was drained
+     */
+    private boolean next(Predicate<Iterator<FeedEntry>> handler) throws IOException, TwikeyClient.UserException {
+        try (FeedReader page = fetch()) {
+            return handler.test(page);
+        }
+    }
+
+    /**
+     * Keeps up to <code>depth</code> pages in flight or fetched ahead of the page handed to the consumer. A page is
+     * only requested once the previous one turned out not to be empty, so nothing is fetched past the end.
+     */
+    private void pipeline(Predicate<Iterator<FeedEntry>> handler, int depth) throws IOException, TwikeyClient.UserException {
+        Deque<CompletableFuture<List<FeedEntry>>> ahead = new ArrayDeque<>();
+        ahead.add(fetchPageAsync());
+        while (true) {
+            while (ahead.size() <= depth) {
+                ahead.add(ahead.getLast().thenCompose(previous -> previous.isEmpty() ? CompletableFuture.completedFuture(previous) : fetchPageAsync()));
+            }
+            List<FeedEntry> page = TwikeyClient.await(ahead.removeFirst());
+            if (page.isEmpty()) {
+                return;
+            }
+            try {
+                handler.test(page.iterator());
+            } catch (RuntimeException e) {
+                // the api considers the pages fetched ahead delivered as well
+                for (CompletableFuture<List<FeedEntry>> next : ahead) {
+                    try {
+                        keep(next.join());
+                    } catch (CompletionException | CancellationException ignore) {
+                        // failed to fetch, so nothing to keep
+                    } catch (IOException journalFailure) {
+                        e.addSuppressed(journalFailure);
+                    }
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return whether the page had entries
+     */
+    private boolean deliver(Iterator<FeedEntry> page, Consumer<? super T> consumer) {
+        FeedDispatcher dispatcher = twikeyClient.getFeedDispatcher();
+        if (dispatcher != null) {
+            return dispatcher.dispatch(page, mapper, key, consumer, undelivered());
+        }
+        boolean isEmpty = !page.hasNext();
+        while (page.hasNext()) {
+            FeedEntry entry = page.next();
+            try {
+                // an entry that can't be mapped is kept just like one the consumer failed on
+                consumer.accept(mapper.apply(entry));
+            } catch (RuntimeException e) {
+                Collection<FeedEntry> undelivered = undelivered();
+                undelivered.add(entry);
+                try {
+                    page.forEachRemaining(undelivered::add);
+                } catch (RuntimeException remainder) {
+                    e.addSuppressed(remainder);
+                }
+                throw e;
+            }
+        }
+        return !isEmpty;
+    }
+
+    /**
+     * Lazy stream of the entries, the next page is only fetched once the consumer pulls past the current one.
+     * Entries of the current page that weren't pulled when the stream is closed aren't returned again.
+     * Failures to fetch a page are thrown as {@link UncheckedIOException}, wrapping the
+     * {@link TwikeyClient.UserException} in case the api refused the request.
+     */
+    Stream<T> stream() {
+        Entries entries = new Entries();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(entries, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(entries::close);
+    }
+
+    /**
+     * Publisher of the entries, pages are fetched asynchronously and only while the subscriber has outstanding
+     * demand, so a slow subscriber bounds the rate at which the feed is consumed. Every subscription continues
+     * where the feed was left, entries of the current page that weren't requested when the subscription is
+     * cancelled aren't returned again. The subscriber completes once the feed is drained.
+     */
+    Flow.Publisher<T> publisher() {
+        return subscriber -> {
+            if (subscriber == null) {
+                throw new NullPointerException("subscriber");
+            }
+            subscriber.onSubscribe(new Subscription(subscriber));
+        };
+    }
+
+    /**
+     * @return reader over the entries of the next page
+     */
+    FeedReader fetch() throws IOException, TwikeyClient.UserException {
+        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl(path, sideloads))
+                .header("Content-Type", HTTP_FORM_ENCODED)
+                .header("User-Agent", twikeyClient.getUserAgent())
+                .header("Authorization", twikeyClient.getSessionToken())
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofInputStream(), false);
+        if (response.statusCode() != 200) {
+            RetryPolicy.discard(response);
+            throw new TwikeyClient.UserException(apiError(response));
+        }
+        return new FeedReader(response.body(), array);
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetch()}, the page is received completely before it's read
+     */
+    CompletableFuture<FeedReader> fetchAsync() {
+        return twikeyClient.sendAsync(sessionToken -> HttpRequest.newBuilder(twikeyClient.getUrl(path, sideloads))
+                        .header("Content-Type", HTTP_FORM_ENCODED)
+                        .header("User-Agent", twikeyClient.getUserAgent())
+                        .header("Authorization", sessionToken)
+                        .GET()
+                        .build(),
+                HttpResponse.BodyHandlers.ofByteArray(),
+                false,
+                response -> {
+                    if (response.statusCode() == 200) {
+                        // read from the bytes, the page isn't decoded into a String first
+                        return new FeedReader(new ByteArrayInputStream(response.body()), array);
+                    } else {
+                        throw new TwikeyClient.UserException(apiError(response));
+                    }
+                });
+    }
+
+    /**
+     * @return whether the page had entries
+     */
+    private boolean deliverBatch(Iterator<FeedEntry> page, Consumer<? super List<T>> consumer) {
+        List<FeedEntry> entries = new ArrayList<>();
+        page.forEachRemaining(entries::add);
+        if (entries.isEmpty()) {
+            return false;
+        }
+        try {
+            List<T> batch = new ArrayList<>(entries.size());
+            for (FeedEntry entry : entries) {
+                batch.add(mapper.apply(entry));
+            }
+            consumer.accept(batch);
+        } catch (RuntimeException e) {
+            undelivered().addAll(entries);
+            throw e;
+        }
+        return true;
+    }
+
+    private CompletableFuture<List<FeedEntry>> fetchPageAsync() {
+        return fetchAsync().thenApply(page -> {
+            List<FeedEntry> entries = new ArrayList<>();
+            page.forEachRemaining(entries::add);
+            return entries;
+        });
+    }
+
+    /**
+     * Lets the drains of a feed run one at a time in order of arrival, overlapping drains would hand out the same
+     * backlog twice and acknowledge the journal out of order
+     */
+    static class Turns {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+        private boolean taken;
+
+        /**
+         * @return completes once it's the turn of the caller, who has to {@link #release()} it afterwards
+         */
+        CompletableFuture<Void> acquire() {
+            lock.lock();
+            try {
+                if (!taken) {
+                    taken = true;
+                    return CompletableFuture.completedFuture(null);
+                }
+                CompletableFuture<Void> turn = new CompletableFuture<>();
+                waiting.add(turn);
+                return turn;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Hand the turn to the next drain still waiting for it
+         */
+        void release() {
+            while (true) {
+                CompletableFuture<Void> next;
+                lock.lock();
+                try {
+                    next = waiting.poll();
+                    taken = next != null;
+                } finally {
+                    lock.unlock();
+                }
+                // a drain that stopped waiting (eg. interrupted) passes the turn on
+                if (next == null || next.complete(null)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Failure to write the journal, thrown through the handlers and unwrapped by {@link #drainPages}
+     */
+    private static class JournalException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        JournalException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private class Entries implements Iterator<T> {
+        private FeedReader page;
+        private boolean pageEmpty;
+        private boolean done;
+
+        @Override
+        public boolean hasNext() {
+            while (!done) {
+                if (page == null) {
+                    page = fetchUnchecked();
+                    pageEmpty = true;
+                }
+                if (page.hasNext()) {
+                    return true;
+                }
+                release();
+                done = pageEmpty;
+            }
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            pageEmpty = false;
+            return mapper.apply(page.next());
+        }
+
+        void close() {
+            done = true;
+            release();
+        }
+
+        private void release() {
+            if (page != null) {
+                try {
+                    page.close();
+                } catch (IOException ignore) {
+                    // nothing left to read
+                }
+                page = null;
+            }
+        }
+
+        private FeedReader fetchUnchecked() {
+            try {
+                return fetch();
+            } catch (IOException e) {
+                done = true;
+                throw new UncheckedIOException(e);
+            } catch (TwikeyClient.UserException e) {
+                done = true;
+                throw new UncheckedIOException(new IOException(e.getMessage(), e));
+            }
+        }
+    }
+
+    /**
+     * Emits entries while there is demand, all signals to the subscriber are serialized by the drain loop
+     */
+    private class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+
+        // only accessed from the drain loop
+        private CompletableFuture<FeedReader> fetching;
+        private FeedReader page;
+        private boolean pageEmpty;
+        private boolean done;
+
+        Subscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Non-positive request " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                emit();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            while (!done) {
+                if (cancelled) {
+                    terminate();
+                    return;
+                }
+                if (invalidRequest != null) {
+                    terminate();
+                    subscriber.onError(invalidRequest);
+                    return;
+                }
+                if (fetching != null) {
+                    if (!fetching.isDone()) {
+                        return;
+                    }
+                    try {
+                        page = fetching.join();
+                        pageEmpty = true;
+                    } catch (CompletionException | CancellationException e) {
+                        terminate();
+                        subscriber.onError(e.getCause() != null ? e.getCause() : e);
+                        return;
+                    } finally {
+                        fetching = null;
+                    }
+                }
+                if (demand.get() == 0) {
+                    return;
+                }
+                if (page == null) {
+                    // completing the fetch re-enters the drain loop
+                    fetching = fetchAsync();
+                    fetching.whenComplete((r, t) -> drain());
+                    continue;
+                }
+                T entry;
+                try {
+                    if (!page.hasNext()) {
+                        boolean drained = pageEmpty;
+                        release();
+                        if (drained) {
+                            done = true;
+                            subscriber.onComplete();
+                        }
+                        continue;
+                    }
+                    entry = mapper.apply(page.next());
+                } catch (RuntimeException e) {
+                    terminate();
+                    subscriber.onError(e);
+                    return;
+                }
+                pageEmpty = false;
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(entry);
+            }
+        }
+
+        private void terminate() {
+            done = true;
+            if (fetching != null) {
+                fetching.cancel(true);
+                fetching = null;
+            }
+            release();
+        }
+
+        private void release() {
+            if (page != null) {
+                try {
+                    page.close();
+                } catch (IOException ignore) {
+                    // nothing left to read
+                }
+                page = null;
+            }
+        }
+    }
+}
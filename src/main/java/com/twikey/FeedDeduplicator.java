@@ -0,0 +1,82 @@
+package com.twikey;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drops updates of the callback feeds that were already handled, eg. when a page is handed out again after a failure
+ * or restart. An update is identified by its resource and state (eg. the <code>id</code> and <code>state</code> of a
+ * transaction or the <code>eventId</code> of a payment), so a later change of the same resource still comes through.
+ *
+ * <p>The most recently handled updates are remembered exactly, so a new update is never dropped. Updates that dropped
+ * out of the recent set are handed out again.</p>
+ *
+ * <pre>
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey).withFeedDeduplicator(new FeedDeduplicator(100_000));
+ * </pre>
+ */
+public class FeedDeduplicator {
+
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Boolean> recent;
+    private final AtomicLong suppressed = new AtomicLong();
+
+    /**
+     * @param capacity number of handled updates to remember
+     */
+    public FeedDeduplicator(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        this.capacity = capacity;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > FeedDeduplicator.this.capacity;
+            }
+        };
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of updates that were dropped as they were handled before
+     */
+    public long getSuppressed() {
+        return suppressed.get();
+    }
+
+    /**
+     * @param identity resource and state of the update, prefixed with the feed
+     * @return true if the update was handled before and should be dropped
+     */
+    boolean isDuplicate(String identity) {
+        lock.lock();
+        try {
+            if (recent.get(identity) == null) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        suppressed.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Remember the update was handled
+     */
+    void handled(String identity) {
+        lock.lock();
+        try {
+            recent.put(identity, Boolean.TRUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
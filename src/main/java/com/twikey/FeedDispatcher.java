@@ -0,0 +1,141 @@
+package com.twikey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Hands the entries of a feed page to the callback on multiple threads. Entries about the same resource go to the
+ * same lane and are handled in the order of the feed, entries about other resources are handled in parallel. The
+ * resource is the mandate for transactions and mandates, the invoice for invoices and payments and the transfer or
+ * link itself for refunds and paylinks. The next page is only requested once all lanes handled the current page.
+ *
+ * <p>When the callback throws, the remaining entries of that lane aren't handled and, together with the one that
+ * failed, are handed out first by the next call of the feed. The failure is rethrown once all lanes finished.</p>
+ *
+ * <pre>
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey).withFeedDispatcher(new FeedDispatcher(8));
+ * twikeyClient.transaction().feed(tx -&gt; repository.save(tx));
+ * </pre>
+ */
+public class FeedDispatcher {
+
+    private final int lanes;
+    private final Executor executor;
+
+    /**
+     * @param lanes number of entries handled in parallel, each on a daemon thread of the dispatcher
+     */
+    public FeedDispatcher(int lanes) {
+        this(lanes, Executors.newFixedThreadPool(checked(lanes), runnable -> {
+            Thread thread = new Thread(runnable, "twikey-feed");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param lanes    number of entries handled in parallel
+     * @param executor runs the callbacks (eg. {@link TwikeyClient#executor()} for virtual threads)
+     */
+    public FeedDispatcher(int lanes, Executor executor) {
+        this.lanes = checked(lanes);
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    public int getLanes() {
+        return lanes;
+    }
+
+    /**
+     * Hand the entries of the page to the consumer and wait for all of them to be handled
+     *
+     * @param key         the resource of an entry, determining its lane
+     * @param undelivered receives the entries that weren't handled because the mapper or the consumer failed
+     * @return whether the page had entries
+     */
+    <T> boolean dispatch(Iterator<FeedEntry> page, Function<FeedEntry, T> mapper, Function<? super T, ?> key, Consumer<? super T> consumer, Collection<FeedEntry> undelivered) {
+        List<FeedEntry> entries = new ArrayList<>();
+        List<CompletableFuture<Void>> handled = new ArrayList<>();
+        List<CompletableFuture<Void>> tails = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            tails.add(CompletableFuture.completedFuture(null));
+        }
+        List<FeedEntry> remainder = new ArrayList<>();
+        RuntimeException failure = null;
+        FeedEntry entry = null;
+        try {
+            while (page.hasNext()) {
+                entry = page.next();
+                T item = mapper.apply(entry);
+                int lane = Math.floorMod(Objects.hashCode(key.apply(item)), lanes);
+                // a failure skips the entries queued after it on the same lane
+                CompletableFuture<Void> tail = tails.get(lane).thenRunAsync(() -> consumer.accept(item), executor);
+                tails.set(lane, tail);
+                entries.add(entry);
+                handled.add(tail);
+                entry = null;
+            }
+        } catch (RuntimeException e) {
+            // the entry that couldn't be mapped and the ones after it were never dispatched
+            failure = e;
+            if (entry != null) {
+                remainder.add(entry);
+            }
+            try {
+                page.forEachRemaining(remainder::add);
+            } catch (RuntimeException unreadable) {
+                e.addSuppressed(unreadable);
+            }
+        }
+        CompletableFuture.allOf(tails.toArray(new CompletableFuture<?>[0])).exceptionally(t -> null).join();
+
+        RuntimeException callbackFailure = null;
+        for (int i = 0; i < entries.size(); i++) {
+            CompletableFuture<Void> outcome = handled.get(i);
+            if (outcome.isCompletedExceptionally()) {
+                undelivered.add(entries.get(i));
+                if (callbackFailure == null) {
+                    callbackFailure = cause(outcome);
+                }
+            }
+        }
+        undelivered.addAll(remainder);
+        if (callbackFailure != null) {
+            if (failure != null) {
+                callbackFailure.addSuppressed(failure);
+            }
+            throw callbackFailure;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return !entries.isEmpty();
+    }
+
+    private static RuntimeException cause(CompletableFuture<Void> failed) {
+        Throwable cause = failed.handle((r, t) -> t).join();
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+    }
+
+    private static int checked(int lanes) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("At least 1 lane is required");
+        }
+        return lanes;
+    }
+}
@@ -0,0 +1,110 @@
+package com.twikey;
+
+import com.twikey.callback.DocumentCallback;
+import com.twikey.callback.InvoiceCallback;
+import com.twikey.callback.PaylinkCallback;
+import com.twikey.callback.PaymentCallback;
+import com.twikey.callback.RefundCallback;
+import com.twikey.callback.TransactionCallback;
+import com.twikey.modal.DocumentResponse;
+import com.twikey.modal.PaylinkResponse;
+import com.twikey.modal.RefundResponse;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains one of the feeds into its callback, counting the updates handed to the callback. Used by the
+ * {@link FeedPoller} and {@link FeedScheduler} to drive the feeds of the gateways.
+ */
+@FunctionalInterface
+interface FeedDrain {
+
+    String DOCUMENT = "document";
+    String TRANSACTION = "transaction";
+    String INVOICE = "invoice";
+    String PAYMENT = "payment";
+    String REFUND = "refund";
+    String PAYLINK = "paylink";
+
+    /**
+     * @param entries incremented for every update the callback handled
+     */
+    void drain(AtomicLong entries) throws IOException, TwikeyClient.UserException;
+
+    static FeedDrain documents(TwikeyClient twikeyClient, DocumentCallback callback) {
+        return entries -> twikeyClient.document().feed(new DocumentCallback() {
+            @Override
+            public void newDocument(DocumentResponse.Document newDocument, String evt_time) {
+                callback.newDocument(newDocument, evt_time);
+                entries.incrementAndGet();
+            }
+
+            @Override
+            public void updatedDocument(DocumentResponse.Document updatedDocument, String updatedDocumentId, String reason, String author, String evt_time) {
+                callback.updatedDocument(updatedDocument, updatedDocumentId, reason, author, evt_time);
+                entries.incrementAndGet();
+            }
+
+            @Override
+            public void cancelledDocument(String cancelledDocumentNumber, String reason, String author, String evt_time) {
+                callback.cancelledDocument(cancelledDocumentNumber, reason, author, evt_time);
+                entries.incrementAndGet();
+            }
+        });
+    }
+
+    static FeedDrain transactions(TwikeyClient twikeyClient, TransactionCallback callback, String... sideloads) {
+        return entries -> twikeyClient.transaction().feed(transaction -> {
+            callback.transaction(transaction);
+            entries.incrementAndGet();
+        }, sideloads);
+    }
+
+    static FeedDrain invoices(TwikeyClient twikeyClient, InvoiceCallback callback, String... sideloads) {
+        return entries -> twikeyClient.invoice().feed(invoice -> {
+            callback.invoice(invoice);
+            entries.incrementAndGet();
+        }, sideloads);
+    }
+
+    static FeedDrain payments(TwikeyClient twikeyClient, PaymentCallback callback) {
+        return entries -> twikeyClient.invoice().payment(payment -> {
+            callback.payment(payment);
+            entries.incrementAndGet();
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    static FeedDrain refunds(TwikeyClient twikeyClient, RefundCallback callback, String... sideloads) {
+        return entries -> twikeyClient.refund().feed(new RefundCallback() {
+            @Override
+            public void refund(JSONObject refund) {
+                callback.refund(refund);
+            }
+
+            @Override
+            public void refund(RefundResponse.Refund refund) {
+                callback.refund(refund);
+                entries.incrementAndGet();
+            }
+        }, sideloads);
+    }
+
+    @SuppressWarnings("deprecation")
+    static FeedDrain paylinks(TwikeyClient twikeyClient, PaylinkCallback callback, String... sideloads) {
+        return entries -> twikeyClient.paylink().feed(new PaylinkCallback() {
+            @Override
+            public void paylink(JSONObject paylink) {
+                callback.paylink(paylink);
+            }
+
+            @Override
+            public void paylink(PaylinkResponse.Paylink paylink) {
+                callback.paylink(paylink);
+                entries.incrementAndGet();
+            }
+        }, sideloads);
+    }
+}
@@ -0,0 +1,70 @@
+package com.twikey;
+
+import com.twikey.modal.JsonReader;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An entry of a feed page as the compact UTF-8 JSON it was received in. The entry is only decoded by the mapper of
+ * the feed, binding the model straight from the bytes, and is kept as is in the backlog and the journal.
+ */
+final class FeedEntry {
+
+    private final byte[] json;
+
+    /**
+     * @param json UTF-8 encoded object without line breaks
+     */
+    FeedEntry(byte[] json) {
+        this.json = json;
+    }
+
+    /**
+     * @param json UTF-8 encoded object, eg. a line of the journal
+     * @throws JSONException when it isn't a single complete object
+     */
+    static FeedEntry parse(byte[] json) {
+        JsonReader reader = new JsonReader(json);
+        if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+            throw new JSONException("A JSONObject text must begin with '{'");
+        }
+        reader.skipValue();
+        // throws for anything after the object
+        reader.peek();
+        return new FeedEntry(json);
+    }
+
+    /**
+     * @return reader positioned at the object of the entry
+     */
+    JsonReader reader() {
+        return new JsonReader(json);
+    }
+
+    /**
+     * @return the entry for a {@link com.twikey.modal.JsonCodec}
+     */
+    InputStream stream() {
+        return reader().nextValueStream();
+    }
+
+    /**
+     * @return the entry as tree, for the callbacks receiving the raw JSON
+     */
+    JSONObject tree() {
+        return new JSONObject(new JSONTokener(stream()));
+    }
+
+    byte[] bytes() {
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,291 @@
+package com.twikey;
+
+import org.json.JSONException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only journal on disk for the callback feeds. Every page is written (and synced) to the journal before it's
+ * handed to the callback and only acknowledged once the callback handled all of it. Entries that weren't acknowledged,
+ * because the callback failed or the application stopped, are replayed by the next call of the feed. This gives
+ * at-least-once delivery across restarts, so a callback may see the same update more than once.
+ *
+ * <p>Each feed has its own journal (<code>transaction.journal</code>) holding one entry per line and an offset file
+ * (<code>transaction.offset</code>) with the position up to where the entries were handled. The journal is emptied
+ * once it grew past the compaction threshold and all entries were handled. An entry that can't be read back (eg. a
+ * damaged disk) is moved to <code>transaction.corrupt</code> instead of blocking the feed.</p>
+ *
+ * <pre>
+ * FeedJournal journal = new FeedJournal(Path.of("/var/lib/myapp/twikey"));
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey).withFeedJournal(journal);
+ * </pre>
+ */
+public class FeedJournal implements Closeable {
+
+    private final Path directory;
+    private final Map<String, Log> logs = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private boolean fsync = true;
+    private long compactionThreshold = 16 * 1024 * 1024;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong corrupted = new AtomicLong();
+
+    /**
+     * @param directory where the journals are kept, created if needed
+     */
+    public FeedJournal(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * @param fsync whether a page is synced to the disk before it's handed out (default true), without it the journal
+     *              survives the application crashing but not the machine
+     */
+    public FeedJournal withFsync(boolean fsync) {
+        this.fsync = fsync;
+        return this;
+    }
+
+    /**
+     * @param bytes size after which a journal is emptied when all its entries were handled (default 16MB)
+     */
+    public FeedJournal withCompactionThreshold(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("Invalid threshold " + bytes);
+        }
+        this.compactionThreshold = bytes;
+        return this;
+    }
+
+    /**
+     * @return number of entries written to the journals
+     */
+    public long getAppended() {
+        return appended.get();
+    }
+
+    /**
+     * @return number of entries handed out again as they weren't handled before
+     */
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    /**
+     * @return number of entries that couldn't be read from the journals and were moved to their <code>.corrupt</code> file
+     */
+    public long getCorrupted() {
+        return corrupted.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            IOException failure = null;
+            for (Log log : logs.values()) {
+                try {
+                    log.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            logs.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param entries entries that weren't acknowledged yet, in the order of the feed
+     * @param end     position to {@link #commit} once they were handled
+     */
+    record Pending(List<FeedEntry> entries, long end) {
+    }
+
+    /**
+     * @return the entries after the last acknowledged position
+     */
+    Pending pending(String feed) throws IOException {
+        Log log = log(feed);
+        log.lock.lock();
+        try {
+            long size = log.journal.size();
+            long offset = log.offset();
+            if (offset > size) {
+                // emptied after the last acknowledgement but the offset wasn't reset
+                log.offset(0, true);
+                offset = 0;
+            }
+            List<FeedEntry> entries = new ArrayList<>();
+            if (offset < size) {
+                // not closed as that would close the channel
+                InputStream in = new BufferedInputStream(Channels.newInputStream(log.journal.position(offset)));
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                long position = offset;
+                long end = offset;
+                for (int b = in.read(); b >= 0 && position < size; b = in.read()) {
+                    position++;
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    byte[] entry = line.toByteArray();
+                    line.reset();
+                    end = position;
+                    try {
+                        entries.add(FeedEntry.parse(entry));
+                    } catch (JSONException e) {
+                        quarantine(feed, entry);
+                    }
+                }
+                if (end < size) {
+                    // an incomplete last line was never acknowledged as written, so it's dropped
+                    log.journal.truncate(end);
+                    size = end;
+                }
+                replayed.addAndGet(entries.size());
+            }
+            return new Pending(entries, size);
+        } finally {
+            log.lock.unlock();
+        }
+    }
+
+    /**
+     * Keep a line that can't be read aside (<code>transaction.corrupt</code>) instead of failing every next drain
+     */
+    private void quarantine(String feed, byte[] line) throws IOException {
+        ByteArrayOutputStream corrupt = new ByteArrayOutputStream(line.length + 1);
+        corrupt.write(line, 0, line.length);
+        corrupt.write('\n');
+        Files.write(directory.resolve(feed + ".corrupt"), corrupt.toByteArray(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        corrupted.incrementAndGet();
+    }
+
+    /**
+     * Write the entries (synced if configured) after the existing ones
+     *
+     * @return position to {@link #commit} once the entries were handled
+     */
+    long append(String feed, List<FeedEntry> entries) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (FeedEntry entry : entries) {
+            byte[] json = entry.bytes();
+            lines.write(json, 0, json.length);
+            lines.write('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+        Log log = log(feed);
+        log.lock.lock();
+        try {
+            long position = log.journal.size();
+            while (buffer.hasRemaining()) {
+                position += log.journal.write(buffer, position);
+            }
+            if (fsync) {
+                log.journal.force(false);
+            }
+            appended.addAndGet(entries.size());
+            return position;
+        } finally {
+            log.lock.unlock();
+        }
+    }
+
+    /**
+     * Acknowledge all entries up to the position, as returned by {@link #append} or {@link #pending}
+     */
+    void commit(String feed, long position) throws IOException {
+        Log log = log(feed);
+        log.lock.lock();
+        try {
+            if (position >= compactionThreshold && position == log.journal.size()) {
+                log.journal.truncate(0);
+                // must be on disk before new entries are appended
+                log.offset(0, true);
+            } else {
+                // losing it only means handing out entries again
+                log.offset(position, false);
+            }
+        } finally {
+            log.lock.unlock();
+        }
+    }
+
+    private Log log(String feed) throws IOException {
+        lock.lock();
+        try {
+            Log log = logs.get(feed);
+            if (log == null) {
+                log = new Log(directory.resolve(feed + ".journal"), directory.resolve(feed + ".offset"));
+                logs.put(feed, log);
+            }
+            return log;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Log implements Closeable {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final FileChannel journal;
+        private final FileChannel offset;
+        private final ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+
+        Log(Path journal, Path offset) throws IOException {
+            this.journal = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.offset = FileChannel.open(offset, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        long offset() throws IOException {
+            buffer.clear();
+            while (buffer.hasRemaining() && offset.read(buffer, buffer.position()) > 0) {
+                // read all 8 bytes
+            }
+            return buffer.position() == Long.BYTES ? buffer.getLong(0) : 0;
+        }
+
+        void offset(long position, boolean force) throws IOException {
+            buffer.clear();
+            buffer.putLong(position).flip();
+            while (buffer.hasRemaining()) {
+                offset.write(buffer, buffer.position());
+            }
+            if (force) {
+                offset.force(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                journal.close();
+            } finally {
+                offset.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.twikey;
+
+import com.twikey.callback.DocumentCallback;
+import com.twikey.callback.InvoiceCallback;
+import com.twikey.callback.PaylinkCallback;
+import com.twikey.callback.PaymentCallback;
+import com.twikey.callback.RefundCallback;
+import com.twikey.callback.TransactionCallback;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps reading the feeds in the background, so the application doesn't need its own scheduler. Every feed is drained
+ * on its own schedule and thread, so a slow callback of one feed doesn't hold up the others: while a feed comes back
+ * empty the interval doubles up to the maximum interval, as soon as a feed returns updates it's polled again after the
+ * minimum interval. A failed drain backs off like an empty one. A webhook can trigger an immediate poll using
+ * {@link #wakeUp()}.
+ *
+ * <pre>
+ * FeedPoller poller = new FeedPoller(twikeyClient)
+ *         .transactions(tx -&gt; repository.save(tx))
+ *         .payments(payment -&gt; repository.save(payment))
+ *         .start();
+ * ...
+ * poller.close(); // waits for running drains to finish
+ * </pre>
+ */
+public class FeedPoller implements Closeable {
+
+    public static final String DOCUMENT = FeedDrain.DOCUMENT;
+    public static final String TRANSACTION = FeedDrain.TRANSACTION;
+    public static final String INVOICE = FeedDrain.INVOICE;
+    public static final String PAYMENT = FeedDrain.PAYMENT;
+    public static final String REFUND = FeedDrain.REFUND;
+    public static final String PAYLINK = FeedDrain.PAYLINK;
+
+    private final TwikeyClient twikeyClient;
+    private final Map<String, Poll> polls = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Duration minInterval = Duration.ofSeconds(5);
+    private Duration maxInterval = Duration.ofMinutes(5);
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+    private ScheduledExecutorService scheduler;
+    private boolean closed;
+
+    public FeedPoller(TwikeyClient twikeyClient) {
+        this.twikeyClient = twikeyClient;
+    }
+
+    /**
+     * @param minInterval wait after a drain that returned updates (default 5 seconds)
+     * @param maxInterval longest wait while a feed stays empty (default 5 minutes)
+     */
+    public FeedPoller withInterval(Duration minInterval, Duration maxInterval) {
+        if (minInterval.isNegative() || minInterval.isZero() || maxInterval.compareTo(minInterval) < 0) {
+            throw new IllegalArgumentException("Invalid interval " + minInterval + " - " + maxInterval);
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        return this;
+    }
+
+    /**
+     * @param timeout how long {@link #close()} waits for running drains to finish (default 30 seconds)
+     */
+    public FeedPoller withShutdownTimeout(Duration timeout) {
+        this.shutdownTimeout = timeout;
+        return this;
+    }
+
+    /**
+     * Poll the mandate feed, see {@link DocumentGateway#feed(DocumentCallback)}
+     */
+    public FeedPoller documents(DocumentCallback callback) {
+        return register(DOCUMENT, FeedDrain.documents(twikeyClient, callback));
+    }
+
+    /**
+     * Poll the transaction feed, see {@link TransactionGateway#feed(TransactionCallback, String...)}
+     */
+    public FeedPoller transactions(TransactionCallback callback, String... sideloads) {
+        return register(TRANSACTION, FeedDrain.transactions(twikeyClient, callback, sideloads));
+    }
+
+    /**
+     * Poll the invoice feed, see {@link InvoiceGateway#feed(InvoiceCallback, String...)}
+     */
+    public FeedPoller invoices(InvoiceCallback callback, String... sideloads) {
+        return register(INVOICE, FeedDrain.invoices(twikeyClient, callback, sideloads));
+    }
+
+    /**
+     * Poll the payment feed, see {@link InvoiceGateway#payment(PaymentCallback)}
+     */
+    public FeedPoller payments(PaymentCallback callback) {
+        return register(PAYMENT, FeedDrain.payments(twikeyClient, callback));
+    }
+
+    /**
+     * Poll the refund feed, see {@link RefundGateway#feed(RefundCallback, String...)}
+     */
+    public FeedPoller refunds(RefundCallback callback, String... sideloads) {
+        return register(REFUND, FeedDrain.refunds(twikeyClient, callback, sideloads));
+    }
+
+    /**
+     * Poll the paylink feed, see {@link PaylinkGateway#feed(PaylinkCallback, String...)}
+     */
+    public FeedPoller paylinks(PaylinkCallback callback, String... sideloads) {
+        return register(PAYLINK, FeedDrain.paylinks(twikeyClient, callback, sideloads));
+    }
+
+    /**
+     * Start polling all registered feeds, the first poll of every feed happens right away
+     */
+    public FeedPoller start() {
+        lock.lock();
+        try {
+            if (scheduler != null || closed) {
+                throw new IllegalStateException("Poller was already started");
+            }
+            // a feed is never drained concurrently with itself, so a thread per feed lets all of them run at once
+            scheduler = Executors.newScheduledThreadPool(Math.max(1, polls.size()), runnable -> {
+                Thread thread = new Thread(runnable, "twikey-poller");
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (Poll poll : polls.values()) {
+                poll.wakeUp();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Poll all feeds right away (eg. when a webhook was received), a feed that is being drained is drained again
+     * once done
+     */
+    public void wakeUp() {
+        lock.lock();
+        try {
+            if (scheduler != null && !closed) {
+                for (Poll poll : polls.values()) {
+                    poll.wakeUp();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Poll a single feed right away
+     *
+     * @param feed one of the feed constants (eg. {@link #TRANSACTION})
+     */
+    public void wakeUp(String feed) {
+        lock.lock();
+        try {
+            Poll poll = polls.get(feed);
+            if (poll == null) {
+                throw new IllegalArgumentException("Feed not polled: " + feed);
+            }
+            if (scheduler != null && !closed) {
+                poll.wakeUp();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return statistics by feed, in the order the feeds were registered
+     */
+    public Map<String, Stats> getStats() {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, Poll> poll : polls.entrySet()) {
+                stats.put(poll.getKey(), poll.getValue().stats());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * Stop polling and wait for the running drains to finish
+     *
+     * @return false if a drain was still running after the timeout
+     */
+    public boolean shutdown(Duration timeout) throws InterruptedException {
+        ScheduledExecutorService running;
+        lock.lock();
+        try {
+            closed = true;
+            for (Poll poll : polls.values()) {
+                poll.cancel();
+            }
+            running = scheduler;
+        } finally {
+            lock.unlock();
+        }
+        if (running == null) {
+            return true;
+        }
+        running.shutdown();
+        return running.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Same as {@link #shutdown(Duration)} with the configured shutdown timeout
+     */
+    @Override
+    public void close() {
+        try {
+            shutdown(shutdownTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param polls       number of times the feed was drained
+     * @param entries     number of updates handed to the callback
+     * @param failures    number of drains that failed
+     * @param interval    wait before the next poll
+     * @param lastPoll    end of the last drain, null if not polled yet
+     * @param lastFailure failure of the last drain, null if it succeeded
+     */
+    public record Stats(long polls, long entries, long failures, Duration interval, Instant lastPoll, Throwable lastFailure) {
+    }
+
+    private FeedPoller register(String name, FeedDrain drain) {
+        lock.lock();
+        try {
+            if (scheduler != null || closed) {
+                throw new IllegalStateException("Feeds can't be added once started");
+            }
+            polls.put(name, new Poll(drain));
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    private final class Poll implements Runnable {
+        private final FeedDrain drain;
+        private final AtomicLong entries = new AtomicLong();
+
+        // guarded by the lock of the poller
+        private Duration interval = minInterval;
+        private ScheduledFuture<?> next;
+        private boolean running;
+        private boolean wake;
+        private long count;
+        private long failures;
+        private Instant lastPoll;
+        private Throwable lastFailure;
+
+        Poll(FeedDrain drain) {
+            this.drain = drain;
+        }
+
+        @Override
+        public void run() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                running = true;
+                wake = false;
+                next = null;
+            } finally {
+                lock.unlock();
+            }
+            long before = entries.get();
+            Throwable failure = null;
+            try {
+                drain.drain(entries);
+            } catch (IOException | TwikeyClient.UserException | RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                // also after an error, otherwise the feed is never polled again
+                finished(entries.get() - before, failure);
+            }
+        }
+
+        private void finished(long found, Throwable failure) {
+            lock.lock();
+            try {
+                running = false;
+                count++;
+                lastPoll = Instant.now();
+                lastFailure = failure;
+                if (failure != null) {
+                    failures++;
+                }
+                if (found > 0 && failure == null) {
+                    interval = minInterval;
+                } else {
+                    Duration doubled = interval.multipliedBy(2);
+                    interval = doubled.compareTo(maxInterval) > 0 ? maxInterval : doubled;
+                }
+                if (!closed) {
+                    next = scheduler.schedule(this, wake ? 0 : interval.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // called with the lock of the poller held
+        void wakeUp() {
+            if (running) {
+                wake = true;
+            } else if (next == null || next.cancel(false)) {
+                next = scheduler.schedule(this, 0, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void cancel() {
+            if (next != null) {
+                next.cancel(false);
+                next = null;
+            }
+        }
+
+        Stats stats() {
+            return new Stats(count, entries.get(), failures, interval, lastPoll, lastFailure);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.twikey;
+
+import com.twikey.modal.JsonReader;
+import org.json.JSONException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the entries of a feed page (eg. the <code>Entries</code> of <code>{"Entries":[{...},{...}]}</code>) one at a
+ * time while the response is being received. Only the bytes of the entry being returned are kept in memory instead of
+ * the whole page, so a callback can handle the first entry before the last one arrived. An entry is only delimited
+ * here, it's decoded by the mapper of the feed.
+ *
+ * <pre>
+ * try (FeedReader entries = new FeedReader(response.body(), "Entries")) {
+ *     while (entries.hasNext()) {
+ *         FeedEntry entry = entries.next();
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+class FeedReader implements Iterator<FeedEntry>, Closeable {
+
+    private static final int NONE = -2;
+
+    private final InputStream body;
+    private final String array;
+    private final byte[] buffer = new byte[8 * 1024];
+    private final ByteArrayOutputStream value = new ByteArrayOutputStream(1024);
+    private int pos;
+    private int limit;
+    private int pushedBack = NONE;
+
+    private boolean started;
+    private boolean done;
+    private FeedEntry next;
+
+    /**
+     * @param body  body of the response, closed when all entries were read
+     * @param array name of the array holding the entries
+     */
+    FeedReader(InputStream body, String array) {
+        this.body = body;
+        this.array = array;
+    }
+
+    /**
+     * @param body  body of the response
+     * @param array name of the array holding the entries
+     */
+    FeedReader(String body, String array) {
+        this(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), array);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public FeedEntry next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        FeedEntry entry = next;
+        next = null;
+        return entry;
+    }
+
+    @Override
+    public void close() throws IOException {
+        done = true;
+        body.close();
+    }
+
+    private FeedEntry advance() {
+        int c;
+        if (!started) {
+            started = true;
+            seek();
+            c = nextClean();
+        } else {
+            c = nextClean();
+            if (c != ']') {
+                if (c != ',') {
+                    throw syntaxError("Expected a ',' or ']'");
+                }
+                c = nextClean();
+            }
+        }
+        if (c == ']') {
+            return finish();
+        }
+        if (c != '{') {
+            throw syntaxError("JSONArray[" + array + "] should only contain objects");
+        }
+        value.reset();
+        copy(c, value);
+        return new FeedEntry(value.toByteArray());
+    }
+
+    /**
+     * Skip the members before the array and position the reader after its opening bracket
+     */
+    private void seek() {
+        if (nextClean() != '{') {
+            throw syntaxError("A JSONObject text must begin with '{'");
+        }
+        int c = nextClean();
+        while (c != '}') {
+            if (c != '"') {
+                throw syntaxError("Expected a key");
+            }
+            value.reset();
+            copy(c, value);
+            String key = new JsonReader(value.toByteArray()).nextString();
+            if (nextClean() != ':') {
+                throw syntaxError("Expected a ':' after a key");
+            }
+            if (key.equals(array)) {
+                if (nextClean() != '[') {
+                    throw new JSONException("JSONObject[\"" + array + "\"] is not a JSONArray.");
+                }
+                return;
+            }
+            copy(nextClean(), null);
+            c = nextClean();
+            if (c == ',') {
+                c = nextClean();
+            } else if (c != '}') {
+                throw syntaxError("Expected a ',' or '}'");
+            }
+        }
+        throw new JSONException("JSONObject[\"" + array + "\"] not found.");
+    }
+
+    /**
+     * Read the value starting with the given byte, copying it without the whitespace in between its tokens
+     *
+     * @param out receives the value, null to skip it
+     */
+    private void copy(int first, ByteArrayOutputStream out) {
+        int depth = 0;
+        int c = first;
+        while (true) {
+            switch (c) {
+                case -1 -> throw syntaxError("Unexpected end of the page");
+                case '"' -> string(out);
+                case '{', '[' -> {
+                    write(out, c);
+                    depth++;
+                }
+                case '}', ']' -> {
+                    write(out, c);
+                    depth--;
+                }
+                case ',', ':' -> write(out, c);
+                default -> literal(c, out);
+            }
+            if (depth <= 0) {
+                return;
+            }
+            c = nextClean();
+        }
+    }
+
+    /**
+     * Copy the string after its opening quote as is, escapes included
+     */
+    private void string(ByteArrayOutputStream out) {
+        write(out, '"');
+        while (true) {
+            int c = read();
+            if (c < 0) {
+                throw syntaxError("Unterminated string");
+            }
+            write(out, c);
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                int escaped = read();
+                if (escaped < 0) {
+                    throw syntaxError("Unterminated string");
+                }
+                write(out, escaped);
+            }
+        }
+    }
+
+    private void literal(int first, ByteArrayOutputStream out) {
+        int c = first;
+        while (c >= 0 && c != ',' && c != '}' && c != ']' && c != ':' && !whitespace(c)) {
+            write(out, c);
+            c = read();
+        }
+        pushedBack = c;
+    }
+
+    private static void write(ByteArrayOutputStream out, int c) {
+        if (out != null) {
+            out.write(c);
+        }
+    }
+
+    private int nextClean() {
+        int c = read();
+        while (whitespace(c)) {
+            c = read();
+        }
+        return c;
+    }
+
+    private static boolean whitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * @return next byte of the body, -1 at the end
+     */
+    private int read() {
+        if (pushedBack != NONE) {
+            int c = pushedBack;
+            pushedBack = NONE;
+            return c;
+        }
+        if (pos == limit) {
+            try {
+                // hands out what arrived so far instead of waiting for a full buffer
+                do {
+                    limit = body.read(buffer);
+                } while (limit == 0);
+            } catch (IOException e) {
+                // like the tokener of org.json
+                throw new JSONException(e);
+            }
+            pos = 0;
+            if (limit < 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++] & 0xff;
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " in the page of " + array);
+    }
+
+    /**
+     * The remainder of the page (if any) isn't needed, release the connection
+     */
+    private FeedEntry finish() {
+        try {
+            close();
+        } catch (IOException ignore) {
+            // nothing left to read
+        }
+        return null;
+    }
+}
@@ -0,0 +1,279 @@
+package com.twikey;
+
+import com.twikey.callback.DocumentCallback;
+import com.twikey.callback.InvoiceCallback;
+import com.twikey.callback.PaylinkCallback;
+import com.twikey.callback.PaymentCallback;
+import com.twikey.callback.RefundCallback;
+import com.twikey.callback.TransactionCallback;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drains multiple feeds at the same time on a bounded pool of workers, so catching up takes as long as the slowest
+ * feed instead of the sum of all feeds. Feeds are isolated from each other: a failing or slow feed doesn't stop or
+ * delay the others (unless all workers are busy) and every feed reports its own progress and failure.
+ *
+ * <p>The workers of the scheduler stop when they were idle for a minute or when the scheduler is closed, a scheduler
+ * can be kept to drain the same feeds again.</p>
+ *
+ * <pre>
+ * try (FeedScheduler feeds = twikeyClient.feeds()) {
+ *     Map&lt;String, FeedScheduler.Progress&gt; progress = feeds
+ *             .documents(documentCallback)
+ *             .transactions(tx -&gt; repository.save(tx))
+ *             .payments(payment -&gt; repository.save(payment))
+ *             .drain();
+ * }
+ * </pre>
+ */
+public class FeedScheduler implements Closeable {
+
+    public enum State {
+        IDLE,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    /**
+     * @param state    state of the last drain of the feed
+     * @param entries  number of updates handed to the callback by the last drain
+     * @param elapsed  duration of the last drain so far
+     * @param failure  failure of the last drain, null unless failed
+     */
+    public record Progress(State state, long entries, Duration elapsed, Throwable failure) {
+    }
+
+    private final TwikeyClient twikeyClient;
+    private final Map<String, Task> tasks = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int workers = 4;
+    private Executor executor;
+    private ExecutorService owned;
+
+    FeedScheduler(TwikeyClient twikeyClient) {
+        this.twikeyClient = twikeyClient;
+    }
+
+    /**
+     * @param workers number of feeds drained at the same time (default 4), on daemon threads of the scheduler
+     */
+    public FeedScheduler withWorkers(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("At least 1 worker is required");
+        }
+        this.workers = workers;
+        return this;
+    }
+
+    /**
+     * @param executor runs the drains instead of the threads of the scheduler, eg. a pool shared with the application
+     */
+    public FeedScheduler withExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Drain the mandate feed, see {@link DocumentGateway#feed(DocumentCallback)}
+     */
+    public FeedScheduler documents(DocumentCallback callback) {
+        return register(FeedDrain.DOCUMENT, FeedDrain.documents(twikeyClient, callback));
+    }
+
+    /**
+     * Drain the transaction feed, see {@link TransactionGateway#feed(TransactionCallback, String...)}
+     */
+    public FeedScheduler transactions(TransactionCallback callback, String... sideloads) {
+        return register(FeedDrain.TRANSACTION, FeedDrain.transactions(twikeyClient, callback, sideloads));
+    }
+
+    /**
+     * Drain the invoice feed, see {@link InvoiceGateway#feed(InvoiceCallback, String...)}
+     */
+    public FeedScheduler invoices(InvoiceCallback callback, String... sideloads) {
+        return register(FeedDrain.INVOICE, FeedDrain.invoices(twikeyClient, callback, sideloads));
+    }
+
+    /**
+     * Drain the payment feed, see {@link InvoiceGateway#payment(PaymentCallback)}
+     */
+    public FeedScheduler payments(PaymentCallback callback) {
+        return register(FeedDrain.PAYMENT, FeedDrain.payments(twikeyClient, callback));
+    }
+
+    /**
+     * Drain the refund feed, see {@link RefundGateway#feed(RefundCallback, String...)}
+     */
+    public FeedScheduler refunds(RefundCallback callback, String... sideloads) {
+        return register(FeedDrain.REFUND, FeedDrain.refunds(twikeyClient, callback, sideloads));
+    }
+
+    /**
+     * Drain the paylink feed, see {@link PaylinkGateway#feed(PaylinkCallback, String...)}
+     */
+    public FeedScheduler paylinks(PaylinkCallback callback, String... sideloads) {
+        return register(FeedDrain.PAYLINK, FeedDrain.paylinks(twikeyClient, callback, sideloads));
+    }
+
+    /**
+     * Drain all registered feeds at the same time and wait until all of them are drained or failed. A feed that is
+     * still being drained by a previous call isn't drained a second time.
+     *
+     * @return progress by feed (see the constants of {@link FeedPoller}), in the order the feeds were registered
+     */
+    public Map<String, Progress> drain() throws InterruptedException {
+        try {
+            return drainAsync().get();
+        } catch (ExecutionException e) {
+            // failures are kept per feed
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #drain()}
+     */
+    public CompletableFuture<Map<String, Progress>> drainAsync() {
+        List<CompletableFuture<Void>> drains = new ArrayList<>();
+        lock.lock();
+        try {
+            Executor pool = pool();
+            for (Task task : tasks.values()) {
+                drains.add(task.start(pool));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return CompletableFuture.allOf(drains.toArray(new CompletableFuture<?>[0])).thenApply(done -> getProgress());
+    }
+
+    /**
+     * @return progress by feed, also while they're being drained
+     */
+    public Map<String, Progress> getProgress() {
+        Map<String, Progress> progress = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            for (Map.Entry<String, Task> task : tasks.entrySet()) {
+                progress.put(task.getKey(), task.getValue().progress());
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Collections.unmodifiableMap(progress);
+    }
+
+    private FeedScheduler register(String name, FeedDrain drain) {
+        lock.lock();
+        try {
+            tasks.put(name, new Task(drain));
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Stop the workers of the scheduler once the running drains are done, an executor set via
+     * {@link #withExecutor(Executor)} is left running. Drains started afterwards are rejected.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (owned != null) {
+                owned.shutdown();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // called with the lock held
+    private Executor pool() {
+        if (executor == null) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "twikey-feeds");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // a scheduler that isn't closed doesn't hold on to its threads
+            pool.allowCoreThreadTimeOut(true);
+            owned = pool;
+            executor = pool;
+        }
+        return executor;
+    }
+
+    private final class Task {
+        private final FeedDrain drain;
+        private final AtomicLong entries = new AtomicLong();
+
+        // guarded by the lock of the scheduler
+        private CompletableFuture<Void> running;
+        private State state = State.IDLE;
+        private long started;
+        private long finished;
+        private Throwable failure;
+
+        Task(FeedDrain drain) {
+            this.drain = drain;
+        }
+
+        // called with the lock held
+        CompletableFuture<Void> start(Executor pool) {
+            if (running != null) {
+                return running;
+            }
+            state = State.RUNNING;
+            failure = null;
+            entries.set(0);
+            started = System.nanoTime();
+            running = CompletableFuture.runAsync(this::run, pool);
+            return running;
+        }
+
+        private void run() {
+            Throwable failed = null;
+            try {
+                drain.drain(entries);
+            } catch (IOException | TwikeyClient.UserException | RuntimeException e) {
+                failed = e;
+            }
+            lock.lock();
+            try {
+                finished = System.nanoTime();
+                failure = failed;
+                state = failed == null ? State.DONE : State.FAILED;
+                running = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // called with the lock held
+        Progress progress() {
+            long end = state == State.RUNNING ? System.nanoTime() : finished;
+            return new Progress(state, entries.get(), state == State.IDLE ? Duration.ZERO : Duration.ofNanos(end - started), failure);
+        }
+    }
+}
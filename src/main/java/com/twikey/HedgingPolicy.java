@@ -0,0 +1,249 @@
+package com.twikey;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Hedges idempotent lookups: when a GET didn't get an answer within a percentile of the recent latency of its
+ * {@link EndpointFamily}, an identical request is sent. The first response is used and the other request is cancelled.
+ * A budget limits the additional load on the api.
+ *
+ * <pre>
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey)
+ *      .withHedging(new HedgingPolicy().withPercentile(0.95).withBudget(0.05, 5));
+ * </pre>
+ */
+public class HedgingPolicy {
+
+    private static final int SAMPLES = 256;
+
+    private final Map<EndpointFamily, Latencies> latencies = new EnumMap<>(EndpointFamily.class);
+
+    private double percentile = 0.95;
+    private long minDelay = Duration.ofMillis(10).toNanos();
+    private int minSamples = 20;
+    private double budgetRatio = 0.05;
+    private double budgetReserve = 5;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private double budget = budgetReserve;
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgesWon = new AtomicLong();
+
+    public HedgingPolicy() {
+        for (EndpointFamily family : EndpointFamily.values()) {
+            latencies.put(family, new Latencies());
+        }
+    }
+
+    /**
+     * @param percentile percentile of the recent latency after which the request is hedged (default 0.95)
+     */
+    public HedgingPolicy withPercentile(double percentile) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("Invalid percentile " + percentile);
+        }
+        this.percentile = percentile;
+        return this;
+    }
+
+    /**
+     * @param minDelay   never hedge sooner than this (default 10ms)
+     * @param minSamples number of responses required before hedging starts (default 20)
+     */
+    public HedgingPolicy withMinimum(Duration minDelay, int minSamples) {
+        if (minDelay.isNegative() || minSamples < 1 || minSamples > SAMPLES) {
+            throw new IllegalArgumentException("Invalid minimum %s with %d samples".formatted(minDelay, minSamples));
+        }
+        this.minDelay = minDelay.toNanos();
+        this.minSamples = minSamples;
+        return this;
+    }
+
+    /**
+     * @param ratio   fraction of the requests that can be hedged (default 0.05)
+     * @param reserve number of hedges available at start and maximum saved up (default 5)
+     */
+    public HedgingPolicy withBudget(double ratio, int reserve) {
+        if (ratio < 0 || reserve < 0) {
+            throw new IllegalArgumentException("Invalid budget %s with reserve %d".formatted(ratio, reserve));
+        }
+        lock.lock();
+        try {
+            this.budgetRatio = ratio;
+            this.budgetReserve = reserve;
+            this.budget = reserve;
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * @return number of additional requests sent
+     */
+    public long getHedges() {
+        return hedges.get();
+    }
+
+    /**
+     * @return number of times the additional request answered first
+     */
+    public long getHedgesWon() {
+        return hedgesWon.get();
+    }
+
+    /**
+     * @param family  family of the endpoint being called
+     * @param call    sends the request
+     * @param delayed provides an executor running after the given nanoseconds
+     * @return future with the first successful response
+     */
+    <T> CompletableFuture<HttpResponse<T>> run(EndpointFamily family, Supplier<CompletableFuture<HttpResponse<T>>> call, LongFunction<Executor> delayed) {
+        deposit();
+        Latencies familyLatencies = latencies.get(family);
+        long delay = familyLatencies.percentile();
+        if (delay < 0) {
+            return timed(familyLatencies, call);
+        }
+        Race<T> race = new Race<>();
+        race.add(timed(familyLatencies, call), false);
+        CompletableFuture.runAsync(() -> {
+            if (race.result.isDone() || !withdraw()) {
+                return;
+            }
+            hedges.incrementAndGet();
+            CompletableFuture<HttpResponse<T>> hedge;
+            try {
+                hedge = timed(familyLatencies, call);
+            } catch (RuntimeException e) {
+                hedge = CompletableFuture.failedFuture(e);
+            }
+            race.add(hedge, true);
+        }, delayed.apply(Math.max(delay, minDelay)));
+        return race.result;
+    }
+
+    /**
+     * @return the future of the call, recording its latency when it completes
+     */
+    private <T> CompletableFuture<HttpResponse<T>> timed(Latencies familyLatencies, Supplier<CompletableFuture<HttpResponse<T>>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<T>> response = call.get();
+        response.whenComplete((r, t) -> {
+            if (r != null) {
+                familyLatencies.record(System.nanoTime() - start);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * The first successful response completes the result and cancels the other request, a failure only completes
+     * the result when no other request is outstanding.
+     */
+    private class Race<T> {
+        private final CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        private final List<CompletableFuture<HttpResponse<T>>> attempts = new CopyOnWriteArrayList<>();
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicBoolean answered = new AtomicBoolean();
+
+        Race() {
+            result.whenComplete((r, t) -> attempts.forEach(attempt -> attempt.cancel(true)));
+        }
+
+        void add(CompletableFuture<HttpResponse<T>> attempt, boolean isHedge) {
+            outstanding.incrementAndGet();
+            attempts.add(attempt);
+            attempt.whenComplete((r, t) -> {
+                if (t == null) {
+                    if (answered.compareAndSet(false, true)) {
+                        if (isHedge) {
+                            hedgesWon.incrementAndGet();
+                        }
+                        if (result.complete(r)) {
+                            return;
+                        }
+                    }
+                    RetryPolicy.discard(r);
+                } else if (outstanding.decrementAndGet() == 0) {
+                    result.completeExceptionally(t);
+                }
+            });
+            if (result.isDone()) {
+                attempt.cancel(true);
+            }
+        }
+    }
+
+    private void deposit() {
+        lock.lock();
+        try {
+            budget = Math.min(budgetReserve, budget + budgetRatio);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean withdraw() {
+        lock.lock();
+        try {
+            if (budget >= 1) {
+                budget--;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class Latencies {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] samples = new long[SAMPLES];
+        private int index;
+        private int count;
+
+        void record(long latency) {
+            lock.lock();
+            try {
+                samples[index] = latency;
+                index = (index + 1) % samples.length;
+                count = Math.min(count + 1, samples.length);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return the configured percentile of the recent latencies or -1 when there aren't enough samples yet
+         */
+        long percentile() {
+            long[] sorted;
+            lock.lock();
+            try {
+                if (count < minSamples) {
+                    return -1;
+                }
+                sorted = Arrays.copyOf(samples, count);
+            } finally {
+                lock.unlock();
+            }
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+        }
+    }
+}
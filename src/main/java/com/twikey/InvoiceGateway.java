@@ -1,21 +1,13 @@
 package com.twikey;
 
+import com.twikey.callback.BatchCallback;
 import com.twikey.callback.InvoiceCallback;
 import com.twikey.callback.PaymentCallback;
 import com.twikey.modal.InvoiceRequests;
 import com.twikey.modal.InvoiceResponse;
-import com.twikey.modal.ResponseUtils;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONTokener;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.file.Path;
-import java.util.Map;
+import java.util.stream.Stream;
 
 import static com.twikey.TwikeyClient.*;
 
@@ -45,22 +37,7 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException When Twikey returns a user error (400)
      */
     public InvoiceResponse.Invoice create(InvoiceRequests.CreateInvoiceRequest create) throws IOException, TwikeyClient.UserException {
-        JSONObject requestMap = create.toRequest();
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice"))
-                .header("Content-Type", HTTP_APPLICATION_JSON)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(String.valueOf(requestMap)))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return InvoiceResponse.Invoice.fromJson(json);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().invoice().create(create));
     }
 
     /**
@@ -79,22 +56,7 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException If the API returns an error response.
      */
     public InvoiceResponse.Invoice update(InvoiceRequests.UpdateInvoiceRequest update) throws IOException, TwikeyClient.UserException {
-
-        JSONObject requestMap = update.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/%s".formatted(requestMap.get("id"))))
-                .header("Content-Type", HTTP_APPLICATION_JSON)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .PUT(HttpRequest.BodyPublishers.ofString(String.valueOf(requestMap)))
-                .build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return InvoiceResponse.Invoice.fromJson(json);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().invoice().update(update));
     }
 
     /**
@@ -111,17 +73,7 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException If the API returns an error response.
      */
     public void delete(String delete) throws IOException, TwikeyClient.UserException {
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/%s".formatted(delete))).DELETE()
-                .header("Content-Type", HTTP_APPLICATION_JSON)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 204) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().invoice().delete(delete));
     }
 
     /**
@@ -141,22 +93,7 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException If the API returns an error response.
      */
     public InvoiceResponse.Invoice details(InvoiceRequests.InvoiceDetailRequest details) throws IOException, TwikeyClient.UserException {
-
-        Map<String, String> params = details.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/%s?%s".formatted(params.get("invoice"), params.get("include"))))
-                .header("Content-Type", HTTP_APPLICATION_JSON)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return InvoiceResponse.Invoice.fromJson(json);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().invoice().details(details));
     }
 
     /**
@@ -173,19 +110,7 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException If the API rejects the request or returns a user-related error.
      */
     public void action(InvoiceRequests.InvoiceActionRequest action) throws IOException, TwikeyClient.UserException {
-
-        Map<String, String> params = action.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/%s/action".formatted(params.get("id"))))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
-                .build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 204) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().invoice().action(action));
     }
 
     /**
@@ -203,24 +128,7 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException If the API rejects the request or returns a user-related error.
      */
     public InvoiceResponse.Invoice uploadUbl(InvoiceRequests.UblUploadRequest Ubl) throws IOException, TwikeyClient.UserException {
-
-        Map<String, String> headers = Ubl.toHeaders();
-        HttpRequest.Builder builder = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/ubl"))
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofFile(Path.of(Ubl.getXmlPath())));
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            builder.header(entry.getKey(), entry.getValue());
-        }
-        HttpRequest request = builder.build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return InvoiceResponse.Invoice.fromJson(json);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().invoice().uploadUbl(Ubl));
     }
 
     /**
@@ -238,20 +146,7 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException If the API rejects the request or returns a user-related error.
      */
     public String createBatch(InvoiceRequests.BulkInvoiceRequest batch) throws IOException, TwikeyClient.UserException {
-        JSONArray jsonArray = batch.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/bulk"))
-                .header("Content-Type", HTTP_APPLICATION_JSON)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(String.valueOf(jsonArray)))
-                .build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            return new JSONObject(new JSONTokener(response.body())).getString("batchId");
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().invoice().createBatch(batch));
     }
 
     /**
@@ -269,26 +164,9 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException If the API rejects the request or returns a user-related error.
      */
     public InvoiceResponse.BulkInvoiceDetail batchDetails(String batchId) throws IOException, TwikeyClient.UserException {
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/bulk?batchId=%s".formatted(batchId)))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONArray array = new JSONArray(new JSONTokener(response.body()));
-            return InvoiceResponse.BulkInvoiceDetail.fromJson(batchId, array);
-        } else if (response.statusCode() == 409) {
-            return InvoiceResponse.BulkInvoiceDetail.PENDING;
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().invoice().batchDetails(batchId));
     }
 
-
     /**
      * Get updates about all invoice states (BOOKED, PENDING, EXPIRED, PAID)
      *
@@ -298,36 +176,41 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException When there was an issue while retrieving the invoice states (eg. invalid apikey)
      */
     public void feed(InvoiceCallback invoiceCallback, String... sideloads) throws IOException, TwikeyClient.UserException {
+        newFeed(sideloads).drain(invoiceCallback::invoice);
+    }
 
-        boolean isEmpty;
-        do {
-            HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice", sideloads))
-                    .headers("Content-Type", HTTP_FORM_ENCODED)
-                    .headers("User-Agent", twikeyClient.getUserAgent())
-                    .headers("Authorization", twikeyClient.getSessionToken())
-                    .GET()
-                    .build();
-            HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-            int responseCode = response.statusCode();
-            if (responseCode == 200) {
-                try {
-                    JSONObject json = new JSONObject(new JSONTokener(response.body()));
+    /**
+     * Same as {@link #feed(InvoiceCallback, String...)} but handing all updates of a page to the callback at once
+     *
+     * @param callback Callback for every page of updated invoices
+     * @param sideloads items to include in the sideloading
+     * @throws IOException                When a network issue happened
+     * @throws TwikeyClient.UserException When there was an issue while retrieving the invoices (eg. invalid apikey)
+     */
+    public void feedBatch(BatchCallback<InvoiceResponse.Invoice> callback, String... sideloads) throws IOException, TwikeyClient.UserException {
+        newFeed(sideloads).drainBatches(callback::batch);
+    }
 
-                    JSONArray invoicesArr = json.getJSONArray("Invoices");
-                    isEmpty = invoicesArr.isEmpty();
-                    if (!invoicesArr.isEmpty()) {
-                        for (int i = 0; i < invoicesArr.length(); i++) {
-                            JSONObject obj = invoicesArr.getJSONObject(i);
-                            invoiceCallback.invoice(InvoiceResponse.Invoice.fromJson(obj));
-                        }
-                    }
-                } catch (JSONException e) {
-                    throw new RuntimeException(e);
-                }
-            } else {
-                throw new TwikeyClient.UserException(apiError(response));
-            }
-        } while (!isEmpty);
+    /**
+     * Lazy variant of {@link #feed(InvoiceCallback, String...)}, the next page is only fetched once the stream is consumed past
+     * the current one so it can be limited (eg. <code>feedStream().limit(500)</code>) without draining the feed.
+     * As the api considers a page delivered once it was fetched, entries of the last page that weren't consumed
+     * aren't returned again. Close the stream when it wasn't consumed completely.
+     *
+     * @param sideloads items to include in the sideloading
+     * @return stream of updated invoices
+     * @throws java.io.UncheckedIOException when a page couldn't be retrieved (wrapping a {@link TwikeyClient.UserException} when refused by the api)
+     */
+    public Stream<InvoiceResponse.Invoice> feedStream(String... sideloads) {
+        return newFeed(sideloads).stream();
+    }
+
+    Feed<InvoiceResponse.Invoice> newFeed(String... sideloads) {
+        return new Feed<>(twikeyClient, "/invoice", "Invoices", sideloads, entry -> {
+            InvoiceResponse.Invoice invoice = twikeyClient.getJsonCodec().invoice(entry.stream());
+            twikeyClient.invalidate(EndpointFamily.INVOICE, invoice.getId(), invoice.getNumber());
+            return invoice;
+        }, InvoiceResponse.Invoice::getId, invoice -> invoice.getId() + ":" + invoice.getState());
     }
 
     /**
@@ -338,35 +221,36 @@ public class InvoiceGateway {
      * @throws TwikeyClient.UserException When there was an issue while retrieving the mandates (eg. invalid apikey)
      */
     public void payment(PaymentCallback paymentCallback) throws IOException, TwikeyClient.UserException {
-        boolean isEmpty;
-        do {
-            HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/invoice/payment/feed"))
-                    .headers("Content-Type", HTTP_FORM_ENCODED)
-                    .headers("User-Agent", twikeyClient.getUserAgent())
-                    .headers("Authorization", twikeyClient.getSessionToken())
-                    .GET()
-                    .build();
-            HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-            int responseCode = response.statusCode();
-            if (responseCode == 200) {
-                try {
-                    JSONObject json = new JSONObject(new JSONTokener(response.body()));
+        newPaymentFeed().drain(paymentCallback::payment);
+    }
+
+    /**
+     * Same as {@link #payment(PaymentCallback)} but handing all updates of a page to the callback at once
+     *
+     * @param callback Callback for every page of payments
+     * @throws IOException                When a network issue happened
+     * @throws TwikeyClient.UserException When there was an issue while retrieving the payments (eg. invalid apikey)
+     */
+    public void paymentBatch(BatchCallback<InvoiceResponse.Event> callback) throws IOException, TwikeyClient.UserException {
+        newPaymentFeed().drainBatches(callback::batch);
+    }
 
-                    JSONArray invoicesArr = json.getJSONArray("Payments");
-                    isEmpty = invoicesArr.isEmpty();
-                    if (!invoicesArr.isEmpty()) {
-                        for (int i = 0; i < invoicesArr.length(); i++) {
-                            JSONObject obj = invoicesArr.getJSONObject(i);
-                            paymentCallback.payment(InvoiceResponse.Event.fromJson(obj));
-                        }
-                    }
-                } catch (JSONException e) {
-                    throw new RuntimeException(e);
-                }
-            } else {
-                throw new TwikeyClient.UserException(apiError(response));
-            }
-        } while (!isEmpty);
+    /**
+     * Lazy variant of {@link #payment(PaymentCallback)}, the next page is only fetched once the stream is consumed past
+     * the current one so it can be limited (eg. <code>paymentStream().limit(500)</code>) without draining the feed.
+     * As the api considers a page delivered once it was fetched, entries of the last page that weren't consumed
+     * aren't returned again. Close the stream when it wasn't consumed completely.
+     *
+     * @return stream of payments
+     * @throws java.io.UncheckedIOException when a page couldn't be retrieved (wrapping a {@link TwikeyClient.UserException} when refused by the api)
+     */
+    public Stream<InvoiceResponse.Event> paymentStream() {
+        return newPaymentFeed().stream();
+    }
+
+    Feed<InvoiceResponse.Event> newPaymentFeed() {
+        return new Feed<>(twikeyClient, "/invoice/payment/feed", "Payments", null, entry -> InvoiceResponse.Event.fromJson(entry.tree()),
+                payment -> payment.origin() == null ? null : payment.origin().id(), InvoiceResponse.Event::eventId);
     }
 
     /**
@@ -392,31 +276,7 @@ public class InvoiceGateway {
      */
     public InvoiceResponse.Pdf pdf(InvoiceRequests.InvoicePdfRequest request)
             throws IOException, TwikeyClient.UserException {
-        HttpRequest httpRequest = HttpRequest.newBuilder(
-                        twikeyClient.getUrl("/invoice/%s/pdf".formatted(request.id()))
-                )
-                .header("Accept", "application/pdf")
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-
-        HttpResponse<InputStream> response = twikeyClient.send(
-                httpRequest,
-                HttpResponse.BodyHandlers.ofInputStream()
-        );
-
-
-        if (response.statusCode() == 200) {
-            String filename = ResponseUtils.extractFilenameFromContentDisposition(response.headers())
-                    .orElse(request.id() + ".pdf");
-
-            return new InvoiceResponse.Pdf(response.body(), filename);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().invoice().pdf(request));
     }
 
-
-
 }
@@ -0,0 +1,89 @@
+package com.twikey;
+
+import com.twikey.modal.JsonReader;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Receives a JSON response as the bytes of the HTTP chunks and hands it out as {@link JsonReader}, without decoding
+ * the body into a String first. The chunks are copied once into a buffer sized after the <code>Content-Length</code>,
+ * the reader then only decodes the values the model reads.
+ *
+ * <pre>
+ * HttpResponse&lt;JsonReader&gt; response = twikeyClient.send(request, JsonBodyHandler.INSTANCE);
+ * </pre>
+ */
+final class JsonBodyHandler implements HttpResponse.BodyHandler<JsonReader> {
+
+    static final JsonBodyHandler INSTANCE = new JsonBodyHandler();
+
+    // chunked responses without a length start from this size and grow
+    private static final int INITIAL_SIZE = 8 * 1024;
+    private static final int MAX_PRESIZE = 16 * 1024 * 1024;
+
+    private JsonBodyHandler() {
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<JsonReader> apply(HttpResponse.ResponseInfo responseInfo) {
+        long length;
+        try {
+            length = responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1);
+        } catch (NumberFormatException malformed) {
+            // only used to size the buffer, grow as for a chunked response
+            length = -1;
+        }
+        return new Subscriber(length >= 0 && length <= MAX_PRESIZE ? (int) length : INITIAL_SIZE);
+    }
+
+    private static final class Subscriber implements HttpResponse.BodySubscriber<JsonReader> {
+
+        private final CompletableFuture<JsonReader> body = new CompletableFuture<>();
+        // only touched by the signals of the publisher, which happen one after the other
+        private byte[] buffer;
+        private int size;
+
+        Subscriber(int capacity) {
+            this.buffer = new byte[Math.max(capacity, 1)];
+        }
+
+        @Override
+        public CompletionStage<JsonReader> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> chunks) {
+            for (ByteBuffer chunk : chunks) {
+                int remaining = chunk.remaining();
+                if (size + remaining > buffer.length) {
+                    byte[] grown = new byte[Math.max(buffer.length * 2, size + remaining)];
+                    System.arraycopy(buffer, 0, grown, 0, size);
+                    buffer = grown;
+                }
+                chunk.get(buffer, size, remaining);
+                size += remaining;
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(new JsonReader(buffer, size));
+        }
+    }
+}
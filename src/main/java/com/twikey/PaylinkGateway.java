@@ -1,24 +1,18 @@
 package com.twikey;
 
+import com.twikey.callback.BatchCallback;
 import com.twikey.callback.PaylinkCallback;
 import com.twikey.modal.DocumentRequests;
 import com.twikey.modal.PaylinkRequests;
 import com.twikey.modal.PaylinkResponse;
-import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.Map;
+import java.util.stream.Stream;
 
-import static com.twikey.TwikeyClient.HTTP_FORM_ENCODED;
-import static com.twikey.TwikeyClient.apiError;
-import static com.twikey.TwikeyClient.getPostDataString;
+import static com.twikey.TwikeyClient.await;
 
 public class PaylinkGateway {
 
@@ -52,33 +46,11 @@ public class PaylinkGateway {
     @Deprecated
     public JSONObject create(long ct, DocumentRequests.Customer customer, Map<String, String> linkDetails) throws IOException, TwikeyClient.UserException {
         PaylinkRequests.PaylinkRequest paylinkRequest = new PaylinkRequests.PaylinkRequest(ct, customer, linkDetails);
-        return createPaylink(paylinkRequest);
+        return new JSONObject(new JSONTokener(await(twikeyClient.async().paylink().createPaylink(paylinkRequest)).nextValueStream()));
     }
 
     public PaylinkResponse.Paylink create(PaylinkRequests.PaylinkRequest paylinkRequest) throws IOException, TwikeyClient.UserException {
-        JSONObject json = createPaylink(paylinkRequest);
-        return PaylinkResponse.Paylink.fromJson(json);
-    }
-
-    private JSONObject createPaylink(PaylinkRequests.PaylinkRequest paylinkRequest) throws IOException, TwikeyClient.UserException {
-        Map<String, String> params = paylinkRequest.toRequest();
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/payment/link"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
-                .build();
-
-        HttpResponse<InputStream> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
-        int responseCode = response.statusCode();
-        if (responseCode == 200) {
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(response.body()))) {
-                return new JSONObject(new JSONTokener(br));
-            }
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().paylink().create(paylinkRequest));
     }
 
     /**
@@ -90,36 +62,49 @@ public class PaylinkGateway {
      * @throws TwikeyClient.UserException When there was an issue while retrieving the mandates (eg. invalid apikey)
      */
     public void feed(PaylinkCallback callback,String... sideloads) throws IOException, TwikeyClient.UserException {
+        newCallbackFeed(sideloads).drain(json -> dispatch(json, callback));
+    }
 
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/payment/link/feed", sideloads))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .build();
+    /**
+     * Same as {@link #feed(PaylinkCallback, String...)} but handing all updates of a page to the callback at once
+     *
+     * @param callback Callback for every page of updated links
+     * @param sideloads items to include in the sideloading
+     * @throws IOException                When a network issue happened
+     * @throws TwikeyClient.UserException When there was an issue while retrieving the links (eg. invalid apikey)
+     */
+    public void feedBatch(BatchCallback<PaylinkResponse.Paylink> callback, String... sideloads) throws IOException, TwikeyClient.UserException {
+        newFeed(sideloads).drainBatches(callback::batch);
+    }
 
-        boolean isEmpty;
-        do {
-            HttpResponse<InputStream> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    /**
+     * Lazy variant of {@link #feed(PaylinkCallback, String...)}, the next page is only fetched once the stream is consumed past
+     * the current one so it can be limited (eg. <code>feedStream().limit(500)</code>) without draining the feed.
+     * As the api considers a page delivered once it was fetched, entries of the last page that weren't consumed
+     * aren't returned again. Close the stream when it wasn't consumed completely.
+     *
+     * @param sideloads items to include in the sideloading
+     * @return stream of updated links
+     * @throws java.io.UncheckedIOException when a page couldn't be retrieved (wrapping a {@link TwikeyClient.UserException} when refused by the api)
+     */
+    public Stream<PaylinkResponse.Paylink> feedStream(String... sideloads) {
+        return newFeed(sideloads).stream();
+    }
 
-            int responseCode = response.statusCode();
-            if (responseCode == 200) {
-                try (BufferedReader br = new BufferedReader(new InputStreamReader(response.body()))) {
-                    JSONObject json = new JSONObject(new JSONTokener(br));
+    /**
+     * Feed of the raw entries as {@link PaylinkCallback} receives both the json and the model
+     */
+    Feed<JSONObject> newCallbackFeed(String... sideloads) {
+        return new Feed<>(twikeyClient, "/payment/link/feed", "Links", sideloads, FeedEntry::tree, json -> json.opt("id"), json -> json.opt("id") + ":" + json.opt("state"));
+    }
 
-                    JSONArray messagesArr = json.getJSONArray("Links");
-                    isEmpty = messagesArr.isEmpty();
-                    if (!isEmpty) {
-                        for (int i = 0; i < messagesArr.length(); i++) {
-                            JSONObject obj = messagesArr.getJSONObject(i);
-                            callback.paylink(obj);
-                            callback.paylink(PaylinkResponse.Paylink.fromJson(obj));
-                        }
-                    }
-                }
-            } else {
-            throw new TwikeyClient.UserException(apiError(response));
+    @SuppressWarnings("deprecation")
+    static void dispatch(JSONObject json, PaylinkCallback callback) {
+        callback.paylink(json);
+        callback.paylink(PaylinkResponse.Paylink.fromJson(json));
+    }
 
-            }
-        } while (!isEmpty);
+    Feed<PaylinkResponse.Paylink> newFeed(String... sideloads) {
+        return new Feed<>(twikeyClient, "/payment/link/feed", "Links", sideloads, entry -> twikeyClient.getJsonCodec().paylink(entry.stream()), PaylinkResponse.Paylink::id, paylink -> paylink.id() + ":" + paylink.state());
     }
 }
@@ -0,0 +1,137 @@
+package com.twikey;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client side token bucket per {@link EndpointFamily}, callers exceeding the budget are delayed (in order of arrival)
+ * rather than failed.
+ *
+ * <pre>
+ * RateLimiter rateLimiter = new RateLimiter()
+ *      .withLimit(EndpointFamily.TRANSACTION, 20, 50) // 20 calls/second with bursts up to 50
+ *      .withDefaultLimit(5, 10);
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey).withRateLimiter(rateLimiter);
+ * ...
+ * System.out.println(rateLimiter.stats(EndpointFamily.TRANSACTION));
+ * </pre>
+ */
+public class RateLimiter {
+
+    private final Map<EndpointFamily, Bucket> buckets = new EnumMap<>(EndpointFamily.class);
+
+    /**
+     * Without any limits, see {@link #withLimit(EndpointFamily, double, int)} and {@link #withDefaultLimit(double, int)}
+     */
+    public RateLimiter() {
+    }
+
+    /**
+     * @param family           the family of endpoints to limit
+     * @param permitsPerSecond sustained number of calls per second
+     * @param burst            number of calls that can be done at once after being idle
+     */
+    public RateLimiter withLimit(EndpointFamily family, double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit %s/s with burst %d".formatted(permitsPerSecond, burst));
+        }
+        buckets.put(family, new Bucket(permitsPerSecond, burst));
+        return this;
+    }
+
+    /**
+     * Apply the same limit to all families without an explicit limit (each with its own budget)
+     */
+    public RateLimiter withDefaultLimit(double permitsPerSecond, int burst) {
+        for (EndpointFamily family : EndpointFamily.values()) {
+            if (!buckets.containsKey(family)) {
+                withLimit(family, permitsPerSecond, burst);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Reserve a permit
+     *
+     * @return nanoseconds the caller has to wait before sending its request
+     */
+    long reserve(EndpointFamily family) {
+        Bucket bucket = buckets.get(family);
+        return bucket == null ? 0 : bucket.reserve();
+    }
+
+    /**
+     * @return wait statistics for the family, all zero when the family isn't limited
+     */
+    public Stats stats(EndpointFamily family) {
+        Bucket bucket = buckets.get(family);
+        if (bucket == null) {
+            return new Stats(0, 0, Duration.ZERO, Duration.ZERO);
+        }
+        return new Stats(bucket.permits.get(), bucket.delayed.get(), Duration.ofNanos(bucket.totalWait.get()), Duration.ofNanos(bucket.maxWait.get()));
+    }
+
+    /**
+     * @param permits   number of calls that passed the limiter
+     * @param delayed   number of calls that had to wait
+     * @param totalWait accumulated time callers waited
+     * @param maxWait   longest time a caller waited
+     */
+    public record Stats(long permits, long delayed, Duration totalWait, Duration maxWait) {
+        public Duration averageWait() {
+            return permits == 0 ? Duration.ZERO : totalWait.dividedBy(permits);
+        }
+    }
+
+    /**
+     * Reservation based token bucket, every caller takes the next free slot so waiting callers are served in order.
+     */
+    private static class Bucket {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final double intervalNanos;
+        private final double maxPermits;
+        private double storedPermits;
+        private long nextFree = System.nanoTime();
+
+        private final AtomicLong permits = new AtomicLong();
+        private final AtomicLong delayed = new AtomicLong();
+        private final AtomicLong totalWait = new AtomicLong();
+        private final AtomicLong maxWait = new AtomicLong();
+
+        Bucket(double permitsPerSecond, int burst) {
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+            this.maxPermits = burst;
+            this.storedPermits = burst;
+        }
+
+        long reserve() {
+            long wait;
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                if (now > nextFree) {
+                    storedPermits = Math.min(maxPermits, storedPermits + (now - nextFree) / intervalNanos);
+                    nextFree = now;
+                }
+                double fromStored = Math.min(1, storedPermits);
+                storedPermits -= fromStored;
+                nextFree += (long) ((1 - fromStored) * intervalNanos);
+                wait = nextFree - now;
+            } finally {
+                lock.unlock();
+            }
+            permits.incrementAndGet();
+            if (wait > 0) {
+                delayed.incrementAndGet();
+                totalWait.addAndGet(wait);
+                maxWait.accumulateAndGet(wait, Math::max);
+            }
+            return wait;
+        }
+    }
+}
@@ -1,22 +1,16 @@
 package com.twikey;
 
+import com.twikey.callback.BatchCallback;
 import com.twikey.callback.RefundCallback;
 import com.twikey.modal.RefundRequests;
 import com.twikey.modal.RefundResponse;
-import org.json.JSONArray;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Stream;
 
-import static com.twikey.TwikeyClient.HTTP_FORM_ENCODED;
-import static com.twikey.TwikeyClient.apiError;
-import static com.twikey.TwikeyClient.getPostDataString;
+import static com.twikey.TwikeyClient.await;
 
 public class RefundGateway {
 
@@ -52,105 +46,35 @@ public class RefundGateway {
      * @throws com.twikey.TwikeyClient.UserException When Twikey returns a user error (400)
      */
     public RefundResponse.Refund create(RefundRequests.NewCreditTransferRequest refundRequest) throws IOException, TwikeyClient.UserException {
-        Map<String, String> params = refundRequest.toRequestMap();
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transfer"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-
-        int responseCode = response.statusCode();
-        if (responseCode == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return RefundResponse.Refund.fromJson(json.getJSONArray("Entries").getJSONObject(0));
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().refund().create(refundRequest));
     }
 
     /**
      * TODO
      */
     public RefundResponse.Refund details(String id) throws IOException, TwikeyClient.UserException {
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transfer/detail?%s".formatted(id)))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return RefundResponse.Refund.fromJson(json);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().refund().details(id));
     }
 
     /**
      * TODO
      */
     public void remove(String id) throws IOException, TwikeyClient.UserException {
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transfer?%s".formatted(id)))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .DELETE()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 204) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().refund().remove(id));
     }
 
     /**
      * TODO
      */
     public RefundResponse.CreditTransferResponse createBatch(RefundRequests.CompleteCreditTransferRequest createBatchRequest) throws IOException, TwikeyClient.UserException {
-        Map<String, String> params = createBatchRequest.toRequest();
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transfer/complete"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return RefundResponse.CreditTransferResponse.fromJson(json.getJSONArray("CreditTransfers").getJSONObject(0));
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().refund().createBatch(createBatchRequest));
     }
 
     /**
      * TODO
      */
     public RefundResponse.CreditTransferResponse batchDetails(RefundRequests.CompleteCreditTransferDetailsRequest BatchRequest) throws IOException, TwikeyClient.UserException {
-        Map<String, String> params = BatchRequest.toRequest();
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transfer/complete?%s".formatted(getPostDataString(params))))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return RefundResponse.CreditTransferResponse.fromJson(json.getJSONArray("CreditTransfers").getJSONObject(0));
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().refund().batchDetails(BatchRequest));
     }
 
     /**
@@ -173,65 +97,23 @@ public class RefundGateway {
      * @throws com.twikey.TwikeyClient.UserException When Twikey returns a user error (400)
      */
     public RefundResponse.AddBeneficiaryResponse createBeneficiaryAccount(RefundRequests.AddBeneficiaryRequest beneficiary) throws IOException, TwikeyClient.UserException {
-        Map<String, String> params = beneficiary.toRequestMap();
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transfers/beneficiaries"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(params)))
-                .build();
-
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return RefundResponse.AddBeneficiaryResponse.fromJson(json);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().refund().createBeneficiaryAccount(beneficiary));
     }
 
     /**
      * TODO
      */
     public List<RefundResponse.AddBeneficiaryResponse> getBeneficiaries(Boolean withAddress) throws IOException, TwikeyClient.UserException {
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transfer/beneficiaries?withAddress=%s".formatted(withAddress)))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return RefundResponse.AddBeneficiaryResponse.fromQuery(json);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().refund().getBeneficiaries(withAddress));
     }
 
     /**
      * TODO
      */
     public void disableBeneficiary(RefundRequests.DisableBeneficiaryRequest beneficiaryRequest) throws IOException, TwikeyClient.UserException {
-        Map<String, String> params = beneficiaryRequest.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transfer/beneficiaries?%s".formatted(getPostDataString(params))))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .DELETE()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 204) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().refund().disableBeneficiary(beneficiaryRequest));
     }
 
-
-
     /**
      * Get updates about all paid refunds
      *
@@ -241,31 +123,54 @@ public class RefundGateway {
      * @throws TwikeyClient.UserException When there was an issue while retrieving the mandates (eg. invalid apikey)
      */
     public void feed(RefundCallback callback, String... sideloads) throws IOException, TwikeyClient.UserException {
+        newCallbackFeed(sideloads).drain(json -> dispatch(json, callback));
+    }
 
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transfer", sideloads))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .build();
-        boolean isEmpty;
-        do{
-            HttpResponse<InputStream> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
-            int responseCode = response.statusCode();
-            if (responseCode == 200) {
-                JSONObject json = new JSONObject(new JSONTokener(response.body()));
+    /**
+     * Same as {@link #feed(RefundCallback, String...)} but handing all updates of a page to the callback at once
+     *
+     * @param callback Callback for every page of paid refunds
+     * @param sideloads items to include in the sideloading
+     * @throws IOException                When a network issue happened
+     * @throws TwikeyClient.UserException When there was an issue while retrieving the refunds (eg. invalid apikey)
+     */
+    public void feedBatch(BatchCallback<RefundResponse.Refund> callback, String... sideloads) throws IOException, TwikeyClient.UserException {
+        newFeed(sideloads).drainBatches(callback::batch);
+    }
+
+    /**
+     * Lazy variant of {@link #feed(RefundCallback, String...)}, the next page is only fetched once the stream is consumed past
+     * the current one so it can be limited (eg. <code>feedStream().limit(500)</code>) without draining the feed.
+     * As the api considers a page delivered once it was fetched, entries of the last page that weren't consumed
+     * aren't returned again. Close the stream when it wasn't consumed completely.
+     *
+     * @param sideloads items to include in the sideloading
+     * @return stream of paid refunds
+     * @throws java.io.UncheckedIOException when a page couldn't be retrieved (wrapping a {@link TwikeyClient.UserException} when refused by the api)
+     */
+    public Stream<RefundResponse.Refund> feedStream(String... sideloads) {
+        return newFeed(sideloads).stream();
+    }
+
+    Feed<RefundResponse.Refund> newFeed(String... sideloads) {
+        return new Feed<>(twikeyClient, "/transfer", "Entries", sideloads, entry -> invalidate(twikeyClient.getJsonCodec().refund(entry.stream())), RefundResponse.Refund::getId, refund -> refund.getId() + ":" + refund.getState());
+    }
+
+    /**
+     * Feed of the raw entries as {@link RefundCallback} receives both the json and the model
+     */
+    Feed<JSONObject> newCallbackFeed(String... sideloads) {
+        return new Feed<>(twikeyClient, "/transfer", "Entries", sideloads, FeedEntry::tree, json -> json.opt("id"), json -> json.opt("id") + ":" + json.opt("state"));
+    }
+
+    @SuppressWarnings("deprecation")
+    void dispatch(JSONObject json, RefundCallback callback) {
+        callback.refund(json);
+        callback.refund(invalidate(RefundResponse.Refund.fromJson(json)));
+    }
 
-                JSONArray messagesArr = json.getJSONArray("Entries");
-                isEmpty = messagesArr.isEmpty();
-                if (!isEmpty) {
-                    for (int i = 0; i < messagesArr.length(); i++) {
-                        JSONObject obj = messagesArr.getJSONObject(i);
-                        callback.refund(obj);
-                        callback.refund(RefundResponse.Refund.fromJson(obj));
-                    }
-                }
-            } else {
-                throw new TwikeyClient.UserException(apiError(response));
-            }
-        } while (!isEmpty);
+    private RefundResponse.Refund invalidate(RefundResponse.Refund refund) {
+        twikeyClient.invalidate(EndpointFamily.TRANSFER, refund.getId(), refund.getRef());
+        return refund;
     }
 }
@@ -0,0 +1,81 @@
+package com.twikey;
+
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical lookups (same creditor, method and uri) share a single call to the api and its parsed
+ * result. Only calls in flight are shared, a lookup started after the previous one completed calls the api again. A
+ * coalescer can be shared by the clients of several creditors, they never share a call.
+ *
+ * <p>Note that all callers joining a lookup receive the same result instance.</p>
+ *
+ * <pre>
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey).withRequestCoalescer(new RequestCoalescer());
+ * </pre>
+ */
+public class RequestCoalescer {
+
+    private final ConcurrentMap<Key, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * @return number of lookups that did call the api
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * @return number of lookups that joined a call already in flight
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @param tenant api key of the client doing the lookup
+     * @param method http method of the lookup
+     * @param uri    uri of the lookup
+     * @param call   does the lookup, only invoked when no identical lookup is in flight
+     * @return future with the (shared) result, cancelling it doesn't affect the other callers
+     */
+    @SuppressWarnings("unchecked")
+    <R> CompletableFuture<R> coalesce(String tenant, String method, URI uri, Supplier<CompletableFuture<R>> call) {
+        Key key = new Key(tenant, method, uri);
+        CompletableFuture<R> shared = new CompletableFuture<>();
+        CompletableFuture<R> existing = (CompletableFuture<R>) inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.copy();
+        }
+        calls.incrementAndGet();
+        CompletableFuture<R> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((r, t) -> {
+            // remove before completing so callers reacting to the result start a fresh lookup
+            inFlight.remove(key, shared);
+            if (t != null) {
+                shared.completeExceptionally(t);
+            } else {
+                shared.complete(r);
+            }
+        });
+        return shared.copy();
+    }
+
+    /**
+     * Lookups are shared per creditor only
+     */
+    private record Key(String tenant, String method, URI uri) {
+    }
+}
@@ -0,0 +1,237 @@
+package com.twikey;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size bounded (least recently used) cache with a time to live for the results of lookups such as
+ * {@link DocumentGateway#fetch}, {@link InvoiceGateway#details}, {@link TransactionGateway#status} and
+ * {@link RefundGateway#details}. Entries are dropped when the feeds report an update for the same mandate, invoice,
+ * transaction or transfer, when the client changes it (eg. {@link TransactionGateway#update}) or when
+ * {@link #invalidate(EndpointFamily, String)} is called (eg. from a webhook).
+ *
+ * <p>Note that cached results are shared between callers. Results are kept per api key, so a cache can be shared
+ * between clients of different creditors.</p>
+ *
+ * <pre>
+ * ResponseCache cache = new ResponseCache().withTtl(Duration.ofMinutes(1)).withMaxEntries(10_000);
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey).withResponseCache(cache);
+ * ...
+ * System.out.println(cache.stats());
+ * </pre>
+ */
+public class ResponseCache {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // family:identifier to the lookups returning that resource
+    private final Map<String, Set<Key>> index = new HashMap<>();
+
+    private long ttl = Duration.ofMinutes(1).toNanos();
+    private int maxEntries = 1000;
+    private long version;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param ttl how long a result can be served from the cache (default 1 minute)
+     */
+    public ResponseCache withTtl(Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Invalid ttl " + ttl);
+        }
+        this.ttl = ttl.toNanos();
+        return this;
+    }
+
+    /**
+     * @param maxEntries number of results kept, the least recently used is evicted first (default 1000)
+     */
+    public ResponseCache withMaxEntries(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid max entries " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    /**
+     * Drop all results for the resource
+     *
+     * @param family     type of resource (eg. {@link EndpointFamily#TRANSACTION})
+     * @param identifier id, reference or mandate number of the resource
+     */
+    public void invalidate(EndpointFamily family, String identifier) {
+        if (identifier == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            version++;
+            Set<Key> keys = index.remove(tag(family, identifier));
+            if (keys != null) {
+                for (Key key : keys) {
+                    Entry entry = entries.remove(key);
+                    if (entry != null) {
+                        unindex(key, entry);
+                        invalidations.incrementAndGet();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop all results
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            version++;
+            invalidations.addAndGet(entries.size());
+            entries.clear();
+            index.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(hits.get(), misses.get(), evictions.get(), invalidations.get(), entries.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param hits          lookups served from the cache
+     * @param misses        lookups that called the api
+     * @param evictions     results dropped because the cache was full or the result expired
+     * @param invalidations results dropped because of an update
+     * @param size          number of results currently cached
+     */
+    public record Stats(long hits, long misses, long evictions, long invalidations, int size) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    /**
+     * @param tenant api key of the client doing the lookup
+     * @return the cached result or null
+     */
+    Object get(String tenant, URI uri) {
+        Key key = new Key(tenant, uri);
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.expiresAt >= 0) {
+                entries.remove(key);
+                unindex(key, entry);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return token to pass to {@link #put} so results of lookups overlapping with an invalidation aren't cached
+     */
+    long version() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param version     as returned by {@link #version()} before the lookup started
+     * @param tenant      api key of the client doing the lookup
+     * @param family      type of resource returned by the lookup
+     * @param identifiers identifiers of the returned resource, used to drop it on updates
+     */
+    void put(long version, String tenant, URI uri, Object value, EndpointFamily family, Collection<String> identifiers) {
+        Key key = new Key(tenant, uri);
+        lock.lock();
+        try {
+            if (this.version != version) {
+                return;
+            }
+            Set<String> tags = new HashSet<>();
+            for (String identifier : identifiers) {
+                if (identifier != null) {
+                    tags.add(tag(family, identifier));
+                }
+            }
+            Entry previous = entries.put(key, new Entry(value, System.nanoTime() + ttl, tags));
+            if (previous != null) {
+                unindex(key, previous);
+            }
+            for (String tag : tags) {
+                index.computeIfAbsent(tag, k -> new HashSet<>()).add(key);
+            }
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (entries.size() > maxEntries && eldest.hasNext()) {
+                Map.Entry<Key, Entry> evicted = eldest.next();
+                eldest.remove();
+                unindex(evicted.getKey(), evicted.getValue());
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void unindex(Key key, Entry entry) {
+        for (String tag : entry.tags) {
+            Set<Key> keys = index.get(tag);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    index.remove(tag);
+                }
+            }
+        }
+    }
+
+    private static String tag(EndpointFamily family, String identifier) {
+        return family.name() + ':' + identifier;
+    }
+
+    private record Entry(Object value, long expiresAt, Set<String> tags) {
+    }
+
+    /**
+     * Lookups are cached per creditor, an invalidation drops the resource for all of them
+     */
+    private record Key(String tenant, URI uri) {
+    }
+
+}
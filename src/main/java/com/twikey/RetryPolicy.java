@@ -0,0 +1,256 @@
+package com.twikey;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Retries requests that failed for transient reasons with exponential backoff and (full) jitter.
+ *
+ * <p>Whether a failure can be retried depends on whether the api could have processed the request:</p>
+ * <ul>
+ *     <li>Connection failures, 429 and 503 responses are always retried as the request never reached (or was refused by) the api.</li>
+ *     <li>Other I/O failures (eg. timeouts), 502 and 504 responses are only retried for idempotent requests, being
+ *     lookups or creations carrying a client generated reference (eg. a <code>ref</code> on a new transaction).</li>
+ * </ul>
+ *
+ * <p>To avoid amplifying an outage, every request adds a fraction of a retry to a shared budget and every retry
+ * consumes a full one. Once the budget is depleted failures are returned as is.</p>
+ *
+ * <pre>
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey)
+ *      .withRetryPolicy(new RetryPolicy().withMaxAttempts(4).withBackoff(Duration.ofMillis(200), Duration.ofSeconds(5)));
+ * </pre>
+ */
+public class RetryPolicy {
+
+    private int maxAttempts = 3;
+    private long initialBackoff = Duration.ofMillis(100).toNanos();
+    private long maxBackoff = Duration.ofSeconds(5).toNanos();
+    private double budgetRatio = 0.1;
+    private double budgetReserve = 10;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private double budget = budgetReserve;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong budgetExhausted = new AtomicLong();
+
+    /**
+     * @param maxAttempts total number of attempts per call including the first (default 3)
+     */
+    public RetryPolicy withMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least 1 attempt is required");
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * @param initial backoff before the first retry, doubled for every next retry (default 100ms)
+     * @param max     upper bound of the backoff (default 5s)
+     */
+    public RetryPolicy withBackoff(Duration initial, Duration max) {
+        if (initial.isNegative() || max.compareTo(initial) < 0) {
+            throw new IllegalArgumentException("Invalid backoff %s - %s".formatted(initial, max));
+        }
+        this.initialBackoff = initial.toNanos();
+        this.maxBackoff = max.toNanos();
+        return this;
+    }
+
+    /**
+     * @param ratio   fraction of the requests that can be retried (default 0.1)
+     * @param reserve number of retries available at start and maximum saved up when the api is healthy (default 10)
+     */
+    public RetryPolicy withBudget(double ratio, int reserve) {
+        if (ratio < 0 || reserve < 0) {
+            throw new IllegalArgumentException("Invalid budget %s with reserve %d".formatted(ratio, reserve));
+        }
+        lock.lock();
+        try {
+            this.budgetRatio = ratio;
+            this.budgetReserve = reserve;
+            this.budget = reserve;
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * @return number of retries done
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return number of retries skipped because the budget was depleted
+     */
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    /**
+     * @param call       sends the request
+     * @param idempotent whether the request can safely be processed twice by the api
+     * @param delayed    provides an executor running after the given nanoseconds
+     * @return future with the response of the last attempt
+     */
+    <T> CompletableFuture<HttpResponse<T>> run(Supplier<CompletableFuture<HttpResponse<T>>> call, boolean idempotent, LongFunction<Executor> delayed) {
+        deposit();
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        attempt(call, idempotent, delayed, 1, result);
+        return result;
+    }
+
+    private <T> void attempt(Supplier<CompletableFuture<HttpResponse<T>>> call, boolean idempotent, LongFunction<Executor> delayed, int attempt, CompletableFuture<HttpResponse<T>> result) {
+        if (result.isDone()) {
+            // cancelled while waiting for the backoff
+            return;
+        }
+        CompletableFuture<HttpResponse<T>> response;
+        try {
+            response = call.get();
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) {
+                response.cancel(true);
+            }
+        });
+        response.whenComplete((r, t) -> {
+            try {
+                if (attempt < maxAttempts && isRetryable(r, t, idempotent)) {
+                    if (withdraw()) {
+                        retries.incrementAndGet();
+                        discard(r);
+                        long delay = backoff(attempt, r);
+                        CompletableFuture.runAsync(() -> attempt(call, idempotent, delayed, attempt + 1, result), delayed.apply(delay));
+                        return;
+                    }
+                    budgetExhausted.incrementAndGet();
+                }
+                if (t != null) {
+                    result.completeExceptionally(t);
+                } else {
+                    result.complete(r);
+                }
+            } catch (Throwable e) {
+                // never leave the caller waiting, eg. when the delayed executor was shut down
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    static boolean isRetryable(HttpResponse<?> response, Throwable failure, boolean idempotent) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        if (failure != null) {
+            if (failure instanceof CircuitBreaker.OpenException) {
+                return false;
+            }
+            if (failure instanceof ConnectException || failure instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+            return idempotent && failure instanceof IOException;
+        }
+        int status = response.statusCode();
+        if (status == 429 || status == 503) {
+            return true;
+        }
+        return idempotent && (status == 502 || status == 504);
+    }
+
+    /**
+     * Full jitter, a random delay up to the exponential backoff but no shorter than a Retry-After of the api
+     */
+    private long backoff(int attempt, HttpResponse<?> response) {
+        long ceiling = initialBackoff << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > maxBackoff) {
+            ceiling = maxBackoff;
+        }
+        long delay = ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (response != null) {
+            long retryAfter = TimeUnit.SECONDS.toNanos(retryAfter(response.headers().firstValue("Retry-After").orElse(null)));
+            delay = Math.max(delay, Math.min(retryAfter, maxBackoff));
+        }
+        return delay;
+    }
+
+    /**
+     * @param retryAfter value of the Retry-After header, being a number of seconds or an http date
+     * @return seconds to wait, 0 when absent or invalid
+     */
+    static long retryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return 0;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value));
+        } catch (NumberFormatException notSeconds) {
+            // either a date or too large to be of any use
+        }
+        try {
+            long until = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return Math.max(0, until - Instant.now().getEpochSecond());
+        } catch (DateTimeParseException invalid) {
+            return 0;
+        }
+    }
+
+    private void deposit() {
+        lock.lock();
+        try {
+            budget = Math.min(budgetReserve, budget + budgetRatio);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean withdraw() {
+        lock.lock();
+        try {
+            if (budget >= 1) {
+                budget--;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release the connection of a response that won't be handed to the caller
+     */
+    static void discard(HttpResponse<?> response) {
+        if (response != null && response.body() instanceof AutoCloseable body) {
+            try {
+                body.close();
+            } catch (Exception ignore) {
+                // nothing left to do
+            }
+        }
+    }
+}
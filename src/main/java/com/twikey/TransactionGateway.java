@@ -1,23 +1,15 @@
 package com.twikey;
 
+import com.twikey.callback.BatchCallback;
 import com.twikey.callback.TransactionCallback;
 import com.twikey.modal.TransactionRequests;
 import com.twikey.modal.TransactionResponse;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.json.JSONTokener;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.List;
-import java.util.Map;
+import java.util.stream.Stream;
 
-import static com.twikey.TwikeyClient.HTTP_FORM_ENCODED;
-import static com.twikey.TwikeyClient.apiError;
-import static com.twikey.TwikeyClient.getPostDataString;
+import static com.twikey.TwikeyClient.await;
 
 public class TransactionGateway {
 
@@ -44,21 +36,7 @@ public class TransactionGateway {
      * @throws TwikeyClient.UserException if the API returns an error or validation fails
      */
     public TransactionResponse.Transaction create(TransactionRequests.NewTransactionRequest newTransactionRequest) throws IOException, TwikeyClient.UserException {
-        Map<String, String> tx = newTransactionRequest.toRequestMap();
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transaction"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(tx)))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return TransactionResponse.Transaction.fromJson(json.getJSONArray("Entries").getJSONObject(0));
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().transaction().create(newTransactionRequest));
     }
 
     /**
@@ -75,22 +53,7 @@ public class TransactionGateway {
      * @throws TwikeyClient.UserException if the API call fails or the identifier is invalid
      */
     public TransactionResponse.Transaction status(TransactionRequests.StatusRequest newTransactionRequest) throws IOException, TwikeyClient.UserException {
-        String tx = getPostDataString(newTransactionRequest.toParams());
-        tx += newTransactionRequest.toInclude();
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transaction/detail?%s".formatted(tx)))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return TransactionResponse.Transaction.fromJson(json.getJSONArray("Entries").getJSONObject(0));
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().transaction().status(newTransactionRequest));
     }
 
     /**
@@ -106,18 +69,7 @@ public class TransactionGateway {
      * @throws TwikeyClient.UserException if the API returns an error or the request fails
      */
     public void action(TransactionRequests.ActionRequest action) throws IOException, TwikeyClient.UserException {
-        Map<String, String> requestMap = action.toRequest();
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transaction/action"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() != 204) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().transaction().action(action));
     }
 
     /**
@@ -134,18 +86,7 @@ public class TransactionGateway {
      * @throws TwikeyClient.UserException if the API returns an error or the request fails
      */
     public void update(TransactionRequests.UpdateTransactionRequest update) throws IOException, TwikeyClient.UserException {
-        Map<String, String> requestMap = update.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transaction"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .PUT(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 204) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().transaction().update(update));
     }
 
     /**
@@ -163,20 +104,7 @@ public class TransactionGateway {
      * @throws TwikeyClient.UserException if the API returns an error or the request fails
      */
     public TransactionResponse.Refund refund(TransactionRequests.RefundRequest refundRequest) throws IOException, TwikeyClient.UserException {
-        Map<String, String> requestMap = refundRequest.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transaction/refund"))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .POST(HttpRequest.BodyPublishers.ofString(getPostDataString(requestMap)))
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return TransactionResponse.Refund.fromJson(json.getJSONArray("Entries").getJSONObject(0));
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().transaction().refund(refundRequest));
     }
 
     /**
@@ -193,18 +121,7 @@ public class TransactionGateway {
      * @throws TwikeyClient.UserException if the API returns an error or the request fails
      */
     public void delete(TransactionRequests.RemoveTransactionRequest delete) throws IOException, TwikeyClient.UserException {
-        Map<String, String> requestMap = delete.toRequest();
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transaction?%s".formatted(getPostDataString(requestMap))))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .DELETE()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 204) {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        await(twikeyClient.async().transaction().delete(delete));
     }
 
     /**
@@ -221,21 +138,7 @@ public class TransactionGateway {
      * @throws TwikeyClient.UserException if the API returns an error or the request fails
      */
     public List<TransactionResponse.Transaction> query(TransactionRequests.QueryRequest newTransactionRequest) throws IOException, TwikeyClient.UserException {
-        String tx = getPostDataString(newTransactionRequest.toRequest());
-
-        HttpRequest request = HttpRequest.newBuilder(twikeyClient.getUrl("/transaction/query?%s".formatted(tx)))
-                .header("Content-Type", HTTP_FORM_ENCODED)
-                .header("User-Agent", twikeyClient.getUserAgent())
-                .header("Authorization", twikeyClient.getSessionToken())
-                .GET()
-                .build();
-        HttpResponse<String> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.statusCode() == 200) {
-            JSONObject json = new JSONObject(new JSONTokener(response.body()));
-            return TransactionResponse.Transaction.fromQuery(json);
-        } else {
-            throw new TwikeyClient.UserException(apiError(response));
-        }
+        return await(twikeyClient.async().transaction().query(newTransactionRequest));
     }
 
     /**
@@ -247,35 +150,40 @@ public class TransactionGateway {
      * @throws TwikeyClient.UserException When there was an issue while retrieving the mandates (eg. invalid apikey)
      */
     public void feed(TransactionCallback callback,String... sideloads) throws IOException, TwikeyClient.UserException {
-        boolean isEmpty;
-        do {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(twikeyClient.getUrl("/transaction", sideloads))
-                    .header("Content-Type", HTTP_FORM_ENCODED)
-                    .header("User-Agent", twikeyClient.getUserAgent())
-                    .header("Authorization", twikeyClient.getSessionToken())
-                    .GET()
-                    .build();
+        newFeed(sideloads).drain(callback::transaction);
+    }
+
+    /**
+     * Same as {@link #feed(TransactionCallback, String...)} but handing all updates of a page to the callback at once
+     *
+     * @param callback Callback for every page of updated transactions
+     * @param sideloads items to include in the sideloading
+     * @throws IOException                When a network issue happened
+     * @throws TwikeyClient.UserException When there was an issue while retrieving the transactions (eg. invalid apikey)
+     */
+    public void feedBatch(BatchCallback<TransactionResponse.Transaction> callback, String... sideloads) throws IOException, TwikeyClient.UserException {
+        newFeed(sideloads).drainBatches(callback::batch);
+    }
+
+    /**
+     * Lazy variant of {@link #feed(TransactionCallback, String...)}, the next page is only fetched once the stream is consumed past
+     * the current one so it can be limited (eg. <code>feedStream().limit(500)</code>) without draining the feed.
+     * As the api considers a page delivered once it was fetched, entries of the last page that weren't consumed
+     * aren't returned again. Close the stream when it wasn't consumed completely.
+     *
+     * @param sideloads items to include in the sideloading
+     * @return stream of updated transactions
+     * @throws java.io.UncheckedIOException when a page couldn't be retrieved (wrapping a {@link TwikeyClient.UserException} when refused by the api)
+     */
+    public Stream<TransactionResponse.Transaction> feedStream(String... sideloads) {
+        return newFeed(sideloads).stream();
+    }
 
-            HttpResponse<InputStream> response = twikeyClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
-            int responseCode = response.statusCode();
-            if (responseCode == 200) {
-                try {
-                    JSONObject json = new JSONObject(new JSONTokener(response.body()));
-                    JSONArray messagesArr = json.getJSONArray("Entries");
-                    isEmpty = messagesArr.isEmpty();
-                    if (!isEmpty) {
-                        for (int i = 0; i < messagesArr.length(); i++) {
-                            JSONObject obj = messagesArr.getJSONObject(i);
-                            callback.transaction(TransactionResponse.Transaction.fromJson(obj));
-                        }
-                    }
-                } catch (JSONException e) {
-                    throw new RuntimeException(e);
-                }
-            } else {
-                throw new TwikeyClient.UserException(apiError(response));
-            }
-        } while (!isEmpty);
+    Feed<TransactionResponse.Transaction> newFeed(String... sideloads) {
+        return new Feed<>(twikeyClient, "/transaction", "Entries", sideloads, entry -> {
+            TransactionResponse.Transaction transaction = twikeyClient.getJsonCodec().transaction(entry.stream());
+            twikeyClient.invalidate(EndpointFamily.TRANSACTION, String.valueOf(transaction.getId()), transaction.getRef(), transaction.getMndtId());
+            return transaction;
+        }, TransactionResponse.Transaction::getMndtId, transaction -> transaction.getId() + ":" + transaction.getState());
     }
 }
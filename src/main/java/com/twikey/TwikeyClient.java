@@ -1,5 +1,7 @@
 package com.twikey;
 
+import com.twikey.modal.JsonCodec;
+
 import javax.crypto.Cipher;
 import javax.crypto.Mac;
 import javax.crypto.spec.IvParameterSpec;
@@ -9,9 +11,27 @@ import java.net.*;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.lang.reflect.InvocationTargetException;
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -25,8 +45,10 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  * System.out.println(api.invoice().create(ct,customer,invoiceDetails));
  * System.out.println(api.document().create(ct,null,Map.of()));
  * </pre>
+ *
+ * A client configured with {@link #withVirtualThreads()} owns threads, {@link #close()} it once no longer used.
  */
-public class TwikeyClient {
+public class TwikeyClient implements AutoCloseable {
 
     private static final String DEFAULT_USER_HEADER = "twikey/java-v0.2.1-SNAPSHOT";
     private static final String PROD_ENVIRONMENT = "https://api.twikey.com/creditor";
@@ -37,14 +59,18 @@ public class TwikeyClient {
     public static final String HTTP_APPLICATION_PDF = "application/pdf";
 
     private static final long MAX_SESSION_AGE = 23 * 60 * 60 * 1000; // max 1day, but use 23 to be safe
+    private static final long SESSION_RENEWAL_MARGIN = 60 * 60 * 1000; // renew an hour before the session expires
     private static final String SALT_OWN = "own";
+    // the service lookup scans the classpath, so it's done once for all clients
+    private static final JsonCodec DEFAULT_JSON_CODEC = JsonCodec.load();
 
     private final String apiKey;
     private String privateKey;
 
     private String endpoint;
-    private long lastLogin;
-    private String sessionToken;
+    private volatile Session session;
+    private volatile boolean sessionUsed;
+    private final AtomicReference<CompletableFuture<String>> pendingLogin = new AtomicReference<>();
     private String userAgent = DEFAULT_USER_HEADER;
 
     private final DocumentGateway documentGateway;
@@ -52,8 +78,26 @@ public class TwikeyClient {
     private final TransactionGateway transactionGateway;
     private final PaylinkGateway paylinkGateway;
     private final RefundGateway refundGateway;
+    private final AsyncTwikeyClient asyncClient;
 
     private HttpClient client;
+    private ExecutorService executor;
+    private RateLimiter rateLimiter;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private RetryPolicy retryPolicy;
+    private CircuitBreaker circuitBreaker;
+    private HedgingPolicy hedgingPolicy;
+    private RequestCoalescer requestCoalescer;
+    private ResponseCache responseCache;
+    private Duration requestTimeout;
+    private int feedPrefetch;
+    private FeedDispatcher feedDispatcher;
+    private FeedJournal feedJournal;
+    private FeedDeduplicator feedDeduplicator;
+    private JsonCodec jsonCodec = DEFAULT_JSON_CODEC;
+    // entries of feeds fetched from the api but not yet handled by a callback, by path of the feed
+    private final ConcurrentMap<String, Deque<FeedEntry>> undelivered = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Feed.Turns> turns = new ConcurrentHashMap<>();
 
     /**
      * @param apikey API key
@@ -66,6 +110,7 @@ public class TwikeyClient {
         this.transactionGateway = new TransactionGateway(this);
         this.paylinkGateway = new PaylinkGateway(this);
         this.refundGateway = new RefundGateway(this);
+        this.asyncClient = new AsyncTwikeyClient(this);
         this.client = HttpClient.newHttpClient();
     }
 
@@ -79,6 +124,140 @@ public class TwikeyClient {
         return this;
     }
 
+    /**
+     * Run all work of the underlying {@link HttpClient} (response handling, async gateways, logins) on a
+     * virtual-thread-per-task executor, replacing any client set via {@link #withHttpClient(HttpClient)}.
+     * Blocking calls are best made from virtual threads as well, eg. via {@link #executor()}.
+     *
+     * @throws UnsupportedOperationException when running on a jvm without virtual threads (before Java 21)
+     */
+    public TwikeyClient withVirtualThreads() {
+        ExecutorService previous = this.executor;
+        this.executor = newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder().executor(executor).build();
+        if (previous != null) {
+            previous.shutdown();
+        }
+        return this;
+    }
+
+    /**
+     * @return the executor configured via {@link #withVirtualThreads()} or null when using the defaults of the {@link HttpClient}
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Delay calls that exceed the configured budget per {@link EndpointFamily} instead of hitting the api limits
+     */
+    public TwikeyClient withRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+    /**
+     * Adapt the number of requests in flight to the latency and errors observed from the api
+     */
+    public TwikeyClient withConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+        return this;
+    }
+
+    /**
+     * Retry transient failures, see {@link RetryPolicy} for which requests are considered safe to retry
+     */
+    public TwikeyClient withRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Fail fast while a family of endpoints keeps failing instead of piling up requests
+     */
+    public TwikeyClient withCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Send a second request for slow idempotent lookups and use whichever answers first
+     */
+    public TwikeyClient withHedging(HedgingPolicy hedgingPolicy) {
+        this.hedgingPolicy = hedgingPolicy;
+        return this;
+    }
+
+    /**
+     * Share a single call between concurrent identical lookups (eg. fetching the same mandate from many threads)
+     */
+    public TwikeyClient withRequestCoalescer(RequestCoalescer requestCoalescer) {
+        this.requestCoalescer = requestCoalescer;
+        return this;
+    }
+
+    /**
+     * Serve repeated lookups of mandates, invoices, transactions and transfers from a cache
+     */
+    public TwikeyClient withResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    /**
+     * Timeout applied to all requests that don't specify one themselves
+     */
+    public TwikeyClient withRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        return this;
+    }
+
+    /**
+     * Let the feeds fetch up to the given number of pages ahead while the callback is handling the current page so
+     * fetching and handling overlap (default 0, only fetching the next page once the current one was handled).
+     * Pages fetched ahead are kept in memory until handled, entries are still handed to the callback in order.
+     */
+    public TwikeyClient withFeedPrefetch(int pages) {
+        if (pages < 0) {
+            throw new IllegalArgumentException("Invalid prefetch " + pages);
+        }
+        this.feedPrefetch = pages;
+        return this;
+    }
+
+    /**
+     * Hand the entries of the feeds to the callback on multiple threads, keeping the order per mandate or invoice
+     */
+    public TwikeyClient withFeedDispatcher(FeedDispatcher feedDispatcher) {
+        this.feedDispatcher = feedDispatcher;
+        return this;
+    }
+
+    /**
+     * Write the pages of the callback feeds to a journal on disk before handing them out, so entries that weren't
+     * handled are handed out again after a restart of the application
+     */
+    public TwikeyClient withFeedJournal(FeedJournal feedJournal) {
+        this.feedJournal = feedJournal;
+        return this;
+    }
+
+    /**
+     * Drop updates of the callback feeds that were handled before, eg. when they're handed out again after a failure
+     */
+    public TwikeyClient withFeedDeduplicator(FeedDeduplicator feedDeduplicator) {
+        this.feedDeduplicator = feedDeduplicator;
+        return this;
+    }
+
+    /**
+     * Bind the responses and requests with another codec, eg. {@link JsonCodec#orgJson()} to fall back to org.json
+     */
+    public TwikeyClient withJsonCodec(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+        return this;
+    }
+
     public TwikeyClient withPrivateKey(String privateKey) {
         this.privateKey = privateKey;
         return this;
@@ -94,43 +273,166 @@ public class TwikeyClient {
         return this;
     }
 
-    protected synchronized String getSessionToken() throws IOException, UnauthenticatedException {
-        if ((System.currentTimeMillis() - lastLogin) > MAX_SESSION_AGE) {
-
-            try  {
-                String body;
-                if (privateKey != null) {
-                    long otp = generateOtp(SALT_OWN, privateKey);
-                    body = String.format("apiToken=%s&otp=%d", apiKey, otp);
-                } else {
-                    body = String.format("apiToken=%s", apiKey);
-                }
-
-                HttpRequest postRequest = HttpRequest.newBuilder()
-                        .uri(URI.create(endpoint))
-                        .header("Content-Type", HTTP_FORM_ENCODED)
-                        .header("User-Agent", getUserAgent())
-                        .POST(HttpRequest.BodyPublishers.ofString(body))
-                        .build();
-
-                HttpResponse<Void> response = client.send(postRequest, HttpResponse.BodyHandlers.discarding());
-                sessionToken = response.headers().firstValue("Authorization").orElse(null);
-
-                if(sessionToken!= null){
-                    lastLogin = System.currentTimeMillis();
-                } else {
-                    lastLogin = 0;
-                    throw new UnauthenticatedException();
-                }
-
-            } catch (GeneralSecurityException e) {
-                throw new IOException(e);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IOException(e);
+    /**
+     * Stop the threads owned by the client, requests in flight are still completed but no new work is accepted on
+     * the executor of {@link #withVirtualThreads()}. Closing a client without such threads has no effect.
+     */
+    @Override
+    public void close() {
+        ExecutorService owned = executor;
+        if (owned != null) {
+            owned.shutdown();
+        }
+    }
+
+    /**
+     * Reading a valid token is lock-free, when the session expired all concurrent callers wait for the same login.
+     */
+    protected String getSessionToken() throws IOException, UnauthenticatedException {
+        Session current = session;
+        if (current != null && current.isValid()) {
+            markSessionUsed();
+            return current.token();
+        }
+        try {
+            return login().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            try {
+                throw unwrap(e.getCause());
+            } catch (UnauthenticatedException rethrow) {
+                throw rethrow;
+            } catch (UserException userException) {
+                throw new IOException(userException);
             }
         }
-        return sessionToken;
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #getSessionToken()}, the login (if any) is done via {@link HttpClient#sendAsync}
+     *
+     * @return future completing with the session token or failing with {@link IOException}/{@link UnauthenticatedException}
+     */
+    protected CompletableFuture<String> getSessionTokenAsync() {
+        Session current = session;
+        if (current != null && current.isValid()) {
+            markSessionUsed();
+            return CompletableFuture.completedFuture(current.token());
+        }
+        return login();
+    }
+
+    /**
+     * Single-flight login, only the first caller sends the login request, others join its outcome.
+     * A successful login schedules its own renewal before the session expires.
+     */
+    private CompletableFuture<String> login() {
+        CompletableFuture<String> newLogin = new CompletableFuture<>();
+        CompletableFuture<String> ongoing = pendingLogin.compareAndExchange(null, newLogin);
+        if (ongoing != null) {
+            return ongoing;
+        }
+        Session current = session;
+        if (current != null && current.isFresh()) {
+            // a concurrent login finished between the check of the caller and now
+            pendingLogin.set(null);
+            newLogin.complete(current.token());
+            return newLogin;
+        }
+
+        HttpRequest postRequest;
+        try {
+            postRequest = loginRequest();
+        } catch (GeneralSecurityException e) {
+            pendingLogin.set(null);
+            newLogin.completeExceptionally(new IOException(e));
+            return newLogin;
+        }
+        client.sendAsync(postRequest, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    try {
+                        if (error != null) {
+                            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                        }
+                        String token = response.headers().firstValue("Authorization").orElse(null);
+                        if (token == null) {
+                            throw new UnauthenticatedException();
+                        }
+                        Session renewed = new Session(token, System.currentTimeMillis());
+                        session = renewed;
+                        sessionUsed = false;
+                        pendingLogin.set(null);
+                        newLogin.complete(token);
+                        scheduleRenewal(renewed);
+                    } catch (IOException | UserException e) {
+                        pendingLogin.set(null);
+                        newLogin.completeExceptionally(e);
+                    }
+                });
+        return newLogin;
+    }
+
+    /**
+     * Renew the session in the background just before it expires, but only when it was used in the meantime
+     * so idle clients don't keep logging in (and stay reachable) forever.
+     */
+    private void scheduleRenewal(Session renewed) {
+        long delay = renewed.loginTime() + MAX_SESSION_AGE - SESSION_RENEWAL_MARGIN - System.currentTimeMillis();
+        CompletableFuture.delayedExecutor(Math.max(0, delay), TimeUnit.MILLISECONDS).execute(() -> {
+            if (session == renewed && sessionUsed) {
+                login();
+            }
+        });
+    }
+
+    private void markSessionUsed() {
+        if (!sessionUsed) { // avoid a volatile write on every request
+            sessionUsed = true;
+        }
+    }
+
+    private record Session(String token, long loginTime) {
+        boolean isValid() {
+            return (System.currentTimeMillis() - loginTime) <= MAX_SESSION_AGE;
+        }
+
+        boolean isFresh() {
+            return (System.currentTimeMillis() - loginTime) < MAX_SESSION_AGE - SESSION_RENEWAL_MARGIN;
+        }
+    }
+
+    /**
+     * Looked up reflectively as the library still targets Java 17
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer", e);
+        } catch (InvocationTargetException e) {
+            // preview api in Java 19/20 without --enable-preview
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer", e.getCause());
+        }
+    }
+
+    private HttpRequest loginRequest() throws GeneralSecurityException {
+        String body;
+        if (privateKey != null) {
+            long otp = generateOtp(SALT_OWN, privateKey);
+            body = String.format("apiToken=%s&otp=%d", apiKey, otp);
+        } else {
+            body = String.format("apiToken=%s", apiKey);
+        }
+
+        return HttpRequest.newBuilder()
+                .uri(URI.create(endpoint))
+                .header("Content-Type", HTTP_FORM_ENCODED)
+                .header("User-Agent", getUserAgent())
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
     }
 
     protected static String getPostDataString(Map<String, String> params) {
@@ -196,14 +498,292 @@ public class TwikeyClient {
         return refundGateway;
     }
 
+    /**
+     * @return scheduler draining multiple feeds at the same time, every call returns a new scheduler with its own
+     * workers so keep it to drain the same feeds again and close it once it's no longer needed
+     */
+    public FeedScheduler feeds() {
+        return new FeedScheduler(this);
+    }
+
+    /**
+     * @return the same gateways, but returning a {@link CompletableFuture} instead of blocking the calling thread
+     */
+    public AsyncTwikeyClient async() {
+        return asyncClient;
+    }
+
     public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, UserException {
+        return send(request, responseBodyHandler, isIdempotent(request));
+    }
+
+    /**
+     * @param idempotent whether the api can safely process the request more than once, see {@link RetryPolicy}
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, boolean idempotent) throws IOException, UserException {
+        return await(sendAsync(request, responseBodyHandler, idempotent));
+    }
+
+    /**
+     * Block until the future completes, cancelling it when interrupted
+     */
+    static <R> R await(CompletableFuture<R> future) throws IOException, UserException {
         try {
-            return client.send(request, responseBodyHandler);
+            return future.get();
         } catch (InterruptedException e) {
+            future.cancel(true);
             throw new UserException("Interrupted while sending request");
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
         }
     }
 
+    /**
+     * Sends the request without blocking, the returned future completes when the response headers are available
+     * (or the complete body depending on the handler). When a {@link RateLimiter} is configured, the request is
+     * delayed until its endpoint family has budget left, when a {@link ConcurrencyLimiter} is configured the request
+     * waits for a free slot and when a {@link RetryPolicy} is configured transient failures are retried. When a
+     * {@link CircuitBreaker} is configured and open, the future fails immediately. Slow idempotent lookups are
+     * hedged when a {@link HedgingPolicy} is configured.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        return sendAsync(request, responseBodyHandler, isIdempotent(request));
+    }
+
+    /**
+     * @param idempotent whether the api can safely process the request more than once, see {@link RetryPolicy}
+     */
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, boolean idempotent) {
+        Supplier<CompletableFuture<HttpResponse<T>>> call = () -> attempt(request, responseBodyHandler);
+        HedgingPolicy hedging = hedgingPolicy;
+        if (hedging != null && idempotent && "GET".equals(request.method())) {
+            EndpointFamily family = getEndpointFamily(request.uri());
+            Supplier<CompletableFuture<HttpResponse<T>>> single = call;
+            call = () -> hedging.run(family, single, nanos -> delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+        }
+        RetryPolicy policy = retryPolicy;
+        if (policy != null) {
+            return policy.run(call, idempotent, nanos -> delayedExecutor(nanos, TimeUnit.NANOSECONDS));
+        }
+        return call.get();
+    }
+
+    /**
+     * Lookups are idempotent, anything changing state on the api is not unless explicitly marked as such
+     */
+    static boolean isIdempotent(HttpRequest request) {
+        return "GET".equals(request.method()) || "HEAD".equals(request.method());
+    }
+
+    /**
+     * A single attempt to send the request, unless the {@link CircuitBreaker} (if any) is open
+     */
+    private <T> CompletableFuture<HttpResponse<T>> attempt(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        if (requestTimeout != null && request.timeout().isEmpty()) {
+            request = HttpRequest.newBuilder(request, (name, value) -> true).timeout(requestTimeout).build();
+        }
+        HttpRequest timedRequest = request;
+        CircuitBreaker breaker = circuitBreaker;
+        if (breaker != null) {
+            return breaker.run(getEndpointFamily(request.uri()), () -> throttle(timedRequest, responseBodyHandler));
+        }
+        return throttle(timedRequest, responseBodyHandler);
+    }
+
+    /**
+     * Delay the request according to the {@link RateLimiter} if any
+     */
+    private <T> CompletableFuture<HttpResponse<T>> throttle(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        RateLimiter limiter = rateLimiter;
+        if (limiter != null) {
+            long wait = limiter.reserve(getEndpointFamily(request.uri()));
+            if (wait > 0) {
+                return CompletableFuture.runAsync(() -> {}, delayedExecutor(wait, TimeUnit.NANOSECONDS))
+                        .thenCompose(ignore -> exchange(request, responseBodyHandler));
+            }
+        }
+        return exchange(request, responseBodyHandler);
+    }
+
+    /**
+     * Does the actual http exchange, within the bounds of the {@link ConcurrencyLimiter} if any
+     */
+    private <T> CompletableFuture<HttpResponse<T>> exchange(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) {
+        ConcurrencyLimiter limiter = concurrencyLimiter;
+        if (limiter != null) {
+            return limiter.run(() -> client.sendAsync(request, responseBodyHandler));
+        }
+        return client.sendAsync(request, responseBodyHandler);
+    }
+
+    /**
+     * @return executor running tasks after the delay on the configured executor (if any)
+     */
+    Executor delayedExecutor(long delay, TimeUnit unit) {
+        return executor != null
+                ? CompletableFuture.delayedExecutor(delay, unit, executor)
+                : CompletableFuture.delayedExecutor(delay, unit);
+    }
+
+    /**
+     * @param uri request uri
+     * @return the family of the endpoint relative to the configured (creditor) endpoint
+     */
+    EndpointFamily getEndpointFamily(URI uri) {
+        String base = URI.create(endpoint).getPath();
+        String path = uri.getPath();
+        if (path != null && base != null && path.startsWith(base)) {
+            path = path.substring(base.length());
+        }
+        return EndpointFamily.parse(path);
+    }
+
+    /**
+     * Rethrow the cause of a failed future as the checked exceptions of the blocking api
+     */
+    private static IOException unwrap(Throwable cause) throws UserException {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof UserException) {
+            throw (UserException) cause;
+        } else if (cause instanceof IOException) {
+            return (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    /**
+     * Acquire the session token, build the request, send and map the response, all without blocking.
+     * Any {@link IOException} or {@link UserException} thrown by the factory or the mapper fails the returned future.
+     */
+    <T, R> CompletableFuture<R> sendAsync(RequestFactory requestFactory, HttpResponse.BodyHandler<T> responseBodyHandler, ResponseMapper<T, R> responseMapper) {
+        return sendAsync(requestFactory, responseBodyHandler, TwikeyClient::isIdempotent, responseMapper);
+    }
+
+    /**
+     * Same as {@link #sendAsync(RequestFactory, HttpResponse.BodyHandler, ResponseMapper)} but with an explicit idempotency
+     */
+    <T, R> CompletableFuture<R> sendAsync(RequestFactory requestFactory, HttpResponse.BodyHandler<T> responseBodyHandler, boolean idempotent, ResponseMapper<T, R> responseMapper) {
+        return sendAsync(requestFactory, responseBodyHandler, request -> idempotent, responseMapper);
+    }
+
+    private <T, R> CompletableFuture<R> sendAsync(RequestFactory requestFactory, HttpResponse.BodyHandler<T> responseBodyHandler, Predicate<HttpRequest> idempotent, ResponseMapper<T, R> responseMapper) {
+        return getSessionTokenAsync()
+                .thenCompose(sessionToken -> {
+                    try {
+                        HttpRequest request = requestFactory.create(sessionToken);
+                        return sendAsync(request, responseBodyHandler, idempotent.test(request));
+                    } catch (IOException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                })
+                .thenCompose(response -> {
+                    try {
+                        return CompletableFuture.completedFuture(responseMapper.map(response));
+                    } catch (IOException | UserException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                });
+    }
+
+    /**
+     * Run a lookup (a GET on the path returning a parsed result). The result is served from the {@link ResponseCache}
+     * if configured and shared with identical lookups in flight when a {@link RequestCoalescer} is configured.
+     * The blocking gateways {@link #await} the same lookup.
+     *
+     * @param identifiers the identifiers of the looked up resource, used to invalidate the cached result
+     */
+    @SuppressWarnings("unchecked")
+    <R> CompletableFuture<R> lookupAsync(String path, Function<R, Collection<String>> identifiers, Function<URI, CompletableFuture<R>> lookup) {
+        URI uri;
+        try {
+            uri = getUrl(path);
+        } catch (MalformedURLException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            Object cached = cache.get(apiKey, uri);
+            if (cached != null) {
+                return CompletableFuture.completedFuture((R) cached);
+            }
+            long version = cache.version();
+            EndpointFamily family = EndpointFamily.parse(path);
+            Function<URI, CompletableFuture<R>> uncached = lookup;
+            lookup = target -> uncached.apply(target).thenApply(result -> {
+                cache.put(version, apiKey, target, result, family, identifiers.apply(result));
+                return result;
+            });
+        }
+        RequestCoalescer coalescer = requestCoalescer;
+        if (coalescer == null) {
+            return lookup.apply(uri);
+        }
+        Function<URI, CompletableFuture<R>> shared = lookup;
+        return coalescer.coalesce(apiKey, "GET", uri, () -> shared.apply(uri));
+    }
+
+    int getFeedPrefetch() {
+        return feedPrefetch;
+    }
+
+    FeedDispatcher getFeedDispatcher() {
+        return feedDispatcher;
+    }
+
+    FeedJournal getFeedJournal() {
+        return feedJournal;
+    }
+
+    FeedDeduplicator getFeedDeduplicator() {
+        return feedDeduplicator;
+    }
+
+    JsonCodec getJsonCodec() {
+        return jsonCodec;
+    }
+
+    /**
+     * @return entries of the feed that were fetched but not handled as a callback failed on them
+     */
+    Deque<FeedEntry> undelivered(String feed) {
+        return undelivered.computeIfAbsent(feed, k -> new ConcurrentLinkedDeque<>());
+    }
+
+    /**
+     * @return the turns of the drains of the feed, as only one of them can run at a time
+     */
+    Feed.Turns turns(String feed) {
+        return turns.computeIfAbsent(feed, k -> new Feed.Turns());
+    }
+
+    /**
+     * Drop cached lookups of a resource an update was received for or that was changed through this client
+     */
+    void invalidate(EndpointFamily family, String... identifiers) {
+        ResponseCache cache = responseCache;
+        if (cache != null) {
+            for (String identifier : identifiers) {
+                cache.invalidate(family, identifier);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface RequestFactory {
+        HttpRequest create(String sessionToken) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface ResponseMapper<T, R> {
+        R map(HttpResponse<T> response) throws IOException, UserException;
+    }
+
     protected static String apiError(HttpResponse<?> response) {
         return response.headers()
                 .firstValue("ApiError")
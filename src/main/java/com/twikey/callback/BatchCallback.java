@@ -0,0 +1,13 @@
+package com.twikey.callback;
+
+import java.util.List;
+
+public interface BatchCallback<T> {
+    /**
+     * Callback with all updates of a page of the feed at once, eg. to store them in a single database transaction.
+     * When it throws, the same updates are handed out again by the next call of the feed.
+     *
+     * @param batch updates in the order of the feed, never empty
+     */
+    void batch(List<T> batch);
+}
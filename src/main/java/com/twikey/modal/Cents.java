@@ -0,0 +1,89 @@
+package com.twikey.modal;
+
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * Amounts of the models are kept as a long number of cents (minor units), so they can be summed exactly and without
+ * boxing. Amounts with more than 2 decimals are rounded half up. Optional amounts use the markers below, the getters
+ * returning a double or {@link Double} derive it from the cents.
+ */
+final class Cents {
+
+    /**
+     * The amount wasn't in the response
+     */
+    static final long ABSENT = Long.MIN_VALUE;
+
+    /**
+     * The amount was in the response, but null or not a number
+     */
+    static final long INVALID = Long.MIN_VALUE + 1;
+
+    private Cents() {
+        // prevent instantiation
+    }
+
+    /**
+     * @param value number, numeric string or null as returned by {@link JSONObject#opt(String)}
+     * @return the amount in cents, the fallback when it's not a number
+     */
+    static long of(Object value, long fallback) {
+        if (value instanceof BigDecimal decimal) {
+            return of(decimal);
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue() * 100;
+        }
+        if (value instanceof BigInteger integer) {
+            return integer.longValue() * 100;
+        }
+        if (value instanceof Number number) {
+            double d = number.doubleValue();
+            return Double.isNaN(d) || Double.isInfinite(d) ? fallback : of(BigDecimal.valueOf(d));
+        }
+        if (value instanceof String text) {
+            try {
+                return of(new BigDecimal(text.trim()));
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+        return fallback;
+    }
+
+    static long of(double amount) {
+        return of(BigDecimal.valueOf(amount));
+    }
+
+    static long of(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    /**
+     * @return the cents without the markers, 0 for an absent or invalid amount
+     */
+    static long value(long cents) {
+        return cents == ABSENT || cents == INVALID ? 0 : cents;
+    }
+
+    /**
+     * @return the amount in the currency, 0 for an absent and NaN for an invalid amount
+     */
+    static double toDouble(long cents) {
+        if (cents == ABSENT) {
+            return 0;
+        }
+        return cents == INVALID ? Double.NaN : cents / 100.0;
+    }
+
+    /**
+     * @return the amount in the currency, null for an absent and NaN for an invalid amount
+     */
+    static Double boxed(long cents) {
+        return cents == ABSENT ? null : toDouble(cents);
+    }
+}
@@ -2,6 +2,7 @@ package com.twikey.modal;
 
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 
@@ -13,7 +14,20 @@ import java.util.*;
 
 public interface DocumentResponse {
 
+    /**
+     * Mandate as found in the feed or fetched by its number. The mandate number, type, state, contract number and iban
+     * are read right away, the occurrences, debtor, agent and supplementary data are only decoded when one of their
+     * fields is first accessed. Until then the document keeps the mandate it was read from, either the tree or the
+     * bytes it was bound from, and drops it once every group was decoded. A group that is present but malformed
+     * throws a {@link JSONException} when it is first accessed.
+     */
     class Document {
+
+        private static final int OCCURRENCES = 0;
+        private static final int DEBTOR = 1;
+        private static final int AGENT = 2;
+        private static final int SUPPLEMENTARY = 3;
+
         private String mandateNumber;
         private String state;
         private String type;
@@ -36,7 +50,19 @@ public interface DocumentResponse {
 
         private String contractNumber;
 
-        private final Map<String, String> supplementaryData = new HashMap<>();
+        private Map<String, String> supplementaryData;
+
+        // source of the groups that weren't decoded yet, either the tree or the start and end of each group in the
+        // buffer, released once all groups were decoded
+        private volatile JSONObject mndt;
+        private volatile byte[] json;
+        private int[] groups;
+
+        // a group is decoded again when accessed concurrently for the first time, which yields the same fields
+        private volatile boolean occurrencesDecoded;
+        private volatile boolean debtorDecoded;
+        private volatile boolean agentDecoded;
+        private volatile boolean supplementaryDecoded;
 
         // --- Getters ---
         public String getMandateNumber() {
@@ -52,46 +78,57 @@ public interface DocumentResponse {
         }
 
         public String getSequenceType() {
+            occurrences();
             return sequenceType;
         }
 
         public String getSignDate() {
+            occurrences();
             return signDate;
         }
 
         public String getDebtorName() {
+            debtor();
             return debtorName;
         }
 
         public String getDebtorStreet() {
+            debtor();
             return debtorStreet;
         }
 
         public String getDebtorCity() {
+            debtor();
             return debtorCity;
         }
 
         public String getDebtorZip() {
+            debtor();
             return debtorZip;
         }
 
         public String getDebtorCountry() {
+            debtor();
             return debtorCountry;
         }
 
         public String getBtwNummer() {
+            debtor();
             return btwNummer;
         }
 
         public String getCountryOfResidence() {
+            debtor();
             return countryOfResidence;
         }
 
         public String getDebtorEmail() {
+            debtor();
             return debtorEmail;
         }
 
         public String getCustomerNumber() {
+            debtor();
             return customerNumber;
         }
 
@@ -100,10 +137,12 @@ public interface DocumentResponse {
         }
 
         public String getBic() {
+            agent();
             return bic;
         }
 
         public String getDebtorBank() {
+            agent();
             return debtorBank;
         }
 
@@ -112,6 +151,7 @@ public interface DocumentResponse {
         }
 
         public Map<String, String> getSupplementaryData() {
+            supplementary();
             return supplementaryData;
         }
 
@@ -120,49 +160,345 @@ public interface DocumentResponse {
             JSONObject mndt = json.getJSONObject("Mndt");
 
             Document resp = new Document();
+            resp.mndt = mndt;
 
             resp.mandateNumber = mndt.getString("MndtId");
-            resp.state = state;
-            resp.type = mndt.getString("LclInstrm");
-
-            JSONObject ocrncs = mndt.getJSONObject("Ocrncs");
-            resp.sequenceType = ocrncs.getString("SeqTp");
-            resp.signDate = ocrncs.getJSONObject("Drtn").getString("FrDt");
-
-            JSONObject dbtr = mndt.getJSONObject("Dbtr");
-            JSONObject addr = dbtr.getJSONObject("PstlAdr");
-            JSONObject ctct = dbtr.getJSONObject("CtctDtls");
-
-            resp.debtorName = dbtr.getString("Nm");
-            resp.debtorStreet = addr.optString("AdrLine");
-            resp.debtorCity = addr.optString("TwnNm");
-            resp.debtorZip = addr.optString("PstCd");
-            resp.debtorCountry = addr.optString("Ctry");
-            resp.btwNummer = dbtr.optString("Id");
-            resp.countryOfResidence = dbtr.optString("CtryOfRes");
-            resp.debtorEmail = ctct.optString("EmailAdr");
-            resp.customerNumber = ctct.optString("Othr");
-
+            resp.state = Interner.INSTANCE.intern(state);
+            resp.type = Interner.INSTANCE.intern(mndt.getString("LclInstrm"));
             resp.iban = mndt.optString("DbtrAcct");
+            resp.contractNumber = mndt.getString("RfrdDoc");
 
-            JSONObject agent = mndt.getJSONObject("DbtrAgt").getJSONObject("FinInstnId");
-            resp.bic = agent.optString("BICFI");
-            resp.debtorBank = agent.optString("Nm");
+            // the groups are decoded on access, only check they're there
+            mndt.getJSONObject("Ocrncs");
+            mndt.getJSONObject("Dbtr");
+            mndt.getJSONObject("DbtrAgt");
+            mndt.getJSONArray("SplmtryData");
+            return resp;
+        }
 
-            resp.contractNumber = mndt.getString("RfrdDoc");
+        /**
+         * Bind a document while reading the JSON, without an intermediate tree
+         *
+         * @param reader reader positioned at the object holding the <code>Mndt</code>
+         * @param state  state of the document
+         */
+        public static Document fromJson(JsonReader reader, String state) {
+            Document resp = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("Mndt")) {
+                    resp = mandate(reader, state);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (resp == null) {
+                throw JsonReader.missing("Mndt");
+            }
+            return resp;
+        }
 
-            // supplementary data
-            for (Object kvItem : mndt.getJSONArray("SplmtryData")) {
-                JSONObject item = (JSONObject) kvItem;
-                String key = item.getString("Key");
-                String value = item.get("Value").toString();
-                if (key != null && !key.isEmpty()) {
-                    resp.supplementaryData.put(key, value);
+        private static Document mandate(JsonReader reader, String state) {
+            Document resp = new Document();
+            resp.json = reader.buffer();
+            resp.groups = new int[8];
+            resp.state = Interner.INSTANCE.intern(state);
+            resp.iban = "";
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "MndtId" -> resp.mandateNumber = string(reader, name);
+                    case "LclInstrm" -> resp.type = Interner.INSTANCE.intern(string(reader, name));
+                    case "Ocrncs" -> resp.defer(reader, OCCURRENCES, name, JsonReader.Token.BEGIN_OBJECT);
+                    case "Dbtr" -> resp.defer(reader, DEBTOR, name, JsonReader.Token.BEGIN_OBJECT);
+                    case "DbtrAcct" -> resp.iban = reader.nextString("");
+                    case "DbtrAgt" -> resp.defer(reader, AGENT, name, JsonReader.Token.BEGIN_OBJECT);
+                    case "RfrdDoc" -> resp.contractNumber = string(reader, name);
+                    case "SplmtryData" -> resp.defer(reader, SUPPLEMENTARY, name, JsonReader.Token.BEGIN_ARRAY);
+                    default -> reader.skipValue();
                 }
             }
+            reader.endObject();
+
+            required(resp.mandateNumber, "MndtId");
+            required(resp.type, "LclInstrm");
+            resp.required(OCCURRENCES, "Ocrncs");
+            resp.required(DEBTOR, "Dbtr");
+            resp.required(AGENT, "DbtrAgt");
+            required(resp.contractNumber, "RfrdDoc");
+            resp.required(SUPPLEMENTARY, "SplmtryData");
             return resp;
         }
 
+        private void defer(JsonReader reader, int group, String name, JsonReader.Token token) {
+            if (reader.peek() != token) {
+                String expected = token == JsonReader.Token.BEGIN_OBJECT ? "JSONObject" : "JSONArray";
+                throw new JSONException("JSONObject[" + JSONObject.quote(name) + "] is not a " + expected + ".");
+            }
+            groups[2 * group] = reader.skipDeferred();
+            groups[2 * group + 1] = reader.offset();
+        }
+
+        private void required(int group, String name) {
+            if (groups[2 * group + 1] == 0) {
+                throw JsonReader.missing(name);
+            }
+        }
+
+        private JsonReader reader(byte[] buffer, int group) {
+            return new JsonReader(buffer, groups[2 * group], groups[2 * group + 1]);
+        }
+
+        /**
+         * Drop the source once every group was decoded, a source that is gone means the group was decoded already
+         */
+        private void release() {
+            if (occurrencesDecoded && debtorDecoded && agentDecoded && supplementaryDecoded) {
+                mndt = null;
+                json = null;
+            }
+        }
+
+        private void occurrences() {
+            if (occurrencesDecoded) {
+                return;
+            }
+            JSONObject mndt = this.mndt;
+            byte[] json = this.json;
+            if (mndt != null) {
+                JSONObject ocrncs = mndt.getJSONObject("Ocrncs");
+                sequenceType = Interner.INSTANCE.intern(ocrncs.getString("SeqTp"));
+                signDate = ocrncs.getJSONObject("Drtn").getString("FrDt");
+            } else if (json != null) {
+                String seqTp = null;
+                String frDt = null;
+                JsonReader reader = reader(json, OCCURRENCES);
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String field = reader.nextName();
+                    switch (field) {
+                        case "SeqTp" -> seqTp = Interner.INSTANCE.intern(string(reader, field));
+                        case "Drtn" -> {
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                field = reader.nextName();
+                                if (field.equals("FrDt")) {
+                                    frDt = string(reader, field);
+                                } else {
+                                    reader.skipValue();
+                                }
+                            }
+                            reader.endObject();
+                            required(frDt, "FrDt");
+                        }
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                required(seqTp, "SeqTp");
+                required(frDt, "Drtn");
+                sequenceType = seqTp;
+                signDate = frDt;
+            }
+            occurrencesDecoded = true;
+            release();
+        }
+
+        private void debtor() {
+            if (debtorDecoded) {
+                return;
+            }
+            JSONObject mndt = this.mndt;
+            byte[] json = this.json;
+            if (mndt != null) {
+                JSONObject dbtr = mndt.getJSONObject("Dbtr");
+                JSONObject addr = dbtr.getJSONObject("PstlAdr");
+                JSONObject ctct = dbtr.getJSONObject("CtctDtls");
+
+                debtorName = dbtr.getString("Nm");
+                debtorStreet = addr.optString("AdrLine");
+                debtorCity = addr.optString("TwnNm");
+                debtorZip = addr.optString("PstCd");
+                debtorCountry = Interner.INSTANCE.intern(addr.optString("Ctry"));
+                btwNummer = dbtr.optString("Id");
+                countryOfResidence = Interner.INSTANCE.intern(dbtr.optString("CtryOfRes"));
+                debtorEmail = ctct.optString("EmailAdr");
+                customerNumber = ctct.optString("Othr");
+            } else if (json != null) {
+                debtor(reader(json, DEBTOR));
+            }
+            debtorDecoded = true;
+            release();
+        }
+
+        private void debtor(JsonReader reader) {
+            String name = null;
+            String street = "", city = "", zip = "", country = "";
+            String id = "", residence = "", email = "", customer = "";
+            boolean address = false, contact = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                switch (field) {
+                    case "Nm" -> name = string(reader, field);
+                    case "PstlAdr" -> {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "AdrLine" -> street = reader.nextString("");
+                                case "TwnNm" -> city = reader.nextString("");
+                                case "PstCd" -> zip = reader.nextString("");
+                                case "Ctry" -> country = reader.nextInterned("");
+                                default -> reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        address = true;
+                    }
+                    case "CtctDtls" -> {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "EmailAdr" -> email = reader.nextString("");
+                                case "Othr" -> customer = reader.nextString("");
+                                default -> reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        contact = true;
+                    }
+                    case "Id" -> id = reader.nextString("");
+                    case "CtryOfRes" -> residence = reader.nextInterned("");
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            required(name, "Nm");
+            required(address ? "" : null, "PstlAdr");
+            required(contact ? "" : null, "CtctDtls");
+
+            debtorName = name;
+            debtorStreet = street;
+            debtorCity = city;
+            debtorZip = zip;
+            debtorCountry = country;
+            btwNummer = id;
+            countryOfResidence = residence;
+            debtorEmail = email;
+            customerNumber = customer;
+        }
+
+        private void agent() {
+            if (agentDecoded) {
+                return;
+            }
+            JSONObject mndt = this.mndt;
+            byte[] json = this.json;
+            if (mndt != null) {
+                JSONObject agent = mndt.getJSONObject("DbtrAgt").getJSONObject("FinInstnId");
+                bic = agent.optString("BICFI");
+                debtorBank = agent.optString("Nm");
+            } else if (json != null) {
+                String bicfi = "", bank = "";
+                boolean institution = false;
+                JsonReader reader = reader(json, AGENT);
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("FinInstnId")) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            switch (reader.nextName()) {
+                                case "BICFI" -> bicfi = reader.nextString("");
+                                case "Nm" -> bank = reader.nextString("");
+                                default -> reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        institution = true;
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                required(institution ? "" : null, "FinInstnId");
+                bic = bicfi;
+                debtorBank = bank;
+            }
+            agentDecoded = true;
+            release();
+        }
+
+        private void supplementary() {
+            if (supplementaryDecoded) {
+                return;
+            }
+            JSONObject mndt = this.mndt;
+            byte[] json = this.json;
+            if (mndt == null && json == null && supplementaryData != null) {
+                // decoded meanwhile, by the call that released the source
+                return;
+            }
+            Map<String, String> data = new HashMap<>();
+            if (mndt != null) {
+                for (Object kvItem : mndt.getJSONArray("SplmtryData")) {
+                    JSONObject item = (JSONObject) kvItem;
+                    String key = item.getString("Key");
+                    String value = item.get("Value").toString();
+                    if (key != null && !key.isEmpty()) {
+                        data.put(key, value);
+                    }
+                }
+            } else if (json != null) {
+                JsonReader reader = reader(json, SUPPLEMENTARY);
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    supplementary(reader, data);
+                }
+                reader.endArray();
+            }
+            supplementaryData = data;
+            supplementaryDecoded = true;
+            release();
+        }
+
+        private static void supplementary(JsonReader reader, Map<String, String> data) {
+            String key = null;
+            String value = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "Key" -> key = string(reader, name);
+                    // like the toString of the value in the tree, a null value is kept as "null"
+                    case "Value" -> value = reader.nextString("null");
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            required(key, "Key");
+            required(value, "Value");
+            if (!key.isEmpty()) {
+                data.put(key, value);
+            }
+        }
+
+        private static String string(JsonReader reader, String name) {
+            String value = reader.nextString();
+            if (value == null) {
+                throw new JSONException("JSONObject[" + JSONObject.quote(name) + "] is not a string.");
+            }
+            return value;
+        }
+
+        private static void required(String value, String name) {
+            if (value == null) {
+                throw JsonReader.missing(name);
+            }
+        }
+
         public static List<Document> fromQuery(JSONObject response) {
             JSONArray contracts = response.getJSONArray("Contracts");
             List<Document> docs = new ArrayList<>();
@@ -170,8 +506,8 @@ public interface DocumentResponse {
                 JSONObject contract = (JSONObject) kvcontract;
 
                 Document resp = new Document();
-                resp.type = contract.getString("type");
-                resp.state = contract.getString("state");
+                resp.type = Interner.INSTANCE.intern(contract.getString("type"));
+                resp.state = Interner.INSTANCE.intern(contract.getString("state"));
                 resp.mandateNumber = contract.getString("mandateNumber");
                 resp.contractNumber = contract.getString("contractNumber");
                 resp.signDate = contract.getString("signDate");
@@ -188,24 +524,24 @@ public interface DocumentResponse {
             sb.append("Mandate Number   : ").append(mandateNumber).append("\n");
             sb.append("State            : ").append(state).append("\n");
             sb.append("Type             : ").append(type).append("\n");
-            sb.append("Sequence Type    : ").append(sequenceType).append("\n");
-            sb.append("Sign Date        : ").append(signDate).append("\n");
-            sb.append("Debtor Name      : ").append(debtorName).append("\n");
-            sb.append("Debtor Street    : ").append(debtorStreet).append("\n");
-            sb.append("Debtor City      : ").append(debtorCity).append("\n");
-            sb.append("Debtor Zip       : ").append(debtorZip).append("\n");
-            sb.append("Debtor Country   : ").append(debtorCountry).append("\n");
-            sb.append("BTW Nummer       : ").append(btwNummer).append("\n");
-            sb.append("Country of Res   : ").append(countryOfResidence).append("\n");
-            sb.append("Debtor Email     : ").append(debtorEmail).append("\n");
-            sb.append("Customer Number  : ").append(customerNumber).append("\n");
+            sb.append("Sequence Type    : ").append(getSequenceType()).append("\n");
+            sb.append("Sign Date        : ").append(getSignDate()).append("\n");
+            sb.append("Debtor Name      : ").append(getDebtorName()).append("\n");
+            sb.append("Debtor Street    : ").append(getDebtorStreet()).append("\n");
+            sb.append("Debtor City      : ").append(getDebtorCity()).append("\n");
+            sb.append("Debtor Zip       : ").append(getDebtorZip()).append("\n");
+            sb.append("Debtor Country   : ").append(getDebtorCountry()).append("\n");
+            sb.append("BTW Nummer       : ").append(getBtwNummer()).append("\n");
+            sb.append("Country of Res   : ").append(getCountryOfResidence()).append("\n");
+            sb.append("Debtor Email     : ").append(getDebtorEmail()).append("\n");
+            sb.append("Customer Number  : ").append(getCustomerNumber()).append("\n");
             sb.append("IBAN             : ").append(iban).append("\n");
-            sb.append("BIC              : ").append(bic).append("\n");
-            sb.append("Debtor Bank      : ").append(debtorBank).append("\n");
+            sb.append("BIC              : ").append(getBic()).append("\n");
+            sb.append("Debtor Bank      : ").append(getDebtorBank()).append("\n");
             sb.append("Contract Number  : ").append(contractNumber).append("\n\n");
 
             sb.append("Supplementary Data:\n");
-            for (Map.Entry<String, String> entry : supplementaryData.entrySet()) {
+            for (Map.Entry<String, String> entry : getSupplementaryData().entrySet()) {
                 sb.append(entry.getKey()).append(" : ").append(entry.getValue()).append("\n");
             }
 
@@ -295,7 +631,10 @@ public interface DocumentResponse {
 
         // --- Factory method to build from JSON ---
         public static MandateCreationResponse fromJson(String response) {
-            JSONObject json = new JSONObject(new JSONTokener(response));
+            return fromJson(new JSONObject(new JSONTokener(response)));
+        }
+
+        public static MandateCreationResponse fromJson(JSONObject json) {
             MandateCreationResponse resp = new MandateCreationResponse();
 
             // Handle "MndtId" or "mndtId" (different casing across endpoints)
@@ -351,4 +690,152 @@ public interface DocumentResponse {
             return sb;
         }
     }
+
+    /**
+     * Update of a mandate as returned by the mandate feed
+     *
+     * @param type                  whether the mandate was signed, updated or cancelled
+     * @param document              the (new version of the) mandate, null when cancelled
+     * @param originalMandateNumber mandate number before the update or of the cancelled mandate, null for a new mandate
+     * @param reason                reason of the update or cancellation, null for a new mandate
+     * @param author                email of who updated or cancelled the mandate, null for a new mandate
+     * @param eventTime             time of the update
+     */
+    record Event(
+            EventType type,
+            Document document, // nullable
+            String originalMandateNumber, // nullable
+            String reason, // nullable
+            String author, // nullable
+            String eventTime
+    ) {
+        public enum EventType {
+            NEW,
+            UPDATED,
+            CANCELLED
+        }
+
+        /**
+         * @return the number of the mandate this event is about
+         */
+        public String mandateNumber() {
+            return originalMandateNumber != null ? originalMandateNumber : document.getMandateNumber();
+        }
+
+        public static Event fromJson(JSONObject json) {
+            if (json.has("CxlRsn")) {
+                JSONObject reason = json.getJSONObject("CxlRsn");
+                return new Event(EventType.CANCELLED, null, json.getString("OrgnlMndtId"), reason.getString("Rsn"), author(reason), json.getString("EvtTime"));
+            } else if (json.has("AmdmntRsn")) {
+                JSONObject reason = json.getJSONObject("AmdmntRsn");
+                return new Event(EventType.UPDATED, Document.fromJson(json, null), json.getString("OrgnlMndtId"), reason.getString("Rsn"), author(reason), json.getString("EvtTime"));
+            }
+            return new Event(EventType.NEW, Document.fromJson(json, null), null, null, null, json.getString("EvtTime"));
+        }
+
+        private static String author(JSONObject reason) {
+            return reason.getJSONObject("Orgtr").getJSONObject("CtctDtls").getString("EmailAdr");
+        }
+
+        /**
+         * Bind an event while reading the JSON, without an intermediate tree. The groups of the mandate are decoded
+         * on first access, like for a {@link Document#fromJson(JsonReader, String)}.
+         *
+         * @param reader reader positioned at the object of the event
+         */
+        public static Event fromJson(JsonReader reader) {
+            int mandateStart = -1;
+            int mandateEnd = -1;
+            String originalMandateNumber = null;
+            String eventTime = null;
+            Reason cancellation = null;
+            Reason amendment = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case "Mndt" -> {
+                        // only bound once it's known the event carries the mandate
+                        mandateStart = reader.skipDeferred();
+                        mandateEnd = reader.offset();
+                    }
+                    case "OrgnlMndtId" -> originalMandateNumber = Document.string(reader, name);
+                    case "EvtTime" -> eventTime = Document.string(reader, name);
+                    case "CxlRsn" -> cancellation = Reason.fromJson(reader);
+                    case "AmdmntRsn" -> amendment = Reason.fromJson(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (cancellation != null) {
+                Document.required(originalMandateNumber, "OrgnlMndtId");
+                Document.required(eventTime, "EvtTime");
+                return new Event(EventType.CANCELLED, null, originalMandateNumber, cancellation.reason(), cancellation.author(), eventTime);
+            }
+            if (mandateStart < 0) {
+                throw JsonReader.missing("Mndt");
+            }
+            Document document = Document.mandate(new JsonReader(reader.buffer(), mandateStart, mandateEnd), null);
+            if (amendment != null) {
+                Document.required(originalMandateNumber, "OrgnlMndtId");
+                Document.required(eventTime, "EvtTime");
+                return new Event(EventType.UPDATED, document, originalMandateNumber, amendment.reason(), amendment.author(), eventTime);
+            }
+            Document.required(eventTime, "EvtTime");
+            return new Event(EventType.NEW, document, null, null, null, eventTime);
+        }
+
+        /**
+         * Reason of a cancellation or amendment and the email of who initiated it
+         */
+        private record Reason(String reason, String author) {
+
+            static Reason fromJson(JsonReader reader) {
+                String reason = null;
+                String author = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    switch (name) {
+                        case "Rsn" -> reason = Document.string(reader, name);
+                        case "Orgtr" -> author = originator(reader);
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                Document.required(reason, "Rsn");
+                Document.required(author, "Orgtr");
+                return new Reason(reason, author);
+            }
+
+            private static String originator(JsonReader reader) {
+                String email = null;
+                boolean contact = false;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("CtctDtls")) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            String name = reader.nextName();
+                            if (name.equals("EmailAdr")) {
+                                email = Document.string(reader, name);
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                        contact = true;
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                Document.required(contact ? "" : null, "CtctDtls");
+                Document.required(email, "EmailAdr");
+                return email;
+            }
+        }
+    }
 }
\ No newline at end of file
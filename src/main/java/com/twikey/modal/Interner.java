@@ -0,0 +1,81 @@
+package com.twikey.modal;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Shares the instances of values that repeat across many models (eg. the state of a transaction or the country of a
+ * debtor), so models kept in memory don't each hold their own copy and equal values are usually the same instance.
+ *
+ * <p>The pool is a fixed table where a value replaces the value in its slot, so it stays bounded whatever the
+ * cardinality of the values. Slots are read and written without locking: a value is either found or replaced, and
+ * losing a race only costs a copy. Long values are never pooled.</p>
+ */
+final class Interner {
+
+    static final Interner INSTANCE = new Interner(4096);
+
+    static final int MAX_LENGTH = 64;
+
+    private final String[] table;
+
+    Interner(int size) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Size must be a power of 2: " + size);
+        }
+        this.table = new String[size];
+    }
+
+    /**
+     * @return the pooled instance equal to the value, the value itself when it wasn't pooled yet
+     */
+    String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        int slot = slot(value.hashCode());
+        String pooled = table[slot];
+        if (value.equals(pooled)) {
+            return pooled;
+        }
+        table[slot] = value;
+        return value;
+    }
+
+    /**
+     * Intern the ASCII text between the positions without decoding it when it's pooled already
+     *
+     * @return the pooled instance, null if the text isn't ASCII or too long
+     */
+    String intern(byte[] ascii, int start, int end) {
+        if (end - start > MAX_LENGTH) {
+            return null;
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            byte b = ascii[i];
+            if (b < 0) {
+                return null;
+            }
+            // same as String.hashCode() for ASCII
+            hash = 31 * hash + b;
+        }
+        int slot = slot(hash);
+        String pooled = table[slot];
+        if (pooled != null && pooled.length() == end - start) {
+            int i = 0;
+            while (i < pooled.length() && pooled.charAt(i) == ascii[start + i]) {
+                i++;
+            }
+            if (i == pooled.length()) {
+                return pooled;
+            }
+        }
+        String value = new String(ascii, start, end - start, StandardCharsets.ISO_8859_1);
+        table[slot] = value;
+        return value;
+    }
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & (table.length - 1);
+    }
+}
@@ -193,6 +193,73 @@ public interface InvoiceRequests {
             return map;
         }
 
+        /**
+         * Writes the same request as {@link #toRequest()} without building the JSONObject first. Extra attributes
+         * replace the fields with the same name.
+         */
+        public JsonWriter writeTo(JsonWriter writer) {
+            writer.beginObject();
+            field(writer, "id", id);
+            field(writer, "number", number);
+            field(writer, "title", title);
+            field(writer, "remittance", remittance);
+            field(writer, "ref", ref);
+            field(writer, "ct", ct);
+            field(writer, "amount", String.valueOf(amount));
+            field(writer, "date", date);
+            field(writer, "duedate", duedate);
+            field(writer, "locale", locale);
+            field(writer, "manual", String.valueOf(manual));
+            field(writer, "pdf", pdf);
+            field(writer, "pdfUrl", pdfUrl);
+            field(writer, "redirectUrl", redirectUrl);
+            field(writer, "email", email);
+            field(writer, "relatedInvoiceNumber", relatedInvoiceNumber);
+            field(writer, "cc", cc);
+            if (customer != null && (extra == null || !extra.containsKey("customer"))) {
+                writer.name("customer").beginObject();
+                put(writer, "customerNumber", customer.getCustomerNumber());
+                put(writer, "email", customer.getEmail());
+                put(writer, "firstname", customer.getFirstname());
+                put(writer, "lastname", customer.getLastname());
+                put(writer, "mobile", customer.getMobile());
+                put(writer, "address", customer.getStreet());
+                put(writer, "city", customer.getCity());
+                put(writer, "zip", customer.getZip());
+                put(writer, "country", customer.getCountry());
+                put(writer, "companyName", customer.getCompanyName());
+                put(writer, "vatno", customer.getCoc());
+                put(writer, "l", customer.getLang());
+                writer.endObject();
+            }
+            if (lines != null && !lines.isEmpty()) {
+                // the lines are sent as a JSON string
+                JsonWriter lineWriter = new JsonWriter().beginArray();
+                for (LineItem line : lines) line.writeTo(lineWriter);
+                field(writer, "lines", lineWriter.endArray().toString());
+            }
+            if (extra != null) {
+                extra.forEach((key, value) -> {
+                    if (value != null) {
+                        writer.name(key).value(value);
+                    }
+                });
+            }
+            return writer.endObject();
+        }
+
+        private void field(JsonWriter writer, String name, String value) {
+            if (extra == null || !extra.containsKey(name)) {
+                put(writer, name, value);
+            }
+        }
+
+        private static void put(JsonWriter writer, String name, String value) {
+            if (value != null) {
+                writer.name(name).value(value);
+            }
+        }
+
         public static class LineItem {
             private String code, description, uom, vatcode;
             private Integer quantity;
@@ -245,6 +312,18 @@ public interface InvoiceRequests {
                 return map;
             }
 
+            public JsonWriter writeTo(JsonWriter writer) {
+                writer.beginObject();
+                if (code != null) writer.name("code").value(code);
+                if (description != null) writer.name("description").value(description);
+                if (quantity != null) writer.name("quantity").value(quantity);
+                if (uom != null) writer.name("uom").value(uom);
+                if (unitprice != null) writer.name("unitprice").value(unitprice);
+                if (vatcode != null) writer.name("vatcode").value(vatcode);
+                if (vatsum != null) writer.name("vatsum").value(vatsum);
+                return writer.endObject();
+            }
+
 //            private static void putIfNotNull(Map<String, Object> map, String key, Object value) {
 //                if (value != null) map.put(key, value);
 //            }
@@ -21,7 +21,7 @@ public interface InvoiceResponse {
         private String remittance;
         private String ref;
         private Integer ct;
-        private Double amount;
+        private long amount = Cents.ABSENT; // in cents
         private String date;
         private String duedate;
         private String state;
@@ -47,10 +47,14 @@ public interface InvoiceResponse {
             invoice.remittance = json.optString("remittance");
             invoice.ref = json.optString("ref");
             invoice.ct = json.has("ct") ? json.getInt("ct") : null;
-            invoice.amount = json.has("amount") ? json.getDouble("amount") : null;
+            if (json.has("amount")) {
+                // like before an amount that isn't a number is refused
+                json.getDouble("amount");
+                invoice.amount = Cents.of(json.get("amount"), Cents.INVALID);
+            }
             invoice.date = json.optString("date");
             invoice.duedate = json.optString("duedate");
-            invoice.state = json.optString("state");
+            invoice.state = Interner.INSTANCE.intern(json.optString("state"));
             invoice.url = json.optString("url");
 
             // Optional fields
@@ -61,6 +65,50 @@ public interface InvoiceResponse {
             return invoice;
         }
 
+        /**
+         * Factory method to bind an Invoice while reading the JSON, without an intermediate tree. Only the meta and
+         * customer are kept as JSON.
+         *
+         * @param reader reader positioned at the object of the invoice.
+         * @return Invoice instance populated with API response values.
+         */
+        public static Invoice fromJson(JsonReader reader) {
+            Invoice invoice = new Invoice();
+            invoice.id = "";
+            invoice.number = "";
+            invoice.title = "";
+            invoice.remittance = "";
+            invoice.ref = "";
+            invoice.date = "";
+            invoice.duedate = "";
+            invoice.state = "";
+            invoice.url = "";
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> invoice.id = reader.nextString("");
+                    case "number" -> invoice.number = reader.nextString("");
+                    case "title" -> invoice.title = reader.nextString("");
+                    case "remittance" -> invoice.remittance = reader.nextString("");
+                    case "ref" -> invoice.ref = reader.nextString("");
+                    case "ct" -> invoice.ct = (int) reader.nextLong();
+                    case "amount" -> invoice.amount = reader.nextCents();
+                    case "date" -> invoice.date = reader.nextString("");
+                    case "duedate" -> invoice.duedate = reader.nextString("");
+                    case "state" -> invoice.state = reader.nextInterned("");
+                    case "url" -> invoice.url = reader.nextString("");
+                    case "lastpayment" -> invoice.lastpayment = reader.nextString();
+                    case "meta" -> invoice.meta = reader.nextJSONObject();
+                    case "customer" -> invoice.customer = reader.nextJSONObject();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return invoice;
+        }
+
         // --- Getters ---
         public String getId() {
             return id;
@@ -87,7 +135,14 @@ public interface InvoiceResponse {
         }
 
         public Double getAmount() {
-            return amount;
+            return Cents.boxed(amount);
+        }
+
+        /**
+         * @return the amount in cents, 0 if there is none
+         */
+        public long getAmountCents() {
+            return Cents.value(amount);
         }
 
         public String getDate() {
@@ -127,7 +182,7 @@ public interface InvoiceResponse {
                     ", remittance='" + remittance + '\'' +
                     ", ref='" + ref + '\'' +
                     ", ct=" + ct +
-                    ", amount=" + amount +
+                    ", amount=" + getAmount() +
                     ", date='" + date + '\'' +
                     ", duedate='" + duedate + '\'' +
                     ", state='" + state + '\'' +
@@ -277,6 +332,13 @@ public interface InvoiceResponse {
             Map<String, Object> details,
             EventError error // nullable
     ) {
+        /**
+         * @return the amount in cents
+         */
+        public long amountCents() {
+            return Cents.of(amount);
+        }
+
         public static Event fromJson(JSONObject json) {
             Map<String, Object> details = json.getJSONObject("details").toMap();
             return new Event(
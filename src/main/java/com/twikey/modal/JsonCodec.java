@@ -0,0 +1,74 @@
+package com.twikey.modal;
+
+import java.io.InputStream;
+import java.util.ServiceLoader;
+
+/**
+ * Binds the JSON of the api to the models. The built-in {@link #streaming()} codec binds while reading the response,
+ * the {@link #orgJson()} codec parses into a {@link org.json.JSONObject} first like before and remains available as
+ * fallback. Another implementation can be set on the client or registered as {@link ServiceLoader service} in
+ * <code>META-INF/services/com.twikey.modal.JsonCodec</code>.
+ *
+ * <p>Every method receives the UTF-8 encoded JSON of a single value, read from the response that was already
+ * received completely, so a codec can hand the stream to any JSON library.</p>
+ *
+ * <pre>
+ * TwikeyClient twikeyClient = new TwikeyClient(apiKey).withJsonCodec(JsonCodec.orgJson());
+ * </pre>
+ */
+public interface JsonCodec {
+
+    /**
+     * @param json the transaction
+     */
+    TransactionResponse.Transaction transaction(InputStream json);
+
+    /**
+     * @param json the refund
+     */
+    RefundResponse.Refund refund(InputStream json);
+
+    /**
+     * @param json the invoice
+     */
+    InvoiceResponse.Invoice invoice(InputStream json);
+
+    /**
+     * @param json the paylink
+     */
+    PaylinkResponse.Paylink paylink(InputStream json);
+
+    /**
+     * @param json  the object holding the mandate
+     * @param state state of the mandate
+     */
+    DocumentResponse.Document document(InputStream json, String state);
+
+    /**
+     * @return body to create the invoice
+     */
+    String write(InvoiceRequests.CreateInvoiceRequest request);
+
+    /**
+     * @return codec binding the models while reading the JSON
+     */
+    static JsonCodec streaming() {
+        return StreamingJsonCodec.INSTANCE;
+    }
+
+    /**
+     * @return codec binding the models from the tree of org.json
+     */
+    static JsonCodec orgJson() {
+        return OrgJsonCodec.INSTANCE;
+    }
+
+    /**
+     * Looks the services up on every call, the client does so once
+     *
+     * @return the first codec registered as service, otherwise the {@link #streaming()} codec
+     */
+    static JsonCodec load() {
+        return ServiceLoader.load(JsonCodec.class).findFirst().orElse(streaming());
+    }
+}
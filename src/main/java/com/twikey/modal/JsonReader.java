@@ -0,0 +1,861 @@
+package com.twikey.modal;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull parser reading a UTF-8 encoded JSON document one token at a time, without building a tree or decoding the
+ * whole document. Strings are only created for the values that are read, skipped values and numbers read as a
+ * primitive don't allocate and the names of members are shared across the objects in the document.
+ *
+ * <p>The typed reads follow the lenient rules of the <code>opt</code> methods of {@link JSONObject}: a number can
+ * be read as a string and a numeric string as a number, a value that can't be converted returns the given
+ * fallback. Malformed documents throw a {@link JSONException} like {@link org.json.JSONTokener} does.</p>
+ *
+ * <pre>
+ * JsonReader reader = new JsonReader(body);
+ * reader.beginObject();
+ * while (reader.hasNext()) {
+ *     switch (reader.nextName()) {
+ *         case "id" -&gt; id = reader.nextLong(0);
+ *         case "state" -&gt; state = reader.nextString();
+ *         default -&gt; reader.skipValue();
+ *     }
+ * }
+ * reader.endObject();
+ * </pre>
+ */
+public final class JsonReader {
+
+    public enum Token {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        NAME,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final byte[] in;
+    private final int limit;
+    private int pos;
+    private int[] stack = new int[16];
+    private int depth = 1;
+    private Token peeked;
+    private final String[] names = new String[64];
+    private final byte[][] nameBytes = new byte[64][];
+
+    public JsonReader(String json) {
+        this(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param json UTF-8 encoded document
+     */
+    public JsonReader(byte[] json) {
+        this(json, json.length);
+    }
+
+    /**
+     * @param json   buffer holding the UTF-8 encoded document at the start
+     * @param length length of the document in the buffer
+     */
+    public JsonReader(byte[] json, int length) {
+        this(json, 0, length);
+    }
+
+    /**
+     * @param json   buffer holding the UTF-8 encoded document
+     * @param offset start of the document in the buffer
+     * @param limit  end of the document in the buffer
+     */
+    JsonReader(byte[] json, int offset, int limit) {
+        this.in = json;
+        this.pos = offset;
+        this.limit = limit;
+        this.stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * @return the type of the next token without consuming it
+     */
+    public Token peek() {
+        if (peeked != null) {
+            return peeked;
+        }
+        int state = stack[depth - 1];
+        char c;
+        switch (state) {
+            case EMPTY_DOCUMENT -> {
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                return peeked = value(clean());
+            }
+            case NONEMPTY_DOCUMENT -> {
+                if (clean() != 0) {
+                    throw syntaxError("Unexpected content after the document");
+                }
+                return peeked = Token.END_DOCUMENT;
+            }
+            case EMPTY_OBJECT, NONEMPTY_OBJECT -> {
+                c = clean();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (state == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Expected a ',' or '}'");
+                    }
+                    pos++;
+                    c = clean();
+                }
+                if (c != '"') {
+                    throw syntaxError("A JSONObject text must begin with a key");
+                }
+                return peeked = Token.NAME;
+            }
+            case DANGLING_NAME -> {
+                if (clean() != ':') {
+                    throw syntaxError("Expected a ':' after a key");
+                }
+                pos++;
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                return peeked = value(clean());
+            }
+            default -> {
+                c = clean();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (state == NONEMPTY_ARRAY) {
+                    if (c != ',') {
+                        throw syntaxError("Expected a ',' or ']'");
+                    }
+                    pos++;
+                    c = clean();
+                }
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                return peeked = value(c);
+            }
+        }
+    }
+
+    public void beginObject() {
+        expect(Token.BEGIN_OBJECT);
+        pos++;
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() {
+        expect(Token.END_OBJECT);
+        pos++;
+        depth--;
+    }
+
+    public void beginArray() {
+        expect(Token.BEGIN_ARRAY);
+        pos++;
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() {
+        expect(Token.END_ARRAY);
+        pos++;
+        depth--;
+    }
+
+    /**
+     * @return whether the current object or array has another member or element
+     */
+    public boolean hasNext() {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * @return name of the next member of the object
+     */
+    public String nextName() {
+        expect(Token.NAME);
+        int start = pos + 1;
+        int end = indexOf('"', start);
+        String name;
+        if (end < 0) {
+            throw syntaxError("Unterminated string");
+        }
+        if (escaped(start, end)) {
+            name = readString();
+        } else {
+            name = name(start, end);
+            pos = end + 1;
+        }
+        stack[depth - 1] = DANGLING_NAME;
+        return name;
+    }
+
+    /**
+     * @return the next value as text (numbers and booleans as written, objects and arrays as JSON), null for a null value
+     */
+    public String nextString() {
+        return nextString(null);
+    }
+
+    /**
+     * @param fallback returned for a null value
+     */
+    public String nextString(String fallback) {
+        switch (peek()) {
+            case STRING -> {
+                peeked = null;
+                return readString();
+            }
+            case NUMBER, BOOLEAN -> {
+                int start = pos;
+                skipLiteral();
+                return ascii(start, pos);
+            }
+            case NULL -> {
+                nextNull();
+                return fallback;
+            }
+            case BEGIN_OBJECT, BEGIN_ARRAY -> {
+                return String.valueOf(nextValue());
+            }
+            default -> throw syntaxError("Expected a value but was " + peeked);
+        }
+    }
+
+    /**
+     * Like {@link #nextString()} for values that repeat across documents, returns the instance shared by the
+     * {@link Interner} without decoding the value when it was seen before
+     */
+    String nextInterned() {
+        return nextInterned(null);
+    }
+
+    /**
+     * @param fallback returned for a null value
+     */
+    String nextInterned(String fallback) {
+        if (peek() == Token.STRING) {
+            int start = pos + 1;
+            int end = indexOf('"', start);
+            if (end > 0 && !escaped(start, end)) {
+                String value = Interner.INSTANCE.intern(in, start, end);
+                if (value != null) {
+                    peeked = null;
+                    pos = end + 1;
+                    return value;
+                }
+            }
+        }
+        return Interner.INSTANCE.intern(nextString(fallback));
+    }
+
+    /**
+     * @param fallback returned for a null value or a value that isn't a number
+     */
+    public long nextLong(long fallback) {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            int start = pos;
+            long value = 0;
+            boolean negative = in[pos] == '-';
+            int i = negative ? pos + 1 : pos;
+            int digits = 0;
+            while (i < limit && in[i] >= '0' && in[i] <= '9' && digits < 18) {
+                value = value * 10 + (in[i++] - '0');
+                digits++;
+            }
+            skipLiteral();
+            if (i == pos && digits > 0) {
+                return negative ? -value : value;
+            }
+            // fraction, exponent or too long for the fast path
+            return parseLong(ascii(start, pos), fallback);
+        }
+        if (token == Token.STRING) {
+            peeked = null;
+            return parseLong(readString(), fallback);
+        }
+        skipValue();
+        return fallback;
+    }
+
+    /**
+     * @throws JSONException for a null value or a value that isn't a number, like {@link JSONObject#getLong(String)}
+     */
+    public long nextLong() {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            return nextLong(0);
+        }
+        if (token == Token.STRING) {
+            peeked = null;
+            String value = readString();
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                try {
+                    return (long) Double.parseDouble(value);
+                } catch (NumberFormatException notNumeric) {
+                    throw syntaxError("Expected a number but was " + JSONObject.quote(value));
+                }
+            }
+        }
+        throw syntaxError("Expected a number but was " + token);
+    }
+
+    /**
+     * @param fallback returned for a null value or a value that isn't a number
+     */
+    public int nextInt(int fallback) {
+        long value = nextLong(fallback);
+        return (int) value;
+    }
+
+    /**
+     * @param fallback returned for a null value or a value that isn't a number
+     */
+    public double nextDouble(double fallback) {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            int start = pos;
+            skipLiteral();
+            try {
+                return Double.parseDouble(ascii(start, pos));
+            } catch (NumberFormatException e) {
+                throw syntaxError("Invalid number " + ascii(start, pos));
+            }
+        }
+        if (token == Token.STRING) {
+            peeked = null;
+            try {
+                return Double.parseDouble(readString());
+            } catch (NumberFormatException e) {
+                return fallback;
+            }
+        }
+        skipValue();
+        return fallback;
+    }
+
+    /**
+     * @throws JSONException for a null value or a value that isn't a number, like {@link JSONObject#getDouble(String)}
+     */
+    public double nextDouble() {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            return nextDouble(0);
+        }
+        if (token == Token.STRING) {
+            peeked = null;
+            String value = readString();
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw syntaxError("Expected a number but was " + JSONObject.quote(value));
+            }
+        }
+        throw syntaxError("Expected a number but was " + token);
+    }
+
+    /**
+     * Read an amount as a number of cents straight from the digits, without going through a double. More than 2
+     * decimals are rounded half up.
+     *
+     * @param fallback returned for a null value or a value that isn't a number
+     */
+    public long nextCents(long fallback) {
+        Token token = peek();
+        if (token == Token.NUMBER) {
+            int start = pos;
+            skipLiteral();
+            return cents(start, pos);
+        }
+        if (token == Token.STRING) {
+            peeked = null;
+            return Cents.of(readString(), fallback);
+        }
+        skipValue();
+        return fallback;
+    }
+
+    /**
+     * @throws JSONException for a null value or a value that isn't a number
+     */
+    public long nextCents() {
+        Token token = peek();
+        long cents = nextCents(Cents.INVALID);
+        if (cents == Cents.INVALID) {
+            throw syntaxError("Expected a number but was " + token);
+        }
+        return cents;
+    }
+
+    /**
+     * @param fallback returned for a null value or a value that isn't a boolean
+     */
+    public boolean nextBoolean(boolean fallback) {
+        Token token = peek();
+        if (token == Token.BOOLEAN) {
+            boolean value = in[pos] == 't';
+            skipLiteral();
+            return value;
+        }
+        if (token == Token.STRING) {
+            peeked = null;
+            String value = readString();
+            if ("true".equalsIgnoreCase(value)) {
+                return true;
+            }
+            if ("false".equalsIgnoreCase(value)) {
+                return false;
+            }
+            return fallback;
+        }
+        skipValue();
+        return fallback;
+    }
+
+    public void nextNull() {
+        expect(Token.NULL);
+        skipLiteral();
+    }
+
+    /**
+     * Skip the next value including everything nested in it
+     */
+    public void skipValue() {
+        int level = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_OBJECT -> {
+                    beginObject();
+                    level++;
+                }
+                case BEGIN_ARRAY -> {
+                    beginArray();
+                    level++;
+                }
+                case END_OBJECT -> {
+                    endObject();
+                    level--;
+                }
+                case END_ARRAY -> {
+                    endArray();
+                    level--;
+                }
+                case NAME -> nextName();
+                case STRING -> {
+                    int end = pos + 1;
+                    while (true) {
+                        end = indexOf('"', end);
+                        if (end < 0) {
+                            throw syntaxError("Unterminated string");
+                        }
+                        int backslashes = 0;
+                        while (in[end - 1 - backslashes] == '\\') {
+                            backslashes++;
+                        }
+                        if (backslashes % 2 == 0) {
+                            break;
+                        }
+                        end++;
+                    }
+                    pos = end + 1;
+                    peeked = null;
+                }
+                case NUMBER, BOOLEAN, NULL -> skipLiteral();
+                case END_DOCUMENT -> throw syntaxError("Expected a value");
+            }
+        } while (level > 0);
+    }
+
+    /**
+     * Skip the next value like {@link #skipValue()}, for a value that is read later from the {@link #buffer()}
+     *
+     * @return offset of the value in the buffer, it ends at the {@link #offset()} after the call
+     */
+    int skipDeferred() {
+        peek();
+        int start = pos;
+        skipValue();
+        return start;
+    }
+
+    /**
+     * @return offset in the buffer right after the last token that was read
+     */
+    int offset() {
+        return pos;
+    }
+
+    byte[] buffer() {
+        return in;
+    }
+
+    /**
+     * Read the next value as tree, for the parts of a document that are kept as {@link JSONObject}
+     *
+     * @return {@link JSONObject}, {@link JSONArray}, String, Number, Boolean or {@link JSONObject#NULL}
+     */
+    public Object nextValue() {
+        switch (peek()) {
+            case BEGIN_OBJECT -> {
+                JSONObject object = new JSONObject();
+                beginObject();
+                while (hasNext()) {
+                    String name = nextName();
+                    object.put(name, nextValue());
+                }
+                endObject();
+                return object;
+            }
+            case BEGIN_ARRAY -> {
+                JSONArray array = new JSONArray();
+                beginArray();
+                while (hasNext()) {
+                    array.put(nextValue());
+                }
+                endArray();
+                return array;
+            }
+            case STRING -> {
+                peeked = null;
+                return readString();
+            }
+            case NUMBER, BOOLEAN, NULL -> {
+                int start = pos;
+                skipLiteral();
+                return JSONObject.stringToValue(ascii(start, pos));
+            }
+            default -> throw syntaxError("Expected a value but was " + peeked);
+        }
+    }
+
+    /**
+     * @return the next object as tree
+     * @throws JSONException if the next value isn't an object
+     */
+    public JSONObject nextJSONObject() {
+        if (peek() != Token.BEGIN_OBJECT) {
+            throw syntaxError("Expected a JSONObject but was " + peeked);
+        }
+        return (JSONObject) nextValue();
+    }
+
+    /**
+     * Skip the next value and hand out its bytes, eg. to pass it to a {@link JsonCodec}
+     *
+     * @return UTF-8 encoded JSON of the value
+     */
+    public InputStream nextValueStream() {
+        int start = skipDeferred();
+        return new ValueStream(in, start, pos - start);
+    }
+
+    /**
+     * Stream over a value of the buffer of a reader, that the built-in codec reads without copying it
+     */
+    static final class ValueStream extends ByteArrayInputStream {
+
+        ValueStream(byte[] buffer, int offset, int length) {
+            super(buffer, offset, length);
+        }
+
+        /**
+         * @return reader over the bytes that weren't read from the stream yet
+         */
+        JsonReader reader() {
+            return new JsonReader(buf, pos, count);
+        }
+    }
+
+    /**
+     * Position the reader at the first element of an array in the current object (eg. the <code>Entries</code> of a
+     * response), skipping the members before it
+     *
+     * @return this reader
+     * @throws JSONException if the object has no such array or the array is empty
+     */
+    public JsonReader select(String array) {
+        if (peek() == Token.BEGIN_OBJECT) {
+            beginObject();
+        }
+        while (hasNext()) {
+            if (nextName().equals(array)) {
+                beginArray();
+                if (!hasNext()) {
+                    throw new JSONException("JSONArray[0] not found.");
+                }
+                return this;
+            }
+            skipValue();
+        }
+        throw missing(array);
+    }
+
+    /**
+     * @return the exception for a member that is required but wasn't found
+     */
+    public static JSONException missing(String name) {
+        return new JSONException("JSONObject[" + JSONObject.quote(name) + "] not found.");
+    }
+
+    private void expect(Token token) {
+        if (peek() != token) {
+            throw syntaxError("Expected " + token + " but was " + peeked);
+        }
+        peeked = null;
+    }
+
+    private void push(int state) {
+        if (depth == stack.length) {
+            int[] grown = new int[depth * 2];
+            System.arraycopy(stack, 0, grown, 0, depth);
+            stack = grown;
+        }
+        stack[depth++] = state;
+    }
+
+    private Token value(char c) {
+        return switch (c) {
+            case '{' -> Token.BEGIN_OBJECT;
+            case '[' -> Token.BEGIN_ARRAY;
+            case '"' -> Token.STRING;
+            case 't', 'f' -> Token.BOOLEAN;
+            case 'n' -> Token.NULL;
+            case '-', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9' -> Token.NUMBER;
+            case 0 -> throw syntaxError("Unexpected end of document");
+            default -> throw syntaxError("Unexpected character '" + c + "'");
+        };
+    }
+
+    /**
+     * @return next character that isn't whitespace without consuming it, 0 at the end
+     */
+    private char clean() {
+        while (pos < limit) {
+            byte c = in[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return (char) (c & 0xff);
+            }
+            pos++;
+        }
+        return 0;
+    }
+
+    private void skipLiteral() {
+        peeked = null;
+        int start = pos;
+        while (pos < limit) {
+            byte c = in[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                break;
+            }
+            pos++;
+        }
+        if (pos == start) {
+            throw syntaxError("Missing value");
+        }
+        byte first = in[start];
+        if ((first == 't' && !literal("true", start))
+                || (first == 'f' && !literal("false", start))
+                || (first == 'n' && !literal("null", start))) {
+            throw syntaxError("Unexpected literal " + ascii(start, pos));
+        }
+    }
+
+    /**
+     * Read the string starting at the quote at the current position, decoding the UTF-8 in between
+     */
+    private String readString() {
+        int start = pos + 1;
+        StringBuilder sb = null;
+        int i = start;
+        while (true) {
+            if (i >= limit) {
+                throw syntaxError("Unterminated string");
+            }
+            byte c = in[i];
+            if (c == '"') {
+                pos = i + 1;
+                if (sb == null) {
+                    return utf8(start, i);
+                }
+                return sb.append(utf8(start, i)).toString();
+            }
+            if (c == '\\') {
+                if (sb == null) {
+                    sb = new StringBuilder(i - start + 16);
+                }
+                sb.append(utf8(start, i));
+                if (i + 1 >= limit) {
+                    throw syntaxError("Unterminated string");
+                }
+                byte escaped = in[i + 1];
+                i += 2;
+                switch (escaped) {
+                    case 'b' -> sb.append('\b');
+                    case 't' -> sb.append('\t');
+                    case 'n' -> sb.append('\n');
+                    case 'f' -> sb.append('\f');
+                    case 'r' -> sb.append('\r');
+                    case 'u' -> {
+                        if (i + 4 > limit) {
+                            throw syntaxError("Illegal escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(ascii(i, i + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw syntaxError("Illegal escape");
+                        }
+                        i += 4;
+                    }
+                    case '"', '\'', '\\', '/' -> sb.append((char) escaped);
+                    default -> throw syntaxError("Illegal escape");
+                }
+                start = i;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * @return the name between the positions, the same instance for every occurrence of a name in the document
+     */
+    private String name(int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + in[i];
+        }
+        int slot = hash & (names.length - 1);
+        byte[] cached = nameBytes[slot];
+        if (cached != null && Arrays.equals(in, start, end, cached, 0, cached.length)) {
+            return names[slot];
+        }
+        String name = utf8(start, end);
+        names[slot] = name;
+        nameBytes[slot] = Arrays.copyOfRange(in, start, end);
+        return name;
+    }
+
+    private int indexOf(char c, int from) {
+        for (int i = from; i < limit; i++) {
+            if (in[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean escaped(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (in[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean literal(String literal, int at) {
+        if (at + literal.length() > limit) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (in[at + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String ascii(int start, int end) {
+        return new String(in, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private String utf8(int start, int end) {
+        return new String(in, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number between the positions in cents, rounded half up like {@link Cents#of(BigDecimal)}
+     */
+    private long cents(int start, int end) {
+        int i = start;
+        boolean negative = in[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long whole = 0;
+        int digits = 0;
+        while (i < end && in[i] >= '0' && in[i] <= '9') {
+            whole = whole * 10 + (in[i++] - '0');
+            digits++;
+        }
+        long fraction = 0;
+        int decimals = 0;
+        boolean roundUp = false;
+        if (i < end && in[i] == '.') {
+            i++;
+            while (i < end && in[i] >= '0' && in[i] <= '9') {
+                if (decimals < 2) {
+                    fraction = fraction * 10 + (in[i] - '0');
+                } else if (decimals == 2) {
+                    roundUp = in[i] >= '5';
+                }
+                decimals++;
+                i++;
+            }
+        }
+        if (i < end || digits == 0 || digits > 16) {
+            // exponent, malformed or too large for the fast path
+            try {
+                return Cents.of(new BigDecimal(ascii(start, end)));
+            } catch (NumberFormatException e) {
+                throw syntaxError("Invalid number " + ascii(start, end));
+            }
+        }
+        if (decimals == 1) {
+            fraction *= 10;
+        }
+        long cents = whole * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    private static long parseLong(String value, long fallback) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(value);
+            } catch (NumberFormatException notNumeric) {
+                return fallback;
+            }
+        }
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at " + pos);
+    }
+}
@@ -0,0 +1,186 @@
+package com.twikey.modal;
+
+import org.json.JSONObject;
+
+/**
+ * Writes a JSON document straight into a buffer, without building a {@link JSONObject} first. The writer takes care
+ * of the separators, the caller of the nesting:
+ *
+ * <pre>
+ * String json = new JsonWriter()
+ *         .beginObject()
+ *         .name("number").value("Inv-1")
+ *         .name("amount").value(10.5)
+ *         .endObject()
+ *         .toString();
+ * </pre>
+ */
+public final class JsonWriter {
+
+    private final StringBuilder out;
+    // whether the object or array at each level already has a member, so the next one needs a comma
+    private boolean[] members = new boolean[16];
+    private int depth;
+    private boolean named;
+
+    public JsonWriter() {
+        this(new StringBuilder(256));
+    }
+
+    public JsonWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() {
+        separate();
+        out.append('{');
+        push();
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        depth--;
+        out.append('}');
+        return this;
+    }
+
+    public JsonWriter beginArray() {
+        separate();
+        out.append('[');
+        push();
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        depth--;
+        out.append(']');
+        return this;
+    }
+
+    public JsonWriter name(String name) {
+        if (depth > 0 && members[depth - 1]) {
+            out.append(',');
+        }
+        if (depth > 0) {
+            members[depth - 1] = true;
+        }
+        quote(name);
+        out.append(':');
+        named = true;
+        return this;
+    }
+
+    /**
+     * @param value written as string, null is written as null
+     */
+    public JsonWriter value(String value) {
+        if (value == null) {
+            return nullValue();
+        }
+        separate();
+        quote(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        separate();
+        out.append(value);
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return nullValue();
+        }
+        separate();
+        out.append(JSONObject.numberToString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        separate();
+        out.append(value);
+        return this;
+    }
+
+    /**
+     * @param value written as number, null is written as null
+     */
+    public JsonWriter value(Number value) {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return value(value.doubleValue());
+        }
+        separate();
+        out.append(JSONObject.numberToString(value));
+        return this;
+    }
+
+    public JsonWriter nullValue() {
+        separate();
+        out.append("null");
+        return this;
+    }
+
+    /**
+     * @return the document written so far
+     */
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private void separate() {
+        if (named) {
+            named = false;
+            return;
+        }
+        if (depth > 0) {
+            if (members[depth - 1]) {
+                out.append(',');
+            }
+            members[depth - 1] = true;
+        }
+    }
+
+    private void push() {
+        if (depth == members.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(members, 0, grown, 0, depth);
+            members = grown;
+        }
+        members[depth++] = false;
+    }
+
+    /**
+     * Same escaping as {@link JSONObject#quote(String)}
+     */
+    private void quote(String value) {
+        out.append('"');
+        int start = 0;
+        char previous = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped = switch (c) {
+                case '"' -> "\\\"";
+                case '\\' -> "\\\\";
+                case '/' -> previous == '<' ? "\\/" : null;
+                case '\b' -> "\\b";
+                case '\t' -> "\\t";
+                case '\n' -> "\\n";
+                case '\f' -> "\\f";
+                case '\r' -> "\\r";
+                default -> c < 0x20 || (c >= 0x80 && c < 0xa0) || (c >= 0x2000 && c < 0x2100)
+                        ? String.format("\\u%04x", (int) c) : null;
+            };
+            if (escaped != null) {
+                out.append(value, start, i).append(escaped);
+                start = i + 1;
+            }
+            previous = c;
+        }
+        out.append(value, start, value.length()).append('"');
+    }
+}
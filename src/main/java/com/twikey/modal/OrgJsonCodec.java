@@ -0,0 +1,45 @@
+package com.twikey.modal;
+
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.InputStream;
+
+final class OrgJsonCodec implements JsonCodec {
+
+    static final OrgJsonCodec INSTANCE = new OrgJsonCodec();
+
+    @Override
+    public TransactionResponse.Transaction transaction(InputStream json) {
+        return TransactionResponse.Transaction.fromJson(tree(json));
+    }
+
+    @Override
+    public RefundResponse.Refund refund(InputStream json) {
+        return RefundResponse.Refund.fromJson(tree(json));
+    }
+
+    @Override
+    public InvoiceResponse.Invoice invoice(InputStream json) {
+        return InvoiceResponse.Invoice.fromJson(tree(json));
+    }
+
+    @Override
+    public PaylinkResponse.Paylink paylink(InputStream json) {
+        return PaylinkResponse.Paylink.fromJson(tree(json));
+    }
+
+    @Override
+    public DocumentResponse.Document document(InputStream json, String state) {
+        return DocumentResponse.Document.fromJson(tree(json), state);
+    }
+
+    private static JSONObject tree(InputStream json) {
+        return new JSONObject(new JSONTokener(json));
+    }
+
+    @Override
+    public String write(InvoiceRequests.CreateInvoiceRequest request) {
+        return String.valueOf(request.toRequest());
+    }
+}
@@ -15,6 +15,13 @@ public interface PaylinkResponse {
             Customer customer,
             Meta meta
     ) {
+        /**
+         * @return the amount in cents
+         */
+        public long amountCents() {
+            return Cents.of(amount);
+        }
+
         public static Paylink fromJson(JSONObject json) {
             long id = json.getLong("id");
             long templateId = json.optLong("ct");
@@ -50,6 +57,74 @@ public interface PaylinkResponse {
 
             return new Paylink(id, templateId, amount, msg, remittance, state, url, customer, meta);
         }
+
+        /**
+         * Bind a paylink while reading the JSON, without an intermediate tree
+         */
+        public static Paylink fromJson(JsonReader reader) {
+            Long id = null;
+            long templateId = 0;
+            Double amount = null;
+            String msg = "";
+            String remittance = "";
+            String stateStr = null;
+            String url = "";
+            Customer customer = null;
+            Meta meta = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = reader.nextLong();
+                    case "ct" -> templateId = reader.nextLong(0);
+                    case "amount" -> amount = reader.nextDouble();
+                    case "msg" -> msg = reader.nextString("");
+                    case "ref" -> remittance = reader.nextString("");
+                    case "state" -> stateStr = reader.nextString();
+                    case "url" -> url = reader.nextString("");
+                    case "customer" -> customer = customer(reader);
+                    case "meta" -> meta = Meta.fromJson(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (id == null) {
+                throw JsonReader.missing("id");
+            }
+            if (amount == null) {
+                throw JsonReader.missing("amount");
+            }
+            return new Paylink(id, templateId, amount, msg, remittance, PaylinkState.parse(stateStr), url, customer, meta);
+        }
+
+        private static Customer customer(JsonReader reader) {
+            Customer customer = new Customer()
+                    .setEmail("").setFirstname("").setLastname("")
+                    .setStreet("").setCity("").setZip("").setCountry("")
+                    .setNumber("").setLang("").setMobile("")
+                    .setCompanyName("").setCoc("");
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "email" -> customer.setEmail(reader.nextString(""));
+                    case "firstname" -> customer.setFirstname(reader.nextString(""));
+                    case "lastname" -> customer.setLastname(reader.nextString(""));
+                    case "address" -> customer.setStreet(reader.nextString(""));
+                    case "city" -> customer.setCity(reader.nextString(""));
+                    case "zip" -> customer.setZip(reader.nextString(""));
+                    case "country" -> customer.setCountry(reader.nextString(""));
+                    case "customerNumber" -> customer.setNumber(reader.nextString(""));
+                    case "l" -> customer.setLang(reader.nextString(""));
+                    case "mobile" -> customer.setMobile(reader.nextString(""));
+                    case "companyName" -> customer.setCompanyName(reader.nextString(""));
+                    case "coc" -> customer.setCoc(reader.nextString(""));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return customer;
+        }
     }
 
     record Meta(
@@ -76,6 +151,37 @@ public interface PaylinkResponse {
 
             return new Meta(active, method, recurringId, expiry, type, invoice, sdd, tx, paymentMethod);
         }
+
+        public static Meta fromJson(JsonReader reader) {
+            boolean active = false;
+            String method = null;
+            String recurringId = null;
+            String expiry = null;
+            String type = null;
+            String invoice = null;
+            String sdd = null;
+            String tx = null;
+            String paymentMethod = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "active" -> active = reader.nextBoolean(false);
+                    case "method" -> method = reader.nextString();
+                    case "recurringId" -> recurringId = reader.nextString();
+                    case "expiry" -> expiry = reader.nextString();
+                    case "type" -> type = reader.nextString();
+                    case "invoice" -> invoice = reader.nextString();
+                    case "sdd" -> sdd = reader.nextString();
+                    case "tx" -> tx = reader.nextString();
+                    case "paymentMethod" -> paymentMethod = reader.nextString();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return new Meta(active, method, recurringId, expiry, type, invoice, sdd, tx, paymentMethod);
+        }
     }
 
 
@@ -20,7 +20,7 @@ public interface RefundResponse {
         private String id;
         private String iban;
         private String bic;
-        private double amount;
+        private long amount; // in cents
         private String msg;
         private String place;
         private String ref;
@@ -42,6 +42,10 @@ public interface RefundResponse {
         }
 
         public double getAmount() {
+            return Cents.toDouble(amount);
+        }
+
+        public long getAmountCents() {
             return amount;
         }
 
@@ -81,23 +85,53 @@ public interface RefundResponse {
             refund.id = json.optString("id", null);
             refund.iban = json.optString("iban", null);
             refund.bic = json.optString("bic", null);
-            refund.amount = json.optDouble("amount", 0.0);
+            refund.amount = Cents.of(json.opt("amount"), 0);
             refund.msg = json.optString("msg", null);
             refund.place = json.optString("place", null);
             refund.ref = json.optString("ref", null);
             refund.date = json.optString("date", null);
-            refund.state = json.optString("state", null);
+            refund.state = Interner.INSTANCE.intern(json.optString("state", null));
             refund.bkdate = json.optString("bkdate", null);
 
             return refund;
         }
 
+        /**
+         * Factory method to bind a {@link Refund} while reading the JSON, without an intermediate tree.
+         *
+         * @param reader reader positioned at the object of a single refund entry
+         * @return parsed {@link Refund} object
+         */
+        public static Refund fromJson(JsonReader reader) {
+            Refund refund = new Refund();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> refund.id = reader.nextString();
+                    case "iban" -> refund.iban = reader.nextString();
+                    case "bic" -> refund.bic = reader.nextString();
+                    case "amount" -> refund.amount = reader.nextCents(0);
+                    case "msg" -> refund.msg = reader.nextString();
+                    case "place" -> refund.place = reader.nextString();
+                    case "ref" -> refund.ref = reader.nextString();
+                    case "date" -> refund.date = reader.nextString();
+                    case "state" -> refund.state = reader.nextInterned();
+                    case "bkdate" -> refund.bkdate = reader.nextString();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return refund;
+        }
+
         @Override
         public String toString() {
             String sb = "Refund ID   : " + id + "\n" +
                     "IBAN        : " + iban + "\n" +
                     "BIC         : " + bic + "\n" +
-                    "Amount      : " + amount + "\n" +
+                    "Amount      : " + getAmount() + "\n" +
                     "Message     : " + msg + "\n" +
                     "Place       : " + place + "\n" +
                     "Reference   : " + ref + "\n" +
@@ -0,0 +1,55 @@
+package com.twikey.modal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+final class StreamingJsonCodec implements JsonCodec {
+
+    static final StreamingJsonCodec INSTANCE = new StreamingJsonCodec();
+
+    @Override
+    public TransactionResponse.Transaction transaction(InputStream json) {
+        return TransactionResponse.Transaction.fromJson(reader(json));
+    }
+
+    @Override
+    public RefundResponse.Refund refund(InputStream json) {
+        return RefundResponse.Refund.fromJson(reader(json));
+    }
+
+    @Override
+    public InvoiceResponse.Invoice invoice(InputStream json) {
+        return InvoiceResponse.Invoice.fromJson(reader(json));
+    }
+
+    @Override
+    public PaylinkResponse.Paylink paylink(InputStream json) {
+        return PaylinkResponse.Paylink.fromJson(reader(json));
+    }
+
+    @Override
+    public DocumentResponse.Document document(InputStream json, String state) {
+        return DocumentResponse.Document.fromJson(reader(json), state);
+    }
+
+    /**
+     * @return reader over the bytes of a value handed out by {@link JsonReader#nextValueStream()} without copying
+     * them, any other stream is read completely first
+     */
+    private static JsonReader reader(InputStream json) {
+        if (json instanceof JsonReader.ValueStream value) {
+            return value.reader();
+        }
+        try {
+            return new JsonReader(json.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String write(InvoiceRequests.CreateInvoiceRequest request) {
+        return request.writeTo(new JsonWriter()).toString();
+    }
+}
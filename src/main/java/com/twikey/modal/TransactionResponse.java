@@ -20,8 +20,9 @@ public interface TransactionResponse {
         private long contractId;
         private String mndtId;
         private String contract;
-        private double amount;
-        private Double admincharge; // optional
+        // amounts in cents
+        private long amount;
+        private long admincharge = Cents.ABSENT; // optional
         private String msg;
         private String place;
         private String ref;
@@ -31,7 +32,7 @@ public interface TransactionResponse {
         private String bkerror;
         private String bkmsg;
         private String bkdate;
-        private Double bkamount;
+        private long bkamount = Cents.ABSENT;
         private int collection;
         private String reqcolldt;
         private String link;
@@ -57,11 +58,22 @@ public interface TransactionResponse {
         }
 
         public double getAmount() {
+            return Cents.toDouble(amount);
+        }
+
+        public long getAmountCents() {
             return amount;
         }
 
         public Double getAdmincharge() {
-            return admincharge;
+            return Cents.boxed(admincharge);
+        }
+
+        /**
+         * @return the admin charge in cents, 0 if there is none
+         */
+        public long getAdminchargeCents() {
+            return Cents.value(admincharge);
         }
 
         public String getMsg() {
@@ -101,7 +113,14 @@ public interface TransactionResponse {
         }
 
         public Double getBkamount() {
-            return bkamount;
+            return Cents.boxed(bkamount);
+        }
+
+        /**
+         * @return the amount reported by the bank in cents, 0 if there is none
+         */
+        public long getBkamountCents() {
+            return Cents.value(bkamount);
         }
 
         public int getCollection() {
@@ -135,28 +154,28 @@ public interface TransactionResponse {
 
             tx.id = json.optLong("id");
             tx.contractId = json.optLong("contractId");
-            tx.mndtId = json.optString("mndtId", null);
-            tx.contract = json.optString("contract", null);
-            tx.amount = json.optDouble("amount", 0.0);
+            tx.mndtId = Interner.INSTANCE.intern(json.optString("mndtId", null));
+            tx.contract = Interner.INSTANCE.intern(json.optString("contract", null));
+            tx.amount = Cents.of(json.opt("amount"), 0);
             if (json.has("admincharge")) {
-                tx.admincharge = json.optDouble("admincharge");
+                tx.admincharge = Cents.of(json.opt("admincharge"), Cents.INVALID);
             }
             tx.msg = json.optString("msg", null);
             tx.place = json.optString("place", null);
             tx.ref = json.optString("ref", null);
             tx.date = json.optString("date", null);
             tx.isFinal = json.optBoolean("final", false);
-            tx.state = json.optString("state", null);
-            tx.bkerror = json.optString("bkerror", null);
+            tx.state = Interner.INSTANCE.intern(json.optString("state", null));
+            tx.bkerror = Interner.INSTANCE.intern(json.optString("bkerror", null));
             tx.bkmsg = json.optString("bkmsg", null);
             tx.bkdate = json.optString("bkdate", null);
             if (json.has("bkamount")) {
-                tx.bkamount = json.optDouble("bkamount");
+                tx.bkamount = Cents.of(json.opt("bkamount"), Cents.INVALID);
             }
             tx.collection = json.optInt("collection", 0);
             tx.reqcolldt = json.optString("reqcolldt", null);
             tx.link = json.optString("link", null);
-            tx.stage = json.optString("stage", null);
+            tx.stage = Interner.INSTANCE.intern(json.optString("stage", null));
 
             // Parse actions if present
             if (json.has("actions")) {
@@ -170,6 +189,53 @@ public interface TransactionResponse {
             return tx;
         }
 
+        /**
+         * Factory method to bind a {@link Transaction} while reading the JSON, without an intermediate tree.
+         *
+         * @param reader reader positioned at the object of a single entry
+         * @return parsed {@link Transaction}
+         */
+        public static Transaction fromJson(JsonReader reader) {
+            Transaction tx = new Transaction();
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> tx.id = reader.nextLong(0);
+                    case "contractId" -> tx.contractId = reader.nextLong(0);
+                    case "mndtId" -> tx.mndtId = reader.nextInterned();
+                    case "contract" -> tx.contract = reader.nextInterned();
+                    case "amount" -> tx.amount = reader.nextCents(0);
+                    case "admincharge" -> tx.admincharge = reader.nextCents(Cents.INVALID);
+                    case "msg" -> tx.msg = reader.nextString();
+                    case "place" -> tx.place = reader.nextString();
+                    case "ref" -> tx.ref = reader.nextString();
+                    case "date" -> tx.date = reader.nextString();
+                    case "final" -> tx.isFinal = reader.nextBoolean(false);
+                    case "state" -> tx.state = reader.nextInterned();
+                    case "bkerror" -> tx.bkerror = reader.nextInterned();
+                    case "bkmsg" -> tx.bkmsg = reader.nextString();
+                    case "bkdate" -> tx.bkdate = reader.nextString();
+                    case "bkamount" -> tx.bkamount = reader.nextCents(Cents.INVALID);
+                    case "collection" -> tx.collection = reader.nextInt(0);
+                    case "reqcolldt" -> tx.reqcolldt = reader.nextString();
+                    case "link" -> tx.link = reader.nextString();
+                    case "stage" -> tx.stage = reader.nextInterned();
+                    case "actions" -> {
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            tx.actions.add(TransactionAction.fromJson(reader));
+                        }
+                        reader.endArray();
+                    }
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return tx;
+        }
+
         /**
          * Factory to parse all transaction entries from a response JSON.
          *
@@ -193,8 +259,8 @@ public interface TransactionResponse {
             sb.append("Contract ID      : ").append(contractId).append("\n");
             sb.append("Mandate ID       : ").append(mndtId).append("\n");
             sb.append("Contract         : ").append(contract).append("\n");
-            sb.append("Amount           : ").append(amount).append("\n");
-            sb.append("Admin Charge     : ").append(admincharge).append("\n");
+            sb.append("Amount           : ").append(getAmount()).append("\n");
+            sb.append("Admin Charge     : ").append(getAdmincharge()).append("\n");
             sb.append("Message          : ").append(msg).append("\n");
             sb.append("Reference        : ").append(ref).append("\n");
             sb.append("Date             : ").append(date).append("\n");
@@ -203,7 +269,7 @@ public interface TransactionResponse {
             sb.append("BkError          : ").append(bkerror).append("\n");
             sb.append("BkMsg            : ").append(bkmsg).append("\n");
             sb.append("BkDate           : ").append(bkdate).append("\n");
-            sb.append("BkAmount         : ").append(bkamount).append("\n");
+            sb.append("BkAmount         : ").append(getBkamount()).append("\n");
             sb.append("Collection       : ").append(collection).append("\n");
             sb.append("Req Coll Dt      : ").append(reqcolldt).append("\n");
             sb.append("Link             : ").append(link).append("\n");
@@ -251,6 +317,22 @@ public interface TransactionResponse {
                 return a;
             }
 
+            public static TransactionAction fromJson(JsonReader reader) {
+                TransactionAction a = new TransactionAction();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "type" -> a.type = reader.nextString();
+                        case "reason" -> a.reason = reader.nextString();
+                        case "action" -> a.action = reader.nextString();
+                        case "at" -> a.at = reader.nextString();
+                        default -> reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                return a;
+            }
+
             @Override
             public String toString() {
                 return String.format("%s (%s) -> %s @ %s", type, reason, action, at);
@@ -266,7 +348,7 @@ public interface TransactionResponse {
         private String id;
         private String iban;
         private String bic;
-        private Double amount;
+        private long amount = Cents.ABSENT; // in cents
         private String message;
         private String place;
         private String reference;
@@ -286,7 +368,14 @@ public interface TransactionResponse {
         }
 
         public Double getAmount() {
-            return amount;
+            return Cents.boxed(amount);
+        }
+
+        /**
+         * @return the amount in cents, 0 if there is none
+         */
+        public long getAmountCents() {
+            return Cents.value(amount);
         }
 
         public String getMessage() {
@@ -318,7 +407,7 @@ public interface TransactionResponse {
             refund.iban = json.optString("iban", null);
             refund.bic = json.optString("bic", null);
             if (json.has("amount")) {
-                refund.amount = json.optDouble("amount");
+                refund.amount = Cents.of(json.opt("amount"), Cents.INVALID);
             }
             refund.message = json.optString("msg", null);
             refund.place = json.optString("place", null);
@@ -334,7 +423,7 @@ public interface TransactionResponse {
                     "id='" + id + '\'' +
                     ", iban='" + iban + '\'' +
                     ", bic='" + bic + '\'' +
-                    ", amount=" + amount +
+                    ", amount=" + getAmount() +
                     ", message='" + message + '\'' +
                     ", place='" + place + '\'' +
                     ", reference='" + reference + '\'' +
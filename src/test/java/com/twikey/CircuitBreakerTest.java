@@ -0,0 +1,69 @@
+package com.twikey;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    @Rule
+    public final TestServer server = new TestServer();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile int transactionStatus = 500;
+
+    @Before
+    public void setUp() {
+        server.handle("/creditor/transaction", exchange -> {
+            calls.incrementAndGet();
+            TestServer.respond(exchange, transactionStatus, null);
+        });
+        server.handle("/creditor/invoice", exchange -> TestServer.respond(exchange, 200, null));
+    }
+
+    @Test
+    public void test_opensOnFailuresAndRecoversAfterProbe() throws Exception, TwikeyClient.UserException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .withWindow(4, 2)
+                .withOpenDuration(Duration.ofMillis(100));
+        TwikeyClient client = server.client().withCircuitBreaker(circuitBreaker);
+        HttpRequest transaction = HttpRequest.newBuilder(client.getUrl("/transaction/detail")).GET().build();
+        HttpRequest invoice = HttpRequest.newBuilder(client.getUrl("/invoice/123")).GET().build();
+
+        assertEquals(500, client.send(transaction, HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(500, client.send(transaction, HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(EndpointFamily.TRANSACTION));
+
+        CircuitBreaker.OpenException open = assertThrows(CircuitBreaker.OpenException.class, () -> client.send(transaction, HttpResponse.BodyHandlers.discarding()));
+        assertEquals(EndpointFamily.TRANSACTION, open.getFamily());
+        assertEquals("Failed fast without calling the api", 2, calls.get());
+        assertEquals("Other families are unaffected", 200, client.send(invoice, HttpResponse.BodyHandlers.discarding()).statusCode());
+
+        Thread.sleep(150);
+        transactionStatus = 200;
+        assertEquals(200, client.send(transaction, HttpResponse.BodyHandlers.discarding()).statusCode());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(EndpointFamily.TRANSACTION));
+    }
+
+    @Test
+    public void test_failedProbeReopens() throws Exception, TwikeyClient.UserException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker()
+                .withWindow(2, 1)
+                .withOpenDuration(Duration.ofMillis(50));
+        TwikeyClient client = server.client().withCircuitBreaker(circuitBreaker);
+        HttpRequest transaction = HttpRequest.newBuilder(client.getUrl("/transaction")).GET().build();
+
+        client.send(transaction, HttpResponse.BodyHandlers.discarding());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(EndpointFamily.TRANSACTION));
+        Thread.sleep(100);
+        client.send(transaction, HttpResponse.BodyHandlers.discarding());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(EndpointFamily.TRANSACTION));
+        assertEquals(2, calls.get());
+    }
+}
@@ -0,0 +1,80 @@
+package com.twikey;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void test_queuesBeyondLimitAndBacksOffOnErrors() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10);
+        CompletableFuture<HttpResponse<String>> first = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<String>> second = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<String>> third = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+
+        limiter.run(() -> { sent.incrementAndGet(); return first; });
+        limiter.run(() -> { sent.incrementAndGet(); return second; });
+        CompletableFuture<HttpResponse<String>> queued = limiter.run(() -> { sent.incrementAndGet(); return third; });
+        assertEquals(2, sent.get());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getQueued());
+
+        first.completeExceptionally(new IOException("Connection reset"));
+        assertEquals(1, limiter.getLimit());
+        assertEquals("Still over the reduced limit", 2, sent.get());
+
+        second.completeExceptionally(new IOException("Connection reset"));
+        assertEquals("Only one decrease per round-trip", 1, limiter.getLimit());
+        assertEquals(3, sent.get());
+
+        third.completeExceptionally(new IOException("Timeout"));
+        assertTrue(queued.isCompletedExceptionally());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void test_cancelledWhileQueuedFreesSlot() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 10);
+        CompletableFuture<HttpResponse<String>> first = new CompletableFuture<>();
+        AtomicInteger sent = new AtomicInteger();
+
+        limiter.run(() -> { sent.incrementAndGet(); return first; });
+        CompletableFuture<HttpResponse<String>> queued = limiter.run(() -> { sent.incrementAndGet(); return new CompletableFuture<>(); });
+        queued.cancel(true);
+
+        first.completeExceptionally(new IllegalStateException("not an overload signal"));
+        assertEquals(1, sent.get());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    public void test_cancelledRequestsDontMoveTheLimit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10);
+        CompletableFuture<HttpResponse<String>> fast = new CompletableFuture<>();
+        limiter.run(() -> fast);
+        fast.complete(null);
+
+        // far slower than the fastest round-trip, but cancelled like the losing request of a hedge
+        CompletableFuture<HttpResponse<String>> slow = limiter.run(CompletableFuture::new);
+        CompletableFuture<HttpResponse<String>> blocked = limiter.run(CompletableFuture::new);
+        CompletableFuture<HttpResponse<String>> queued = limiter.run(CompletableFuture::new);
+        assertEquals(1, limiter.getQueued());
+        queued.cancel(true);
+        assertEquals("Left the queue right away", 0, limiter.getQueued());
+
+        Thread.sleep(20);
+        slow.cancel(true);
+        blocked.cancel(true);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(2, limiter.getLimit());
+    }
+}
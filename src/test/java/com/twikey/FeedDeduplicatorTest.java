@@ -0,0 +1,42 @@
+package com.twikey;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FeedDeduplicatorTest {
+
+    @Test
+    public void test_onlyHandledUpdatesAreDuplicates() {
+        FeedDeduplicator deduplicator = new FeedDeduplicator(100);
+        assertFalse(deduplicator.isDuplicate("/transaction:1:PAID"));
+        deduplicator.handled("/transaction:1:PAID");
+        assertTrue(deduplicator.isDuplicate("/transaction:1:PAID"));
+        assertFalse("Other state of the same transaction", deduplicator.isDuplicate("/transaction:1:ERROR"));
+        assertEquals(1, deduplicator.getSuppressed());
+    }
+
+    @Test
+    public void test_newUpdatesAreNeverDropped() {
+        FeedDeduplicator deduplicator = new FeedDeduplicator(1000);
+        for (int i = 0; i < 1000; i++) {
+            deduplicator.handled("/transaction:" + i);
+        }
+        for (int i = 1000; i < 10_000; i++) {
+            assertFalse(deduplicator.isDuplicate("/transaction:" + i));
+        }
+        assertEquals(0, deduplicator.getSuppressed());
+    }
+
+    @Test
+    public void test_onlyRecentUpdatesAreRemembered() {
+        FeedDeduplicator deduplicator = new FeedDeduplicator(10);
+        for (int i = 0; i < 25; i++) {
+            deduplicator.handled("/invoice/payment/feed:" + i);
+        }
+        assertFalse(deduplicator.isDuplicate("/invoice/payment/feed:0"));
+        for (int i = 15; i < 25; i++) {
+            assertTrue(deduplicator.isDuplicate("/invoice/payment/feed:" + i));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.twikey;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FeedDispatcherTest {
+
+    private static Iterator<FeedEntry> page(String... mandates) {
+        List<FeedEntry> entries = new ArrayList<>();
+        for (int i = 0; i < mandates.length; i++) {
+            entries.add(new FeedEntry(new JSONObject().put("id", i).put("mndtId", mandates[i]).toString().getBytes(StandardCharsets.UTF_8)));
+        }
+        return entries.iterator();
+    }
+
+    @Test
+    public void test_sameKeyInOrderOtherKeysInParallel() {
+        FeedDispatcher dispatcher = new FeedDispatcher(4);
+        // both mandates have to be handled at the same time to pass the barrier
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+        List<FeedEntry> undelivered = new ArrayList<>();
+        boolean hadEntries = dispatcher.dispatch(page("A", "B", "A", "B", "A"), FeedEntry::tree, entry -> entry.getString("mndtId"), entry -> {
+            if (entry.getInt("id") < 2) {
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            handled.computeIfAbsent(entry.getString("mndtId"), k -> new CopyOnWriteArrayList<>()).add(entry.getInt("id"));
+        }, undelivered);
+
+        assertTrue(hadEntries);
+        assertEquals(List.of(0, 2, 4), handled.get("A"));
+        assertEquals(List.of(1, 3), handled.get("B"));
+        assertTrue(undelivered.isEmpty());
+    }
+
+    @Test
+    public void test_failureSkipsRestOfLane() {
+        FeedDispatcher dispatcher = new FeedDispatcher(2);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        List<FeedEntry> undelivered = new ArrayList<>();
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> dispatcher.dispatch(page("A", "B", "A", "B"), FeedEntry::tree, entry -> entry.getString("mndtId").equals("A") ? 0 : 1, entry -> {
+            if (entry.getInt("id") == 0) {
+                throw new IllegalStateException("db down");
+            }
+            handled.add(entry.getInt("id"));
+        }, undelivered));
+
+        assertEquals("db down", failure.getMessage());
+        assertEquals("Other lanes continue", List.of(1, 3), handled);
+        assertEquals(2, undelivered.size());
+        assertEquals(0, undelivered.get(0).tree().getInt("id"));
+        assertEquals(2, undelivered.get(1).tree().getInt("id"));
+    }
+
+    @Test
+    public void test_unmappableEntryIsKeptWithTheRest() {
+        FeedDispatcher dispatcher = new FeedDispatcher(2);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        List<FeedEntry> undelivered = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> dispatcher.dispatch(page("A", "B", "A"), entry -> {
+            JSONObject json = entry.tree();
+            if (json.getInt("id") == 1) {
+                throw new IllegalStateException("unexpected entry");
+            }
+            return json;
+        }, entry -> entry.getString("mndtId"), entry -> handled.add(entry.getInt("id")), undelivered));
+
+        assertEquals(List.of(0), handled);
+        assertEquals(2, undelivered.size());
+        assertEquals(1, undelivered.get(0).tree().getInt("id"));
+        assertEquals(2, undelivered.get(1).tree().getInt("id"));
+    }
+
+    @Test
+    public void test_emptyPage() {
+        assertFalse(new FeedDispatcher(2).dispatch(page(), FeedEntry::tree, entry -> entry, entry -> fail(), new ArrayList<>()));
+    }
+}
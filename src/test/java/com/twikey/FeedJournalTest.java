@@ -0,0 +1,98 @@
+package com.twikey;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class FeedJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<FeedEntry> entries(int... ids) {
+        return Arrays.stream(ids).mapToObj(id -> new FeedEntry(new JSONObject().put("id", id).toString().getBytes(StandardCharsets.UTF_8))).collect(Collectors.toList());
+    }
+
+    private static List<Integer> ids(FeedJournal.Pending pending) {
+        return pending.entries().stream().map(entry -> entry.tree().getInt("id")).collect(Collectors.toList());
+    }
+
+    @Test
+    public void test_unacknowledgedReplayAfterRestart() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (FeedJournal journal = new FeedJournal(directory)) {
+            long first = journal.append("transaction", entries(1, 2));
+            journal.append("transaction", entries(3));
+            journal.commit("transaction", first);
+            assertEquals(3, journal.getAppended());
+        }
+
+        try (FeedJournal journal = new FeedJournal(directory)) {
+            FeedJournal.Pending pending = journal.pending("transaction");
+            assertEquals(List.of(3), ids(pending));
+            assertEquals(1, journal.getReplayed());
+            journal.commit("transaction", pending.end());
+            assertTrue(journal.pending("transaction").entries().isEmpty());
+            assertTrue("Feeds have their own journal", journal.pending("invoice").entries().isEmpty());
+        }
+    }
+
+    @Test
+    public void test_incompleteEntryIsIgnored() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (FeedJournal journal = new FeedJournal(directory)) {
+            journal.append("transaction", entries(1));
+        }
+        // crashed while writing the next page
+        Files.write(directory.resolve("transaction.journal"), "{\"id\":".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (FeedJournal journal = new FeedJournal(directory)) {
+            FeedJournal.Pending pending = journal.pending("transaction");
+            assertEquals(List.of(1), ids(pending));
+            assertEquals("{\"id\":1}\n".length(), pending.end());
+            journal.append("transaction", entries(2));
+            assertEquals(List.of(1, 2), ids(journal.pending("transaction")));
+        }
+    }
+
+    @Test
+    public void test_corruptEntryIsQuarantined() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (FeedJournal journal = new FeedJournal(directory)) {
+            journal.append("transaction", entries(1));
+        }
+        Files.write(directory.resolve("transaction.journal"), "{\"id\":}\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (FeedJournal journal = new FeedJournal(directory)) {
+            journal.append("transaction", entries(2));
+            FeedJournal.Pending pending = journal.pending("transaction");
+            assertEquals(List.of(1, 2), ids(pending));
+            assertEquals(1, journal.getCorrupted());
+            assertEquals(List.of("{\"id\":}"), Files.readAllLines(directory.resolve("transaction.corrupt")));
+            assertEquals(Files.size(directory.resolve("transaction.journal")), pending.end());
+        }
+    }
+
+    @Test
+    public void test_compactionOnceHandled() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        try (FeedJournal journal = new FeedJournal(directory).withFsync(false).withCompactionThreshold(10)) {
+            long end = journal.append("transaction", entries(1, 2));
+            journal.commit("transaction", end);
+            assertEquals(0, Files.size(directory.resolve("transaction.journal")));
+
+            journal.append("transaction", entries(3));
+            assertEquals(List.of(3), ids(journal.pending("transaction")));
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.twikey;
+
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class FeedPollerTest {
+
+    @Rule
+    public final TestServer server = new TestServer();
+    private final Queue<String> pages = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private TwikeyClient client;
+
+    @Before
+    public void setUp() {
+        HttpHandler feed = TestServer.feed("Entries", pages);
+        server.handle("/creditor/transaction", exchange -> {
+            fetches.incrementAndGet();
+            feed.handle(exchange);
+        });
+        client = server.client();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void test_backOffWhileEmpty() throws Exception {
+        try (FeedPoller poller = new FeedPoller(client)
+                .withInterval(Duration.ofMillis(10), Duration.ofMillis(40))
+                .transactions(tx -> {
+                })
+                .start()) {
+            await(() -> poller.getStats().get(FeedPoller.TRANSACTION).polls() >= 4);
+            FeedPoller.Stats stats = poller.getStats().get(FeedPoller.TRANSACTION);
+            assertEquals("Capped at the max interval", Duration.ofMillis(40), stats.interval());
+            assertEquals(0, stats.entries());
+        }
+    }
+
+    @Test
+    public void test_updatesResetInterval() throws Exception {
+        pages.add("{\"id\":1},{\"id\":2}");
+        BlockingQueue<Long> ids = new LinkedBlockingQueue<>();
+        try (FeedPoller poller = new FeedPoller(client)
+                .withInterval(Duration.ofMillis(200), Duration.ofHours(1))
+                .transactions(tx -> ids.add(tx.getId()))
+                .start()) {
+            assertEquals(Long.valueOf(1), ids.poll(5, TimeUnit.SECONDS));
+            assertEquals(Long.valueOf(2), ids.poll(5, TimeUnit.SECONDS));
+            await(() -> poller.getStats().get(FeedPoller.TRANSACTION).polls() == 1);
+            FeedPoller.Stats stats = poller.getStats().get(FeedPoller.TRANSACTION);
+            assertEquals(2, stats.entries());
+            assertEquals("Polled again soon", Duration.ofMillis(200), stats.interval());
+
+            await(() -> poller.getStats().get(FeedPoller.TRANSACTION).polls() == 2);
+            assertEquals("Empty feed backs off again", Duration.ofMillis(400), poller.getStats().get(FeedPoller.TRANSACTION).interval());
+        }
+    }
+
+    @Test
+    public void test_wakeUpPollsRightAway() throws Exception {
+        BlockingQueue<Long> ids = new LinkedBlockingQueue<>();
+        try (FeedPoller poller = new FeedPoller(client)
+                .withInterval(Duration.ofHours(1), Duration.ofHours(2))
+                .transactions(tx -> ids.add(tx.getId()))
+                .start()) {
+            await(() -> poller.getStats().get(FeedPoller.TRANSACTION).polls() == 1);
+            pages.add("{\"id\":7}");
+            poller.wakeUp(FeedPoller.TRANSACTION);
+            assertEquals(Long.valueOf(7), ids.poll(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void test_failureIsReportedAndBacksOff() throws Exception {
+        pages.add("error");
+        try (FeedPoller poller = new FeedPoller(client)
+                .withInterval(Duration.ofHours(1), Duration.ofHours(4))
+                .transactions(tx -> {
+                })
+                .start()) {
+            await(() -> poller.getStats().get(FeedPoller.TRANSACTION).polls() == 1);
+            FeedPoller.Stats stats = poller.getStats().get(FeedPoller.TRANSACTION);
+            assertEquals(1, stats.failures());
+            assertEquals("err_invalid_state", stats.lastFailure().getMessage());
+            assertEquals(Duration.ofHours(2), stats.interval());
+        }
+    }
+
+    @Test
+    public void test_errorIsReportedAndPolledAgain() throws Exception {
+        pages.add("{\"id\":1}");
+        Error error = new Error("callback broke");
+        AtomicInteger calls = new AtomicInteger();
+        try (FeedPoller poller = new FeedPoller(client)
+                .withInterval(Duration.ofMillis(10), Duration.ofMillis(20))
+                .transactions(tx -> {
+                    if (calls.incrementAndGet() == 1) {
+                        throw error;
+                    }
+                })
+                .start()) {
+            await(() -> poller.getStats().get(FeedPoller.TRANSACTION).polls() >= 2);
+            FeedPoller.Stats stats = poller.getStats().get(FeedPoller.TRANSACTION);
+            assertEquals(1, stats.failures());
+        }
+    }
+
+    @Test
+    public void test_feedsAreDrainedConcurrently() throws Exception {
+        CountDownLatch invoicesPolled = new CountDownLatch(1);
+        server.handle("/creditor/invoice", exchange -> {
+            invoicesPolled.countDown();
+            TestServer.respond(exchange, 200, "{\"Invoices\":[]}");
+        });
+        pages.add("{\"id\":1}");
+        BlockingQueue<Boolean> handled = new LinkedBlockingQueue<>();
+        try (FeedPoller poller = new FeedPoller(client)
+                .withInterval(Duration.ofHours(1), Duration.ofHours(2))
+                .transactions(tx -> {
+                    try {
+                        handled.add(invoicesPolled.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                })
+                .invoices(invoice -> {
+                })
+                .start()) {
+            assertEquals("Invoices polled while the transaction callback was busy", Boolean.TRUE, handled.poll(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void test_shutdownStopsPolling() throws Exception {
+        FeedPoller poller = new FeedPoller(client)
+                .withInterval(Duration.ofMillis(5), Duration.ofMillis(5))
+                .transactions(tx -> {
+                })
+                .start();
+        await(() -> fetches.get() > 0);
+        assertTrue(poller.shutdown(Duration.ofSeconds(5)));
+        int after = fetches.get();
+        Thread.sleep(50);
+        assertEquals(after, fetches.get());
+        assertThrows(IllegalStateException.class, poller::start);
+    }
+}
@@ -0,0 +1,89 @@
+package com.twikey;
+
+import org.json.JSONException;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class FeedReaderTest {
+
+    @Rule
+    public final TestServer server = new TestServer();
+
+    @Test
+    public void test_entriesBetweenOtherMembers() throws Exception {
+        String page = "{\"Meta\":{\"count\":[1,2]},\"Text\":\"a,]\\\"}\" , \"Entries\" : [ {\"id\":1,\"nested\":{\"a\":[]}} , {\"id\":2} ],\"After\":true}";
+        List<Integer> ids = new ArrayList<>();
+        try (FeedReader entries = new FeedReader(page, "Entries")) {
+            while (entries.hasNext()) {
+                ids.add(entries.next().tree().getInt("id"));
+            }
+        }
+        assertEquals(List.of(1, 2), ids);
+    }
+
+    @Test
+    public void test_entriesKeptCompact() throws Exception {
+        String page = "{\"Entries\":[\n  {\n    \"id\" : 1,\n    \"msg\" : \"a b\\n\\\"c\\\"\",\n    \"tags\" : [ true , null , -1.5e2 ]\n  }\n]}";
+        try (FeedReader entries = new FeedReader(page, "Entries")) {
+            FeedEntry entry = entries.next();
+            assertEquals("{\"id\":1,\"msg\":\"a b\\n\\\"c\\\"\",\"tags\":[true,null,-1.5e2]}", entry.toString());
+            assertEquals("a b\n\"c\"", entry.tree().getString("msg"));
+            assertFalse(entries.hasNext());
+        }
+    }
+
+    @Test
+    public void test_emptyPage() throws Exception {
+        try (FeedReader entries = new FeedReader("{\"Entries\":[]}", "Entries")) {
+            assertFalse(entries.hasNext());
+        }
+    }
+
+    @Test
+    public void test_missingArray() {
+        FeedReader entries = new FeedReader("{\"Messages\":[{\"id\":1}]}", "Entries");
+        assertThrows(JSONException.class, entries::hasNext);
+    }
+
+    @Test
+    public void test_callbackBeforePageIsReceived() throws Exception, TwikeyClient.UserException {
+        CountDownLatch firstHandled = new CountDownLatch(1);
+        AtomicInteger feedCalls = new AtomicInteger();
+        AtomicBoolean streamed = new AtomicBoolean();
+        server.handle("/creditor/transaction", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                if (feedCalls.incrementAndGet() == 1) {
+                    body.write("{\"Entries\":[{\"id\":1},".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    // the rest of the page only follows once the first entry was handled
+                    streamed.set(firstHandled.await(5, TimeUnit.SECONDS));
+                    body.write("{\"id\":2}]}".getBytes(StandardCharsets.UTF_8));
+                } else {
+                    body.write("{\"Entries\":[]}".getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<Long> ids = new ArrayList<>();
+        server.client().transaction().feed(transaction -> {
+            ids.add(transaction.getId());
+            firstHandled.countDown();
+        });
+        assertTrue("First entry handled before the page was complete", streamed.get());
+        assertEquals(List.of(1L, 2L), ids);
+        assertEquals(2, feedCalls.get());
+    }
+}
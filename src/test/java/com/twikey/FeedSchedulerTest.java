@@ -0,0 +1,104 @@
+package com.twikey;
+
+import com.twikey.callback.PaylinkCallback;
+import com.twikey.modal.PaylinkResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FeedSchedulerTest {
+
+    @Rule
+    public final TestServer server = new TestServer();
+    private final Map<String, Queue<String>> pages = new ConcurrentHashMap<>();
+    private TwikeyClient client;
+
+    @Before
+    public void setUp() {
+        serve("/creditor/transaction", "Entries");
+        serve("/creditor/invoice", "Invoices");
+        serve("/creditor/payment/link/feed", "Links");
+        client = server.client();
+    }
+
+    private void serve(String path, String array) {
+        server.handle(path, TestServer.feed(array, pages.computeIfAbsent(path, k -> new ConcurrentLinkedQueue<>())));
+    }
+
+    @Test
+    public void test_feedsDrainConcurrently() throws Exception {
+        pages.get("/creditor/transaction").addAll(List.of("{\"id\":1}", "{\"id\":2}"));
+        pages.get("/creditor/payment/link/feed").add("{\"id\":3,\"amount\":10}");
+        // both feeds have to be handled at the same time to pass the barrier
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Map<String, FeedScheduler.Progress> progress = client.feeds()
+                .withWorkers(2)
+                .transactions(tx -> {
+                    if (tx.getId() == 1) {
+                        await(barrier);
+                    }
+                })
+                .paylinks(new PaylinkCallback() {
+                    @Override
+                    public void paylink(PaylinkResponse.Paylink paylink) {
+                        await(barrier);
+                    }
+                })
+                .drain();
+
+        assertEquals(List.of(FeedPoller.TRANSACTION, FeedPoller.PAYLINK), List.copyOf(progress.keySet()));
+        assertEquals(FeedScheduler.State.DONE, progress.get(FeedPoller.TRANSACTION).state());
+        assertEquals(2, progress.get(FeedPoller.TRANSACTION).entries());
+        assertEquals(FeedScheduler.State.DONE, progress.get(FeedPoller.PAYLINK).state());
+        assertEquals(1, progress.get(FeedPoller.PAYLINK).entries());
+    }
+
+    @Test
+    public void test_failingFeedIsIsolated() throws Exception {
+        pages.get("/creditor/invoice").add("error");
+        pages.get("/creditor/transaction").addAll(List.of("{\"id\":1},{\"id\":2}", "{\"id\":3}"));
+        Map<String, FeedScheduler.Progress> progress = client.feeds()
+                .withWorkers(1)
+                .invoices(invoice -> fail())
+                .transactions(tx -> {
+                })
+                .drain();
+
+        FeedScheduler.Progress invoices = progress.get(FeedPoller.INVOICE);
+        assertEquals(FeedScheduler.State.FAILED, invoices.state());
+        assertTrue(invoices.failure() instanceof TwikeyClient.UserException);
+        assertEquals(FeedScheduler.State.DONE, progress.get(FeedPoller.TRANSACTION).state());
+        assertEquals(3, progress.get(FeedPoller.TRANSACTION).entries());
+    }
+
+    @Test
+    public void test_closeStopsTheWorkers() throws Exception {
+        pages.get("/creditor/transaction").add("{\"id\":1}");
+        FeedScheduler feeds = client.feeds().transactions(tx -> {
+        });
+        try (feeds) {
+            assertEquals(1, feeds.drain().get(FeedPoller.TRANSACTION).entries());
+            assertEquals("Kept to drain again", 0, feeds.drain().get(FeedPoller.TRANSACTION).entries());
+        }
+        assertThrows(RejectedExecutionException.class, feeds::drainAsync);
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
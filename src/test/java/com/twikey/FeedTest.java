@@ -0,0 +1,337 @@
+package com.twikey;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.twikey.modal.TransactionResponse;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class FeedTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    @Rule
+    public final TestServer server = new TestServer();
+
+    private final Queue<String> pages = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private TwikeyClient client;
+
+    @Before
+    public void setUp() {
+        HttpHandler feed = TestServer.feed("Entries", pages);
+        server.handle("/creditor/transaction", exchange -> {
+            fetches.incrementAndGet();
+            feed.handle(exchange);
+        });
+        client = server.client();
+    }
+
+    @Test
+    public void test_streamFetchesPagesLazily() {
+        pages.add("{\"id\":1},{\"id\":2}");
+        pages.add("{\"id\":3},{\"id\":4}");
+        try (Stream<TransactionResponse.Transaction> feed = client.transaction().feedStream()) {
+            List<Long> ids = feed.limit(2).map(TransactionResponse.Transaction::getId).collect(Collectors.toList());
+            assertEquals(List.of(1L, 2L), ids);
+        }
+        assertEquals("Second page isn't fetched", 1, fetches.get());
+    }
+
+    @Test
+    public void test_streamUntilEmptyPage() {
+        pages.add("{\"id\":1},{\"id\":2}");
+        pages.add("{\"id\":3}");
+        try (Stream<TransactionResponse.Transaction> feed = client.transaction().feedStream()) {
+            List<Long> ids = feed.map(TransactionResponse.Transaction::getId).collect(Collectors.toList());
+            assertEquals(List.of(1L, 2L, 3L), ids);
+        }
+        assertEquals(3, fetches.get());
+    }
+
+    @Test
+    public void test_streamFailure() {
+        pages.add("{\"id\":1}");
+        pages.add("error");
+        try (Stream<TransactionResponse.Transaction> feed = client.transaction().feedStream()) {
+            UncheckedIOException e = assertThrows(UncheckedIOException.class, feed::count);
+            assertTrue(e.getCause().getCause() instanceof TwikeyClient.UserException);
+            assertEquals("err_invalid_state", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void test_feedDrainsAllPages() throws Exception, TwikeyClient.UserException {
+        pages.add("{\"id\":1},{\"id\":2}");
+        pages.add("{\"id\":3}");
+        AtomicInteger count = new AtomicInteger();
+        client.transaction().feed(transaction -> count.incrementAndGet());
+        assertEquals(3, count.get());
+        assertEquals(3, fetches.get());
+    }
+
+    @Test
+    public void test_publisherFetchesOnDemand() throws Exception {
+        pages.add("{\"id\":1},{\"id\":2}");
+        pages.add("{\"id\":3}");
+        BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        client.async().transaction().feedPublisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNext(TransactionResponse.Transaction item) {
+                signals.add(item.getId());
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+        Thread.sleep(50);
+        assertEquals("Nothing fetched without demand", 0, fetches.get());
+
+        subscription[0].request(1);
+        assertEquals(1L, signals.poll(5, TimeUnit.SECONDS));
+        subscription[0].request(1);
+        assertEquals(2L, signals.poll(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals("Next page waits for demand", 1, fetches.get());
+
+        subscription[0].request(Long.MAX_VALUE);
+        assertEquals(3L, signals.poll(5, TimeUnit.SECONDS));
+        assertEquals("complete", signals.poll(5, TimeUnit.SECONDS));
+        assertEquals(3, fetches.get());
+    }
+
+    @Test
+    public void test_publisherFailure() throws Exception {
+        pages.add("error");
+        BlockingQueue<Throwable> errors = new LinkedBlockingQueue<>();
+        client.async().transaction().feedPublisher().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                s.request(10);
+            }
+
+            @Override
+            public void onNext(TransactionResponse.Transaction item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                errors.add(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        Throwable error = errors.poll(5, TimeUnit.SECONDS);
+        assertTrue(error instanceof TwikeyClient.UserException);
+        assertEquals("err_invalid_state", error.getMessage());
+    }
+
+    @Test
+    public void test_prefetchOverlapsWithCallback() throws Exception, TwikeyClient.UserException {
+        pages.add("{\"id\":1}");
+        pages.add("{\"id\":2}");
+        pages.add("{\"id\":3}");
+        client.withFeedPrefetch(1);
+        List<Long> ids = new ArrayList<>();
+        List<Integer> fetchedWhileHandling = new ArrayList<>();
+        client.transaction().feed(transaction -> {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (fetches.get() < transaction.getId() + 1 && System.currentTimeMillis() < deadline) {
+                Thread.onSpinWait();
+            }
+            fetchedWhileHandling.add(fetches.get());
+            ids.add(transaction.getId());
+        });
+        assertEquals(List.of(1L, 2L, 3L), ids);
+        assertEquals("Next page fetched while handling the current one", List.of(2, 3, 4), fetchedWhileHandling);
+        assertEquals("Nothing fetched past the empty page", 4, fetches.get());
+    }
+
+    @Test
+    public void test_failedCallbackRedelivers() throws Exception, TwikeyClient.UserException {
+        pages.add("{\"id\":1},{\"id\":2},{\"id\":3}");
+        pages.add("{\"id\":4}");
+        client.withFeedPrefetch(2);
+        List<Long> ids = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> client.transaction().feed(transaction -> {
+            if (transaction.getId() == 2) {
+                throw new IllegalStateException("db down");
+            }
+            ids.add(transaction.getId());
+        }));
+        assertEquals(List.of(1L), ids);
+
+        client.transaction().feed(transaction -> ids.add(transaction.getId()));
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids);
+    }
+
+    @Test
+    public void test_unmappableEntryRedelivers() throws Exception, TwikeyClient.UserException {
+        pages.add("{\"id\":1},{\"id\":2},{\"id\":3}");
+        AtomicInteger failures = new AtomicInteger(1);
+        Feed<JSONObject> feed = new Feed<>(client, "/transaction", "Entries", new String[0], entry -> {
+            JSONObject json = entry.tree();
+            if (json.getInt("id") == 2 && failures.getAndDecrement() > 0) {
+                throw new JSONException("unexpected entry");
+            }
+            return json;
+        }, entry -> entry.get("id"), entry -> entry.get("id"));
+        List<Integer> ids = new ArrayList<>();
+        assertThrows(JSONException.class, () -> feed.drain(entry -> ids.add(entry.getInt("id"))));
+        assertEquals(List.of(1), ids);
+
+        feed.drain(entry -> ids.add(entry.getInt("id")));
+        assertEquals(List.of(1, 2, 3), ids);
+    }
+
+    @Test
+    public void test_asyncFeedSharesTheBacklog() throws Exception, TwikeyClient.UserException {
+        pages.add("{\"id\":1},{\"id\":2},{\"id\":3}");
+        pages.add("{\"id\":4}");
+        List<Long> ids = new CopyOnWriteArrayList<>();
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> client.async().transaction().feed(transaction -> {
+            if (transaction.getId() == 2) {
+                throw new IllegalStateException("db down");
+            }
+            ids.add(transaction.getId());
+        }).get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        assertEquals(List.of(1L), ids);
+
+        client.transaction().feed(transaction -> ids.add(transaction.getId()));
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids);
+    }
+
+    @Test(timeout = 10000)
+    public void test_drainsOfAFeedTakeTurns() throws Exception {
+        pages.add("{\"id\":1}");
+        pages.add("{\"id\":2}");
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        List<Long> ids = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> {
+            try {
+                client.transaction().feed(transaction -> {
+                    handling.countDown();
+                    try {
+                        proceed.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    ids.add(transaction.getId());
+                });
+            } catch (Exception | TwikeyClient.UserException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        handling.await();
+        CompletableFuture<Void> second = client.async().transaction().feed(transaction -> ids.add(transaction.getId()));
+        Thread.sleep(100);
+        assertEquals("Second drain waits for the first", 1, fetches.get());
+
+        proceed.countDown();
+        first.get();
+        second.get();
+        assertEquals(List.of(1L, 2L), ids);
+        assertEquals(4, fetches.get());
+    }
+
+    @Test
+    public void test_batchPerPage() throws Exception, TwikeyClient.UserException {
+        pages.add("{\"id\":1},{\"id\":2}");
+        pages.add("{\"id\":3}");
+        List<List<Long>> batches = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> client.transaction().feedBatch(batch -> {
+            if (batch.size() == 1) {
+                throw new IllegalStateException("db down");
+            }
+            batches.add(batch.stream().map(TransactionResponse.Transaction::getId).collect(Collectors.toList()));
+        }));
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+
+        client.transaction().feedBatch(batch -> batches.add(batch.stream().map(TransactionResponse.Transaction::getId).collect(Collectors.toList())));
+        assertEquals("Failed batch is handed out again", List.of(List.of(1L, 2L), List.of(3L)), batches);
+        assertEquals(3, fetches.get());
+    }
+
+    @Test
+    public void test_journalReplaysAfterRestart() throws Exception, TwikeyClient.UserException {
+        pages.add("{\"id\":1},{\"id\":2}");
+        pages.add("{\"id\":3}");
+        List<Long> ids = new ArrayList<>();
+        try (FeedJournal journal = new FeedJournal(folder.getRoot().toPath())) {
+            client.withFeedJournal(journal);
+            assertThrows(IllegalStateException.class, () -> client.transaction().feed(transaction -> {
+                if (transaction.getId() == 2) {
+                    throw new IllegalStateException("db down");
+                }
+                ids.add(transaction.getId());
+            }));
+        }
+
+        // a new client doesn't have the entries in memory
+        TwikeyClient restarted = server.client();
+        try (FeedJournal journal = new FeedJournal(folder.getRoot().toPath())) {
+            restarted.withFeedJournal(journal).transaction().feed(transaction -> ids.add(transaction.getId()));
+            assertEquals(2, journal.getReplayed());
+        }
+        assertEquals("Page is handed out again from its start", List.of(1L, 1L, 2L, 3L), ids);
+        assertEquals(3, fetches.get());
+    }
+
+    @Test
+    public void test_deduplicatorDropsHandledUpdates() throws Exception, TwikeyClient.UserException {
+        pages.add("{\"id\":1,\"state\":\"PAID\"},{\"id\":2,\"state\":\"PAID\"}");
+        pages.add("{\"id\":1,\"state\":\"PAID\"},{\"id\":1,\"state\":\"PAID_BACK\"}");
+        FeedDeduplicator deduplicator = new FeedDeduplicator(100);
+        client.withFeedDeduplicator(deduplicator);
+        List<String> updates = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> client.transaction().feed(transaction -> {
+            if (transaction.getId() == 2) {
+                throw new IllegalStateException("db down");
+            }
+            updates.add(transaction.getId() + ":" + transaction.getState());
+        }));
+
+        client.transaction().feed(transaction -> updates.add(transaction.getId() + ":" + transaction.getState()));
+        assertEquals("Failed update is handed out again", List.of("1:PAID", "2:PAID", "1:PAID_BACK"), updates);
+        assertEquals(1, deduplicator.getSuppressed());
+    }
+}
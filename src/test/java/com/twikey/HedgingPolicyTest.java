@@ -0,0 +1,67 @@
+package com.twikey;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HedgingPolicyTest {
+
+    @Rule
+    public final TestServer server = new TestServer();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile int slowCall = 2;
+
+    @Before
+    public void setUp() {
+        server.handle("/creditor/transaction", exchange -> {
+            int call = calls.incrementAndGet();
+            if (call == slowCall) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            TestServer.respond(exchange, 200, "call-" + call);
+        });
+    }
+
+    private TwikeyClient client(HedgingPolicy hedgingPolicy) {
+        return server.client().withHedging(hedgingPolicy);
+    }
+
+    @Test
+    public void test_slowLookupIsHedged() throws Exception, TwikeyClient.UserException {
+        HedgingPolicy hedgingPolicy = new HedgingPolicy().withMinimum(Duration.ofMillis(50), 1);
+        TwikeyClient client = client(hedgingPolicy);
+        HttpRequest request = HttpRequest.newBuilder(client.getUrl("/transaction/detail?id=1")).GET().build();
+
+        assertEquals("call-1", client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+
+        long start = System.nanoTime();
+        assertEquals("call-3", client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        assertTrue("Hedge answered before the slow request", Duration.ofNanos(System.nanoTime() - start).toMillis() < 900);
+        assertEquals(1, hedgingPolicy.getHedges());
+        assertEquals(1, hedgingPolicy.getHedgesWon());
+    }
+
+    @Test
+    public void test_nonIdempotentIsNotHedged() throws Exception, TwikeyClient.UserException {
+        slowCall = 2;
+        HedgingPolicy hedgingPolicy = new HedgingPolicy().withMinimum(Duration.ofMillis(50), 1);
+        TwikeyClient client = client(hedgingPolicy);
+        HttpRequest request = HttpRequest.newBuilder(client.getUrl("/transaction")).GET().build();
+
+        client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals("call-2", client.send(request, HttpResponse.BodyHandlers.ofString(), false).body());
+        assertEquals(0, hedgingPolicy.getHedges());
+        assertEquals(2, calls.get());
+    }
+}
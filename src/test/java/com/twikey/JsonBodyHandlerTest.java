@@ -0,0 +1,97 @@
+package com.twikey;
+
+import com.twikey.modal.JsonReader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonBodyHandlerTest {
+
+    @Rule
+    public final TestServer server = new TestServer();
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Before
+    public void setUp() {
+        server.handle("/sized", exchange -> TestServer.respond(exchange, 200, "{\"msg\":\"Crème brûlée €\"}"));
+        server.handle("/chunked", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("{\"padding\":\"".getBytes(StandardCharsets.UTF_8));
+                for (int i = 0; i < 5_000; i++) {
+                    out.write("ééé".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+                out.write("\",\"id\":42}".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    @Test
+    public void test_readsSizedBody() throws Exception {
+        JsonReader reader = send("/sized");
+        reader.beginObject();
+        assertEquals("msg", reader.nextName());
+        assertEquals("Crème brûlée €", reader.nextString());
+        reader.endObject();
+    }
+
+    @Test
+    public void test_readsChunkedBody() throws Exception {
+        JsonReader reader = send("/chunked");
+        reader.beginObject();
+        assertEquals("padding", reader.nextName());
+        assertEquals("ééé".repeat(5_000), reader.nextString());
+        assertEquals("id", reader.nextName());
+        assertEquals(42, reader.nextLong(0));
+        reader.endObject();
+    }
+
+    @Test
+    public void test_malformedLengthIsUnknown() throws Exception {
+        HttpHeaders headers = HttpHeaders.of(Map.of("Content-Length", List.of("12kB")), (name, value) -> true);
+        HttpResponse.ResponseInfo info = new HttpResponse.ResponseInfo() {
+            @Override
+            public int statusCode() {
+                return 200;
+            }
+
+            @Override
+            public HttpHeaders headers() {
+                return headers;
+            }
+
+            @Override
+            public HttpClient.Version version() {
+                return HttpClient.Version.HTTP_1_1;
+            }
+        };
+        HttpResponse.BodySubscriber<JsonReader> subscriber = JsonBodyHandler.INSTANCE.apply(info);
+        subscriber.onNext(List.of(ByteBuffer.wrap("{\"id\":42}".getBytes(StandardCharsets.UTF_8))));
+        subscriber.onComplete();
+        JsonReader reader = subscriber.getBody().toCompletableFuture().get();
+        reader.beginObject();
+        assertEquals("id", reader.nextName());
+        assertEquals(42, reader.nextLong(0));
+        reader.endObject();
+    }
+
+    private JsonReader send(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(server.uri(path)).build();
+        HttpResponse<JsonReader> response = client.send(request, JsonBodyHandler.INSTANCE);
+        assertEquals(200, response.statusCode());
+        return response.body();
+    }
+}
@@ -0,0 +1,51 @@
+package com.twikey;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+    @Test
+    public void test_burstPassesAndExcessIsDelayed() {
+        RateLimiter rateLimiter = new RateLimiter().withLimit(EndpointFamily.TRANSACTION, 10, 2);
+        assertEquals(0, rateLimiter.reserve(EndpointFamily.TRANSACTION));
+        assertEquals(0, rateLimiter.reserve(EndpointFamily.TRANSACTION));
+
+        long wait = rateLimiter.reserve(EndpointFamily.TRANSACTION);
+        assertTrue("Expected to wait ~100ms but was " + wait, wait > TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue("Expected to wait ~100ms but was " + wait, wait <= TimeUnit.MILLISECONDS.toNanos(100));
+        long next = rateLimiter.reserve(EndpointFamily.TRANSACTION);
+        assertTrue("Callers queue behind each other", next > wait);
+
+        RateLimiter.Stats stats = rateLimiter.stats(EndpointFamily.TRANSACTION);
+        assertEquals(4, stats.permits());
+        assertEquals(2, stats.delayed());
+        assertEquals(next, stats.maxWait().toNanos());
+
+        // other families are not limited
+        assertEquals(0, rateLimiter.reserve(EndpointFamily.INVOICE));
+        assertEquals(0, rateLimiter.stats(EndpointFamily.INVOICE).permits());
+    }
+
+    @Test
+    public void test_invalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter().withLimit(EndpointFamily.INVOICE, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter().withDefaultLimit(1, 0));
+    }
+
+    @Test
+    public void test_endpointFamily() throws Exception {
+        TwikeyClient client = new TwikeyClient("apikey");
+        assertEquals(EndpointFamily.TRANSACTION, client.getEndpointFamily(client.getUrl("/transaction/detail")));
+        assertEquals(EndpointFamily.INVOICE, client.getEndpointFamily(client.getUrl("/invoice/payment/feed")));
+        assertEquals(EndpointFamily.MANDATE, client.getEndpointFamily(client.getUrl("/mandate")));
+        assertEquals(EndpointFamily.MANDATE, client.getEndpointFamily(client.getUrl("/invite")));
+        assertEquals(EndpointFamily.TRANSFER, client.getEndpointFamily(client.getUrl("/transfers/beneficiaries")));
+        assertEquals(EndpointFamily.PAYLINK, client.getEndpointFamily(client.getUrl("/payment/link/feed")));
+        assertEquals(EndpointFamily.OTHER, client.getEndpointFamily(URI.create("https://api.twikey.com/creditor")));
+    }
+}
@@ -0,0 +1,90 @@
+package com.twikey;
+
+import com.twikey.modal.RefundResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RequestCoalescerTest {
+
+    @Rule
+    public final TestServer server = new TestServer();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    @Before
+    public void setUp() {
+        server.handle("/creditor/transfer/detail", exchange -> {
+            lookups.incrementAndGet();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            TestServer.respond(exchange, 200, "{\"id\":\"%s\"}".formatted(exchange.getRequestURI().getQuery()));
+        });
+    }
+
+    @Test
+    public void test_concurrentIdenticalLookupsShareOneCall() throws Exception, TwikeyClient.UserException {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        TwikeyClient client = server.client().withRequestCoalescer(coalescer);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<RefundResponse.Refund>> callers = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                callers.add(() -> {
+                    try {
+                        return client.refund().details("ABC");
+                    } catch (TwikeyClient.UserException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            callers.add(() -> client.async().refund().details("DEF").get());
+            List<Future<RefundResponse.Refund>> results = executor.invokeAll(callers);
+            RefundResponse.Refund shared = results.get(0).get();
+            for (int i = 0; i < 8; i++) {
+                assertSame(shared, results.get(i).get());
+            }
+            assertEquals("ABC", shared.getId());
+            assertEquals("DEF", results.get(8).get().getId());
+            assertEquals(2, lookups.get());
+            assertEquals(2, coalescer.getCalls());
+            assertEquals(7, coalescer.getCoalesced());
+
+            assertNotSame("Completed lookups aren't reused", shared, client.refund().details("ABC"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_lookupsAreSharedPerApiKey() throws Exception {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        TwikeyClient client = server.client().withRequestCoalescer(coalescer);
+        TwikeyClient other = new TwikeyClient("otherkey").withCustomEndpoint(server.endpoint()).withRequestCoalescer(coalescer);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Callable<RefundResponse.Refund>> callers = List.of(
+                    () -> client.async().refund().details("ABC").get(),
+                    () -> other.async().refund().details("ABC").get());
+            List<Future<RefundResponse.Refund>> results = executor.invokeAll(callers);
+            assertNotSame(results.get(0).get(), results.get(1).get());
+            assertEquals(2, lookups.get());
+            assertEquals(2, coalescer.getCalls());
+            assertEquals(0, coalescer.getCoalesced());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
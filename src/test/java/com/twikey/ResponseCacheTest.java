@@ -0,0 +1,139 @@
+package com.twikey;
+
+import com.twikey.callback.RefundCallback;
+import com.twikey.modal.TransactionRequests;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest {
+
+    @Rule
+    public final TestServer server = new TestServer();
+
+    private static final String TENANT = "apikey";
+    private static final URI A = URI.create("https://api.twikey.com/creditor/transaction/detail?id=1");
+    private static final URI B = URI.create("https://api.twikey.com/creditor/transaction/detail?id=2");
+    private static final URI C = URI.create("https://api.twikey.com/creditor/transaction/detail?id=3");
+
+    @Test
+    public void test_leastRecentlyUsedIsEvicted() {
+        ResponseCache cache = new ResponseCache().withMaxEntries(2);
+        cache.put(cache.version(), TENANT, A, "a", EndpointFamily.TRANSACTION, List.of("1"));
+        cache.put(cache.version(), TENANT, B, "b", EndpointFamily.TRANSACTION, List.of("2"));
+        assertEquals("a", cache.get(TENANT, A));
+        cache.put(cache.version(), TENANT, C, "c", EndpointFamily.TRANSACTION, List.of("3"));
+        assertNull(cache.get(TENANT, B));
+        assertEquals("a", cache.get(TENANT, A));
+        assertEquals("c", cache.get(TENANT, C));
+
+        ResponseCache.Stats stats = cache.stats();
+        assertEquals(3, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.size());
+    }
+
+    @Test
+    public void test_expiredAfterTtl() throws InterruptedException {
+        ResponseCache cache = new ResponseCache().withTtl(Duration.ofMillis(20));
+        cache.put(cache.version(), TENANT, A, "a", EndpointFamily.TRANSACTION, List.of("1"));
+        assertEquals("a", cache.get(TENANT, A));
+        Thread.sleep(30);
+        assertNull(cache.get(TENANT, A));
+    }
+
+    @Test
+    public void test_invalidateByIdentifier() {
+        ResponseCache cache = new ResponseCache();
+        cache.put(cache.version(), TENANT, A, "a", EndpointFamily.TRANSACTION, List.of("1", "MNDT1"));
+        cache.put(cache.version(), TENANT, B, "b", EndpointFamily.TRANSACTION, List.of("2", "MNDT1"));
+        cache.put(cache.version(), TENANT, C, "c", EndpointFamily.TRANSACTION, List.of("3", "MNDT2"));
+
+        cache.invalidate(EndpointFamily.INVOICE, "MNDT1");
+        assertEquals("Other families aren't affected", 3, cache.stats().size());
+
+        cache.invalidate(EndpointFamily.TRANSACTION, "MNDT1");
+        assertNull(cache.get(TENANT, A));
+        assertNull(cache.get(TENANT, B));
+        assertEquals("c", cache.get(TENANT, C));
+        assertEquals(2, cache.stats().invalidations());
+    }
+
+    @Test
+    public void test_lookupOverlappingInvalidationIsNotCached() {
+        ResponseCache cache = new ResponseCache();
+        long version = cache.version();
+        cache.invalidate(EndpointFamily.TRANSACTION, "1");
+        cache.put(version, TENANT, A, "stale", EndpointFamily.TRANSACTION, List.of("1"));
+        assertNull(cache.get(TENANT, A));
+    }
+
+    @Test
+    public void test_feedInvalidatesLookup() throws Exception, TwikeyClient.UserException {
+        AtomicInteger lookups = new AtomicInteger();
+        AtomicInteger feedCalls = new AtomicInteger();
+        server.handle("/creditor/transfer/detail", exchange -> {
+            lookups.incrementAndGet();
+            TestServer.respond(exchange, 200, "{\"id\":\"ABC\",\"state\":\"PAID\"}");
+        });
+        server.handle("/creditor/transfer", exchange -> {
+            String entries = feedCalls.incrementAndGet() == 1 ? "{\"id\":\"ABC\"}" : "";
+            TestServer.respond(exchange, 200, "{\"Entries\":[%s]}".formatted(entries));
+        });
+        ResponseCache cache = new ResponseCache();
+        TwikeyClient client = server.client().withResponseCache(cache);
+        client.refund().details("ABC");
+        client.refund().details("ABC");
+        assertEquals(1, lookups.get());
+        assertEquals(1, cache.stats().hits());
+
+        client.refund().feed(new RefundCallback() {
+        });
+        client.refund().details("ABC");
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void test_updateInvalidatesLookup() throws Exception, TwikeyClient.UserException {
+        AtomicInteger lookups = serveTransaction();
+        server.handle("/creditor/transaction", exchange -> TestServer.respond(exchange, 204, null));
+        TwikeyClient client = server.client().withResponseCache(new ResponseCache());
+        TransactionRequests.StatusRequest status = new TransactionRequests.StatusRequest().setId("1")
+                .addInclude(TransactionRequests.StatusRequest.IncludeField.LASTUPDATE);
+        client.transaction().status(status);
+        client.transaction().status(status);
+        assertEquals(1, lookups.get());
+
+        client.transaction().update(new TransactionRequests.UpdateTransactionRequest("1").setMessage("Changed"));
+        client.transaction().status(status);
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void test_lookupsAreCachedPerApiKey() throws Exception, TwikeyClient.UserException {
+        AtomicInteger lookups = serveTransaction();
+        ResponseCache cache = new ResponseCache();
+        TransactionRequests.StatusRequest status = new TransactionRequests.StatusRequest().setId("1")
+                .addInclude(TransactionRequests.StatusRequest.IncludeField.LASTUPDATE);
+        server.client().withResponseCache(cache).transaction().status(status);
+        new TwikeyClient("otherkey").withCustomEndpoint(server.endpoint()).withResponseCache(cache).transaction().status(status);
+        assertEquals(2, lookups.get());
+        assertEquals(2, cache.stats().size());
+    }
+
+    private AtomicInteger serveTransaction() {
+        AtomicInteger lookups = new AtomicInteger();
+        server.handle("/creditor/transaction/detail", exchange -> {
+            lookups.incrementAndGet();
+            TestServer.respond(exchange, 200, "{\"Entries\":[{\"id\":1,\"ref\":\"REF1\",\"mndtId\":\"MNDT1\",\"state\":\"OPEN\",\"amount\":10}]}");
+        });
+        return lookups;
+    }
+}
@@ -0,0 +1,114 @@
+package com.twikey;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    @Rule
+    public final TestServer server = new TestServer();
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile int failures;
+    private volatile int failureStatus = 503;
+    private volatile String retryAfter;
+
+    @Before
+    public void setUp() {
+        server.handle("/creditor/transaction", exchange -> {
+            int call = calls.incrementAndGet();
+            if (retryAfter != null) {
+                exchange.getResponseHeaders().add("Retry-After", retryAfter);
+            }
+            TestServer.respond(exchange, call <= failures ? failureStatus : 200, null);
+        });
+    }
+
+    private URI uri() {
+        return server.uri("/creditor/transaction");
+    }
+
+    private TwikeyClient client(RetryPolicy retryPolicy) {
+        return server.client().withRetryPolicy(retryPolicy);
+    }
+
+    @Test
+    public void test_retriesUnavailableUntilSuccess() throws Exception, TwikeyClient.UserException {
+        failures = 2;
+        RetryPolicy retryPolicy = new RetryPolicy().withBackoff(Duration.ofMillis(1), Duration.ofMillis(10));
+        HttpResponse<String> response = client(retryPolicy).send(HttpRequest.newBuilder(uri()).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(3, calls.get());
+        assertEquals(2, retryPolicy.getRetries());
+    }
+
+    @Test
+    public void test_badGatewayOnlyRetriedWhenIdempotent() throws Exception, TwikeyClient.UserException {
+        failures = 1;
+        failureStatus = 502;
+        RetryPolicy retryPolicy = new RetryPolicy().withBackoff(Duration.ofMillis(1), Duration.ofMillis(10));
+        TwikeyClient client = client(retryPolicy);
+        HttpRequest post = HttpRequest.newBuilder(uri()).POST(HttpRequest.BodyPublishers.ofString("amount=10")).build();
+        assertEquals(502, client.send(post, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(1, calls.get());
+
+        calls.set(0);
+        assertEquals(200, client.send(post, HttpResponse.BodyHandlers.ofString(), true).statusCode());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void test_budgetStopsRetries() throws Exception, TwikeyClient.UserException {
+        failures = Integer.MAX_VALUE;
+        RetryPolicy retryPolicy = new RetryPolicy()
+                .withBackoff(Duration.ZERO, Duration.ZERO)
+                .withBudget(0, 1);
+        TwikeyClient client = client(retryPolicy);
+        HttpRequest get = HttpRequest.newBuilder(uri()).GET().build();
+        assertEquals(503, client.send(get, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(503, client.send(get, HttpResponse.BodyHandlers.ofString()).statusCode());
+        assertEquals(3, calls.get());
+        assertEquals(1, retryPolicy.getRetries());
+        assertEquals(2, retryPolicy.getBudgetExhausted());
+    }
+
+    @Test(timeout = 5000)
+    public void test_retryAfterAsDate() throws Exception, TwikeyClient.UserException {
+        failures = 1;
+        retryAfter = "Wed, 21 Oct 2015 07:28:00 GMT";
+        RetryPolicy retryPolicy = new RetryPolicy().withBackoff(Duration.ofMillis(1), Duration.ofMillis(10));
+        HttpResponse<String> response = client(retryPolicy).send(HttpRequest.newBuilder(uri()).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void test_retryAfter() {
+        assertEquals(120, RetryPolicy.retryAfter(" 120 "));
+        assertEquals(Long.MAX_VALUE, RetryPolicy.retryAfter(String.valueOf(Long.MAX_VALUE)));
+        assertEquals(0, RetryPolicy.retryAfter("-5"));
+        assertEquals(0, RetryPolicy.retryAfter("99999999999999999999"));
+        assertEquals(0, RetryPolicy.retryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertTrue(RetryPolicy.retryAfter("Fri, 31 Dec 9999 23:59:59 GMT") > 0);
+        assertEquals(0, RetryPolicy.retryAfter("soon"));
+        assertEquals(0, RetryPolicy.retryAfter(null));
+    }
+
+    @Test
+    public void test_isRetryable() {
+        assertTrue(RetryPolicy.isRetryable(null, new ConnectException(), false));
+        assertFalse(RetryPolicy.isRetryable(null, new HttpTimeoutException("timeout"), false));
+        assertTrue(RetryPolicy.isRetryable(null, new HttpTimeoutException("timeout"), true));
+        assertFalse(RetryPolicy.isRetryable(null, new IllegalStateException(), true));
+    }
+}
@@ -0,0 +1,114 @@
+package com.twikey;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.rules.ExternalResource;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local api for the tests, answering the login on <code>/creditor</code> with a token. Handlers for the endpoints
+ * under test are added with {@link #handle(String, HttpHandler)}.
+ *
+ * <pre>
+ * &#64;Rule
+ * public final TestServer server = new TestServer();
+ * </pre>
+ */
+class TestServer extends ExternalResource {
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private volatile HttpHandler login = exchange -> {
+        exchange.getResponseHeaders().add("Authorization", "token");
+        respond(exchange, 200, null);
+    };
+
+    @Override
+    protected void before() throws IOException {
+        executor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/creditor", exchange -> login.handle(exchange));
+        server.start();
+    }
+
+    @Override
+    protected void after() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param path    path the handler answers, including the <code>/creditor</code> prefix for endpoints of the api
+     * @param handler answers the requests on the path and the paths below it
+     */
+    void handle(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+    }
+
+    /**
+     * @param handler answers the login instead of the default handing out <code>token</code>
+     */
+    void login(HttpHandler handler) {
+        this.login = handler;
+    }
+
+    URI uri(String path) {
+        return URI.create("http://localhost:%d%s".formatted(server.getAddress().getPort(), path));
+    }
+
+    /**
+     * @return endpoint to configure on the client via {@link TwikeyClient#withCustomEndpoint(String)}
+     */
+    String endpoint() {
+        return uri("/creditor").toString();
+    }
+
+    /**
+     * @return a new client talking to this server
+     */
+    TwikeyClient client() {
+        return new TwikeyClient("apikey").withCustomEndpoint(endpoint());
+    }
+
+    /**
+     * Serves the next of the pages on every fetch of a feed, an empty page once all were served and a 400 for a page
+     * being <code>error</code>
+     *
+     * @param array name of the array holding the entries (eg. <code>Entries</code>)
+     * @param pages the entries of every page separated by a comma
+     */
+    static HttpHandler feed(String array, Queue<String> pages) {
+        return exchange -> {
+            String page = pages.poll();
+            if ("error".equals(page)) {
+                exchange.getResponseHeaders().add("ApiError", "err_invalid_state");
+                respond(exchange, 400, null);
+                return;
+            }
+            respond(exchange, 200, "{\"%s\":[%s]}".formatted(array, page == null ? "" : page));
+        };
+    }
+
+    /**
+     * @param body sent as UTF-8, null to send no body at all
+     */
+    static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+}
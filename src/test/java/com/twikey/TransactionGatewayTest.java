@@ -8,6 +8,7 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import static org.junit.Assert.*;
 
@@ -50,6 +51,15 @@ public class TransactionGatewayTest {
         assertEquals(mandateNumber, linkResponse.getMndtId());
     }
 
+    @Test
+    public void testCreateAsync() throws InterruptedException, ExecutionException {
+        Assume.assumeNotNull(apiKey,mandateNumber);
+        TransactionRequests.NewTransactionRequest request = new TransactionRequests.NewTransactionRequest(mandateNumber, "hey", 10.0);
+        TransactionResponse.Transaction linkResponse = api.async().transaction().create(request).get();
+        assertNotEquals("Transaction Id", 0, linkResponse.getId());
+        assertEquals(mandateNumber, linkResponse.getMndtId());
+    }
+
     @Test
     public void testStatus() throws IOException, TwikeyClient.UserException {
         Assume.assumeNotNull(apiKey, mandateNumber);
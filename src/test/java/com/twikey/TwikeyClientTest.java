@@ -1,13 +1,22 @@
 package com.twikey;
 
+import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.Assert.*;
 
 public class TwikeyClientTest {
 
+    @Rule
+    public final TestServer server = new TestServer();
+
     @Test
     public void verifySignatureAndDecryptAccountInfo() {
         // exiturl defined in template http://example.com?mandatenumber={{mandateNumber}}&status={{status}}&signature={{s}}&account={{account}}
@@ -49,4 +58,53 @@ public class TwikeyClientTest {
         assertEquals("safe=hello+world", data);
     }
 
+    @Test
+    public void test_getSessionToken_concurrentCallersShareOneLogin() throws Exception {
+        AtomicInteger logins = new AtomicInteger();
+        server.login(exchange -> {
+            logins.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Authorization", "token-" + logins.get());
+            TestServer.respond(exchange, 200, null);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            TwikeyClient client = server.client();
+            List<Callable<String>> callers = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                callers.add(() -> {
+                    try {
+                        return client.getSessionToken();
+                    } catch (TwikeyClient.UserException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            for (Future<String> token : executor.invokeAll(callers)) {
+                assertEquals("token-1", token.get());
+            }
+            assertEquals("token-1", client.getSessionTokenAsync().get());
+            assertEquals(1, logins.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_withVirtualThreads() {
+        TwikeyClient client = new TwikeyClient("apikey");
+        if (Runtime.version().feature() >= 21) {
+            ExecutorService executor = (ExecutorService) client.withVirtualThreads().executor();
+            assertNotNull(executor);
+            client.close();
+            assertTrue(executor.isShutdown());
+        } else {
+            assertThrows(UnsupportedOperationException.class, client::withVirtualThreads);
+            assertNull(client.executor());
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package com.twikey.modal;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class CentsTest {
+
+    @Test
+    public void test_amountsInCents() {
+        String[] amounts = {"10", "10.5", "10.05", "0.1", "1.005", "-1.005", "-0.5", "\"12.5\"", "1e2", "12345678901234.99"};
+        long[] cents = {1000, 1050, 1005, 10, 101, -101, -50, 1250, 10000, 1234567890123499L};
+        for (int i = 0; i < amounts.length; i++) {
+            String json = "{\"amount\":%s}".formatted(amounts[i]);
+            assertEquals(json, cents[i], JsonCodec.streaming().transaction(json(json)).getAmountCents());
+            assertEquals(json, cents[i], TransactionResponse.Transaction.fromJson(new JSONObject(json)).getAmountCents());
+        }
+    }
+
+    @Test
+    public void test_sumIsExact() {
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < 10; i++) {
+            TransactionResponse.Transaction tx = JsonCodec.streaming().transaction(json("{\"amount\":0.1}"));
+            total += tx.getAmountCents();
+            sum += tx.getAmount();
+        }
+        assertEquals(100, total);
+        assertNotEquals(1.0, sum, 0);
+    }
+
+    @Test
+    public void test_optionalAmounts() {
+        TransactionResponse.Transaction tx = JsonCodec.streaming().transaction(json("{\"admincharge\":null,\"amount\":2.5}"));
+        assertEquals(2.5, tx.getAmount(), 0);
+        assertTrue(Double.isNaN(tx.getAdmincharge()));
+        assertEquals(0, tx.getAdminchargeCents());
+        assertNull(tx.getBkamount());
+        assertEquals(0, tx.getBkamountCents());
+
+        InvoiceResponse.Invoice invoice = JsonCodec.streaming().invoice(json("{\"id\":\"1\"}"));
+        assertNull(invoice.getAmount());
+        assertEquals(0, invoice.getAmountCents());
+    }
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,130 @@
+package com.twikey.modal;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DocumentResponseTest {
+    @Test
+    public void testCancelledEvent() {
+        String message = """
+                {
+                    "OrgnlMndtId": "CORERECURRENTNL16318",
+                    "CxlRsn": {
+                        "Rsn": "MD16",
+                        "Orgtr": {
+                            "CtctDtls": {
+                                "EmailAdr": "info@twikey.com"
+                            }
+                        }
+                    },
+                    "EvtTime": "2026-01-15T15:19:19Z"
+                }
+                """;
+        DocumentResponse.Event event = DocumentResponse.Event.fromJson(new JSONObject(message));
+        assertEquals(DocumentResponse.Event.EventType.CANCELLED, event.type());
+        assertNull(event.document());
+        assertEquals("CORERECURRENTNL16318", event.mandateNumber());
+        assertEquals("MD16", event.reason());
+        assertEquals("info@twikey.com", event.author());
+        assertEquals("2026-01-15T15:19:19Z", event.eventTime());
+    }
+
+    private static final String MANDATE = """
+            {
+                "Mndt": {
+                    "MndtId": "CORERECURRENTNL16318",
+                    "LclInstrm": "CORE",
+                    "Ocrncs": {
+                        "SeqTp": "RCUR",
+                        "Drtn": {
+                            "FrDt": "2026-01-15"
+                        }
+                    },
+                    "Dbtr": {
+                        "PstlAdr": {
+                            "Ctry": "BE"
+                        },
+                        "CtctDtls": {}
+                    },
+                    "DbtrAcct": "BE51561273212222",
+                    "DbtrAgt": {
+                        "FinInstnId": {
+                            "BICFI": "GKCCBEBB"
+                        }
+                    },
+                    "RfrdDoc": "Contract 1",
+                    "SplmtryData": [
+                        {"Key": "Language", "Value": "nl"}
+                    ]
+                },
+                "EvtTime": "2026-01-15T15:19:19Z"
+            }
+            """;
+
+    @Test
+    public void testGroupsDecodedOnAccess() {
+        DocumentResponse.Document tree = DocumentResponse.Event.fromJson(new JSONObject(MANDATE)).document();
+        DocumentResponse.Document streamed = DocumentResponse.Document.fromJson(new JsonReader(MANDATE), "signed");
+        for (DocumentResponse.Document document : new DocumentResponse.Document[]{tree, streamed}) {
+            assertEquals("CORERECURRENTNL16318", document.getMandateNumber());
+            assertEquals("CORE", document.getType());
+            assertEquals("BE51561273212222", document.getIban());
+            assertEquals("Contract 1", document.getContractNumber());
+            assertEquals("RCUR", document.getSequenceType());
+            assertEquals("2026-01-15", document.getSignDate());
+            assertEquals("GKCCBEBB", document.getBic());
+            assertEquals("", document.getDebtorBank());
+            assertEquals("nl", document.getSupplementaryData().get("Language"));
+            // the debtor lacks its name, which only fails once the debtor is accessed
+            assertThrows(JSONException.class, document::getDebtorCountry);
+            assertThrows(JSONException.class, document::getDebtorName);
+        }
+        assertEquals("signed", streamed.getState());
+    }
+
+    @Test
+    public void testMissingGroupFailsRightAway() {
+        String message = MANDATE.replace("\"DbtrAgt\"", "\"Agent\"");
+        assertThrows(JSONException.class, () -> DocumentResponse.Event.fromJson(new JSONObject(message)));
+        assertThrows(JSONException.class, () -> DocumentResponse.Document.fromJson(new JsonReader(message), null));
+        assertThrows(JSONException.class, () -> DocumentResponse.Event.fromJson(new JsonReader(message)));
+    }
+
+    @Test
+    public void testEventsBoundWithoutTree() {
+        String updated = MANDATE
+                .replace("\"CtctDtls\": {}", "\"Nm\": \"Jane Doe\", \"CtctDtls\": {\"EmailAdr\": \"jane@doe.com\"}")
+                .replace("\"EvtTime\"", """
+                        "OrgnlMndtId": "CORERECURRENTNL16318",
+                        "AmdmntRsn": {"Rsn": "_T50", "Orgtr": {"CtctDtls": {"EmailAdr": "info@twikey.com"}}},
+                        "EvtTime\"""");
+        String cancelled = """
+                {"OrgnlMndtId":"CORERECURRENTNL16318","CxlRsn":{"Rsn":"MD16","Orgtr":{"CtctDtls":{"EmailAdr":"info@twikey.com"}}},"EvtTime":"2026-01-15T15:19:19Z"}
+                """;
+        for (String message : new String[]{MANDATE, updated, cancelled}) {
+            DocumentResponse.Event tree = DocumentResponse.Event.fromJson(new JSONObject(message));
+            DocumentResponse.Event streamed = DocumentResponse.Event.fromJson(new JsonReader(message));
+            assertEquals(tree.type(), streamed.type());
+            assertEquals(tree.mandateNumber(), streamed.mandateNumber());
+            assertEquals(tree.originalMandateNumber(), streamed.originalMandateNumber());
+            assertEquals(tree.reason(), streamed.reason());
+            assertEquals(tree.author(), streamed.author());
+            assertEquals(tree.eventTime(), streamed.eventTime());
+            assertEquals(tree.document() == null, streamed.document() == null);
+        }
+
+        DocumentResponse.Document document = DocumentResponse.Event.fromJson(new JsonReader(updated)).document();
+        assertEquals("RCUR", document.getSequenceType());
+        assertEquals("Jane Doe", document.getDebtorName());
+        assertEquals("GKCCBEBB", document.getBic());
+        assertEquals("nl", document.getSupplementaryData().get("Language"));
+        // all groups were decoded, so the source was released and the fields are kept
+        assertEquals("2026-01-15", document.getSignDate());
+        assertEquals("jane@doe.com", document.getDebtorEmail());
+        assertEquals("BE", document.getDebtorCountry());
+        assertEquals(1, document.getSupplementaryData().size());
+    }
+}
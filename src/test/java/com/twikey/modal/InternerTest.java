@@ -0,0 +1,50 @@
+package com.twikey.modal;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class InternerTest {
+
+    @Test
+    public void test_sharesEqualValues() {
+        Interner interner = new Interner(16);
+        String paid = interner.intern(new String("PAID"));
+        assertSame(paid, interner.intern(new String("PAID")));
+
+        byte[] bytes = "{\"state\":\"PAID\"}".getBytes(StandardCharsets.UTF_8);
+        assertSame(paid, interner.intern(bytes, 10, 14));
+        // not ASCII, decoded by the caller
+        assertNull(interner.intern("é".getBytes(StandardCharsets.UTF_8), 0, 2));
+        String tooLong = "x".repeat(Interner.MAX_LENGTH + 1);
+        assertSame(tooLong, interner.intern(tooLong));
+        assertNull(interner.intern(null));
+    }
+
+    @Test
+    public void test_modelsShareStates() {
+        String json = "{\"id\":%d,\"state\":\"PAID\",\"stage\":\"stage\",\"mndtId\":\"MNDT1\",\"contract\":\"Terms\",\"bkerror\":null}";
+        TransactionResponse.Transaction first = streamed(json.formatted(1));
+        TransactionResponse.Transaction second = streamed(json.formatted(2));
+        TransactionResponse.Transaction tree = TransactionResponse.Transaction.fromJson(new JSONObject(json.formatted(3)));
+
+        assertSame(first.getState(), second.getState());
+        assertSame(first.getState(), tree.getState());
+        assertSame(first.getMndtId(), tree.getMndtId());
+        assertSame(first.getContract(), second.getContract());
+        assertNull(first.getBkerror());
+    }
+
+    private static TransactionResponse.Transaction streamed(String json) {
+        return JsonCodec.streaming().transaction(json(json));
+    }
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
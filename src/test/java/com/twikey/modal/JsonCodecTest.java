@@ -0,0 +1,165 @@
+package com.twikey.modal;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JsonCodecTest {
+
+    private static final String TRANSACTION = """
+            {"Entries":[{
+                "id": 381563,
+                "contractId": 325638,
+                "mndtId": "MNDTNUMBER",
+                "contract": "Algemene voorwaarden",
+                "amount": 10.0,
+                "admincharge": null,
+                "msg": "Escaped \\"message\\" \\u00e9",
+                "place": null,
+                "ref": 123,
+                "final": true,
+                "state": "PAID",
+                "bkamount": "12.5",
+                "collection": "2",
+                "unknown": {"nested": [1, 2, {"a": "]"}]},
+                "actions": [{"type": "reminder", "at": "2026-01-15"}]
+            }]}
+            """;
+
+    private static final String INVOICE = """
+            {
+                "id": "fec44175-b4fe-414c-92aa-9d0a7dd0dbf2",
+                "number": "Inv20200001",
+                "title": null,
+                "ct": 1988,
+                "amount": "100.00",
+                "date": "2020-01-31",
+                "state": "BOOKED",
+                "lastpayment": [{"amount": 100}],
+                "meta": {"active": true, "method": "sdd"},
+                "customer": {"email": "info@twikey.com"}
+            }
+            """;
+
+    private static final String PAYLINK = """
+            {
+                "id": 1,
+                "amount": 55.66,
+                "msg": "Test",
+                "state": "paid",
+                "customer": {"email": "info@twikey.com", "l": "nl"},
+                "meta": {"active": "true", "method": "ideal", "tx": 7}
+            }
+            """;
+
+    private static final String DOCUMENT = """
+            {
+                "Mndt": {
+                    "MndtId": "COREREC01",
+                    "LclInstrm": "CORE",
+                    "Ocrncs": {"SeqTp": "RCUR", "Frqcy": "ADHO", "Drtn": {"FrDt": "2026-01-15"}},
+                    "CdtrSchmeId": "BE39ZZZ0000000001",
+                    "Dbtr": {
+                        "Nm": "Twikey",
+                        "PstlAdr": {"AdrLine": "Derbystraat 43", "PstCd": "9051", "TwnNm": "Gent", "Ctry": "BE"},
+                        "Id": "BE0533800797",
+                        "CtctDtls": {"EmailAdr": "info@twikey.com"}
+                    },
+                    "DbtrAcct": "BE51561644282762",
+                    "DbtrAgt": {"FinInstnId": {"BICFI": "JVBABE22", "Nm": "JP Morgan"}},
+                    "RfrdDoc": "Terms and conditions",
+                    "SplmtryData": [
+                        {"Key": "SignerPlace#0", "Value": "Gent"},
+                        {"Key": "Language", "Value": 1},
+                        {"Key": "", "Value": "ignored"},
+                        {"Key": "Empty", "Value": null}
+                    ]
+                }
+            }
+            """;
+
+    @Test
+    public void test_transactionMatchesOrgJson() {
+        TransactionResponse.Transaction streamed = JsonCodec.streaming().transaction(new JsonReader(TRANSACTION).select("Entries").nextValueStream());
+        TransactionResponse.Transaction tree = TransactionResponse.Transaction.fromJson(new JSONObject(TRANSACTION).getJSONArray("Entries").getJSONObject(0));
+
+        assertEquals(tree.toString(), streamed.toString());
+        TransactionResponse.Transaction tokenized = JsonCodec.orgJson().transaction(new JsonReader(TRANSACTION).select("Entries").nextValueStream());
+        assertEquals(tree.toString(), tokenized.toString());
+        assertEquals(381563, streamed.getId());
+        assertEquals("Escaped \"message\" é", streamed.getMsg());
+        assertEquals("123", streamed.getRef());
+        assertNull(streamed.getPlace());
+        assertTrue(Double.isNaN(streamed.getAdmincharge()));
+        assertEquals(12.5, streamed.getBkamount(), 0);
+        assertEquals(2, streamed.getCollection());
+        assertEquals(1, streamed.getActions().size());
+    }
+
+    @Test
+    public void test_invoiceMatchesOrgJson() {
+        InvoiceResponse.Invoice streamed = JsonCodec.streaming().invoice(json(INVOICE));
+        InvoiceResponse.Invoice tree = JsonCodec.orgJson().invoice(json(INVOICE));
+
+        assertEquals(tree.toString(), streamed.toString());
+        assertEquals("", streamed.getTitle());
+        assertEquals("", streamed.getUrl());
+        assertEquals(100.0, streamed.getAmount(), 0);
+        assertEquals("sdd", streamed.getMeta().getString("method"));
+    }
+
+    @Test
+    public void test_paylinkMatchesOrgJson() {
+        PaylinkResponse.Paylink streamed = JsonCodec.streaming().paylink(json(PAYLINK));
+        PaylinkResponse.Paylink tree = JsonCodec.orgJson().paylink(json(PAYLINK));
+
+        assertEquals(tree.id(), streamed.id());
+        assertEquals(tree.amount(), streamed.amount(), 0);
+        assertEquals(tree.remittance(), streamed.remittance());
+        assertEquals(PaylinkResponse.PaylinkState.PAID, streamed.state());
+        assertEquals(tree.meta(), streamed.meta());
+        assertEquals(tree.customer().getLang(), streamed.customer().getLang());
+        assertEquals("", streamed.customer().getMobile());
+
+        assertThrows(JSONException.class, () -> JsonCodec.streaming().paylink(json("{\"amount\":1}")));
+    }
+
+    @Test
+    public void test_documentMatchesOrgJson() {
+        DocumentResponse.Document streamed = JsonCodec.streaming().document(json(DOCUMENT), "signed");
+        DocumentResponse.Document tree = JsonCodec.orgJson().document(json(DOCUMENT), "signed");
+
+        assertEquals(tree.toString(), streamed.toString());
+        assertEquals(Map.of("SignerPlace#0", "Gent", "Language", "1", "Empty", "null"), streamed.getSupplementaryData());
+
+        String incomplete = DOCUMENT.replace("\"RfrdDoc\"", "\"Other\"");
+        assertThrows(JSONException.class, () -> JsonCodec.streaming().document(json(incomplete), null));
+        assertThrows(JSONException.class, () -> JsonCodec.orgJson().document(json(incomplete), null));
+    }
+
+    @Test
+    public void test_invoiceRequestMatchesOrgJson() {
+        InvoiceRequests.CreateInvoiceRequest create = new InvoiceRequests.CreateInvoiceRequest("Inv-1", 10.5, "2026-01-01", "2026-02-01",
+                new DocumentRequests.Customer().setEmail("info@twikey.com").setLastname("\"Twikey\" </script>"))
+                .setTitle("Invoice")
+                .setRef("ref")
+                .setLines(List.of(new InvoiceRequests.CreateInvoiceRequest.LineItem().setCode("A").setQuantity(2).setUnitprice(5.25)))
+                .setExtra(Map.of("ref", "override", "custom", "value"));
+
+        JSONObject streamed = new JSONObject(JsonCodec.streaming().write(create));
+        assertTrue(streamed.similar(create.toRequest()));
+        assertEquals("override", streamed.getString("ref"));
+    }
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,93 @@
+package com.twikey.modal;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class JsonReaderTest {
+
+    @Test
+    public void test_readsTokens() {
+        JsonReader reader = new JsonReader(" { \"a\" : [1, -2.5e1, \"x\\ty\", true, null], \"b\": {\"c\": {}} } ");
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        reader.beginArray();
+        assertEquals(1, reader.nextLong(0));
+        assertEquals(-25.0, reader.nextDouble(0), 0);
+        assertEquals("x\ty", reader.nextString());
+        assertTrue(reader.nextBoolean(false));
+        assertEquals(JsonReader.Token.NULL, reader.peek());
+        assertEquals("fallback", reader.nextString("fallback"));
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertEquals("b", reader.nextName());
+        reader.skipValue();
+        reader.endObject();
+        assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+    }
+
+    @Test
+    public void test_coercesLikeOrgJson() {
+        String json = "{\"n\":\"12\",\"s\":1.50,\"o\":{\"k\":[1]},\"b\":\"x\",\"big\":12345678901234567890}";
+        JSONObject tree = new JSONObject(json);
+        JsonReader reader = new JsonReader(json);
+        reader.beginObject();
+        reader.nextName();
+        assertEquals(tree.optLong("n"), reader.nextLong(0));
+        reader.nextName();
+        assertEquals(tree.optString("s"), reader.nextString());
+        reader.nextName();
+        assertTrue(tree.getJSONObject("o").similar(new JSONObject(reader.nextString())));
+        reader.nextName();
+        assertEquals(tree.optLong("b", 7), reader.nextLong(7));
+        reader.nextName();
+        assertEquals(tree.optDouble("big"), reader.nextDouble(0), 0);
+        reader.endObject();
+    }
+
+    @Test
+    public void test_sharesNames() {
+        JsonReader reader = new JsonReader("[{\"state\":1},{\"state\":2}]");
+        reader.beginArray();
+        reader.beginObject();
+        String first = reader.nextName();
+        reader.skipValue();
+        reader.endObject();
+        reader.beginObject();
+        assertSame(first, reader.nextName());
+    }
+
+    @Test
+    public void test_valueStream() throws Exception {
+        JsonReader reader = new JsonReader("{\"Entries\": [ {\"id\": [1, \"]\"]} , 2]}").select("Entries");
+        assertEquals("{\"id\": [1, \"]\"]}", new String(reader.nextValueStream().readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(2, reader.nextLong());
+    }
+
+    @Test
+    public void test_malformed() {
+        assertThrows(JSONException.class, () -> new JsonReader("{\"a\" 1}").skipValue());
+        assertThrows(JSONException.class, () -> new JsonReader("[1,").skipValue());
+        assertThrows(JSONException.class, () -> new JsonReader("\"open").nextString());
+        assertThrows(JSONException.class, () -> new JsonReader("{\"Entries\":[]}").select("Entries"));
+        assertThrows(JSONException.class, () -> new JsonReader("{}").select("Entries"));
+    }
+
+    @Test
+    public void test_writer() {
+        String json = new JsonWriter()
+                .beginObject()
+                .name("s").value("a\"b\\c\n</")
+                .name("n").value(10.0)
+                .name("l").value(3)
+                .name("a").beginArray().value(true).nullValue().beginObject().endObject().endArray()
+                .endObject()
+                .toString();
+        assertEquals("{\"s\":\"a\\\"b\\\\c\\n<\\/\",\"n\":10,\"l\":3,\"a\":[true,null,{}]}", json);
+        assertEquals(JSONObject.quote("a\"b\\c\n</"), json.substring(5, json.indexOf(",\"n\"")));
+    }
+}